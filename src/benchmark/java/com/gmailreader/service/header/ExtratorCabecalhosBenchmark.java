@@ -0,0 +1,69 @@
+package com.gmailreader.service.header;
+
+import com.google.api.services.gmail.model.MessagePartHeader;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compara, por mensagem, a busca de From/Subject/Date com um stream por cabeçalho (como
+ * fazia o {@code EmailToJsonService}) com a passada única do {@link ExtratorCabecalhos}.
+ * Os cabeçalhos pedidos ficam no fim da lista, depois dos {@code Received} dos relays.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ExtratorCabecalhosBenchmark {
+
+    private static final List<String> NOMES = List.of("From", "Subject", "Date");
+
+    @Param({"10", "50", "100"})
+    private int quantidadeCabecalhos;
+
+    private List<MessagePartHeader> headers;
+    private ExtratorCabecalhos extrator;
+
+    @Setup
+    public void preparar() {
+        headers = new ArrayList<>(quantidadeCabecalhos);
+        for (int i = 0; i < quantidadeCabecalhos - NOMES.size(); i++) {
+            headers.add(new MessagePartHeader().setName("Received").setValue("from relay-" + i));
+        }
+        headers.add(new MessagePartHeader().setName("From").setValue("remetente@example.com"));
+        headers.add(new MessagePartHeader().setName("Subject").setValue("Assunto"));
+        headers.add(new MessagePartHeader().setName("Date").setValue("Mon, 1 Jan 2024 10:00:00 +0000"));
+        extrator = new ExtratorCabecalhos(NOMES);
+    }
+
+    @Benchmark
+    public void streamPorCabecalho(Blackhole blackhole) {
+        for (String nome : NOMES) {
+            blackhole.consume(headers.stream()
+                    .filter(header -> nome.equals(header.getName()))
+                    .findFirst()
+                    .map(MessagePartHeader::getValue)
+                    .orElse(""));
+        }
+    }
+
+    @Benchmark
+    public CabecalhosEmail passadaUnica() {
+        return extrator.extrair(headers);
+    }
+}
@@ -0,0 +1,40 @@
+package com.gmailreader.config;
+
+import com.gmailreader.repository.cache.BloomFilterEmailCache;
+import com.gmailreader.repository.cache.EmailCache;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+
+@Configuration
+public class EmailCacheConfiguration {
+
+    @Bean
+    @ConditionalOnProperty(name = "gmail.cache.filtro.habilitado", havingValue = "true")
+    public static BeanPostProcessor filtroBloomEmailCachePostProcessor(
+            Environment environment,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+
+        long quantidadeEsperada = environment.getProperty(
+                "gmail.cache.filtro.quantidade-esperada", Long.class, 1_000_000L);
+        double taxaFalsosPositivos = environment.getProperty(
+                "gmail.cache.filtro.taxa-falsos-positivos", Double.class, 0.01);
+
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof EmailCache cache && !(bean instanceof BloomFilterEmailCache)) {
+                    return new BloomFilterEmailCache(cache, quantidadeEsperada, taxaFalsosPositivos,
+                            meterRegistry.getIfAvailable(SimpleMeterRegistry::new));
+                }
+                return bean;
+            }
+        };
+    }
+}
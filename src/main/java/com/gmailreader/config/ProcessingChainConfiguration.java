@@ -1,8 +1,12 @@
 package com.gmailreader.config;
 
 import com.gmailreader.service.processing.*;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
 
 import java.util.List;
 
@@ -30,8 +34,21 @@ public class ProcessingChainConfiguration {
     @Bean
     public ProcessingStep processingChain(
             ProcessingChainFactory factory,
-            List<ProcessingStep> processingStepsOrder) {
-        
-        return factory.criarCadeia(processingStepsOrder);
+            List<ProcessingStep> processingStepsOrder,
+            Environment environment,
+            ObjectProvider<MeterRegistry> meterRegistry) {
+
+        if (!environment.getProperty("gmail.processamento.estagios.habilitado", Boolean.class, false)) {
+            return factory.criarCadeia(processingStepsOrder);
+        }
+
+        MeterRegistry registry = meterRegistry.getIfAvailable(SimpleMeterRegistry::new);
+        return factory.criarCadeiaEmEstagios(processingStepsOrder, step -> {
+            String nome = EstagioProcessamento.nomeDoEstagio(step);
+            String prefixo = "gmail.processamento.estagios." + nome;
+            int threads = environment.getProperty(prefixo + ".threads", Integer.class, 1);
+            int capacidadeFila = environment.getProperty(prefixo + ".capacidade-fila", Integer.class, 100);
+            return new EstagioProcessamento(nome, step, threads, capacidadeFila, registry);
+        });
     }
 }
@@ -2,19 +2,36 @@ package com.gmailreader.config;
 
 import com.gmailreader.exception.GmailReaderException;
 import com.gmailreader.service.PubSubMessageProcessor;
+import com.google.api.gax.batching.FlowControlSettings;
+import com.google.api.gax.batching.FlowController.LimitExceededBehavior;
+import com.google.api.gax.core.FixedExecutorProvider;
+import com.google.api.gax.core.NoCredentialsProvider;
+import com.google.api.gax.grpc.GrpcTransportChannel;
+import com.google.api.gax.rpc.FixedTransportChannelProvider;
 import com.google.cloud.pubsub.v1.Subscriber;
 import com.google.pubsub.v1.ProjectSubscriptionName;
 import com.google.auth.oauth2.GoogleCredentials;
+import io.grpc.ManagedChannel;
+import io.grpc.ManagedChannelBuilder;
 import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
+import org.threeten.bp.Duration;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 @Component
 public class PubSubMessageReceiver {
 
     private static final Logger logger = LoggerFactory.getLogger(PubSubMessageReceiver.class);
+    private static final long BYTES_POR_MB = 1024L * 1024L;
 
     private final PubSubMessageProcessor messageProcessor;
     private final PubSubCredentialsManager credentialsManager;
@@ -25,6 +42,31 @@ public class PubSubMessageReceiver {
     @Value("${gcp.pubsub.subscription}")
     private String subscriptionId;
 
+    @Value("${gcp.pubsub.fluxo.max-mensagens:1000}")
+    private long maxMensagensPendentes = 1000;
+
+    @Value("${gcp.pubsub.fluxo.max-mb:100}")
+    private long maxMbPendentes = 100;
+
+    @Value("${gcp.pubsub.pull-paralelo:1}")
+    private int pullParalelo = 1;
+
+    @Value("${gcp.pubsub.executor.threads:4}")
+    private int threadsExecutor = 4;
+
+    @Value("${gcp.pubsub.extensao-ack-maxima-segundos:3600}")
+    private long extensaoAckMaximaSegundos = 3600;
+
+    @Value("${gcp.pubsub.encerramento.espera-segundos:30}")
+    private long esperaEncerramentoSegundos = 30;
+
+    @Value("${gcp.pubsub.emulador.host:${PUBSUB_EMULATOR_HOST:}}")
+    private String hostEmulador = "";
+
+    private Subscriber subscriber;
+    private ScheduledExecutorService executor;
+    private ManagedChannel canalEmulador;
+
     public PubSubMessageReceiver(PubSubMessageProcessor messageProcessor,
                                  PubSubCredentialsManager credentialsManager) {
         this.messageProcessor = messageProcessor;
@@ -34,20 +76,82 @@ public class PubSubMessageReceiver {
     @PostConstruct
     public void iniciarSubscriber() {
         try {
-            ProjectSubscriptionName subscriptionName = ProjectSubscriptionName.of(projectId, subscriptionId);
-            GoogleCredentials credentials = credentialsManager.obterCredenciais();
-
-            Subscriber subscriber = Subscriber.newBuilder(subscriptionName, messageProcessor::processarMensagem)
-                    .setCredentialsProvider(() -> credentials)
-                    .build();
-
+            subscriber = construirSubscriber();
             subscriber.startAsync().awaitRunning();
-            logger.info("Subscriber iniciado para assinatura: {}", subscriptionId);
+            logger.info("Subscriber iniciado para assinatura: {} (pull paralelo: {}, threads: {}, máx. {} mensagens / {} MB pendentes{})",
+                    subscriptionId, pullParalelo, threadsExecutor, maxMensagensPendentes, maxMbPendentes,
+                    usaEmulador() ? ", emulador em " + hostEmulador : "");
 
         } catch (Exception e) {
             logger.error("Erro ao inicializar Pub/Sub subscriber: {}", e.getMessage(), e);
             throw new GmailReaderException("Falha ao inicializar Pub/Sub subscriber", e);
         }
     }
-}
 
+    /**
+     * Para de puxar mensagens e aguarda as que já estão em processamento receberem ack ou nack
+     * antes de liberar o executor, para que nada fique sem resposta no encerramento.
+     */
+    @PreDestroy
+    public void encerrar() {
+        if (subscriber != null) {
+            try {
+                subscriber.stopAsync().awaitTerminated(esperaEncerramentoSegundos, TimeUnit.SECONDS);
+                logger.info("Subscriber da assinatura {} encerrado", subscriptionId);
+            } catch (TimeoutException e) {
+                logger.warn("Subscriber não terminou em {} s; mensagens pendentes serão reenviadas pelo Pub/Sub",
+                        esperaEncerramentoSegundos);
+            } catch (IllegalStateException e) {
+                logger.warn("Subscriber encerrado com falha: {}", e.getMessage());
+            }
+            subscriber = null;
+        }
+
+        if (executor != null) {
+            executor.shutdownNow();
+            executor = null;
+        }
+        if (canalEmulador != null) {
+            canalEmulador.shutdownNow();
+            canalEmulador = null;
+        }
+    }
+
+    Subscriber construirSubscriber() {
+        ProjectSubscriptionName subscriptionName = ProjectSubscriptionName.of(projectId, subscriptionId);
+
+        AtomicInteger contador = new AtomicInteger();
+        executor = Executors.newScheduledThreadPool(Math.max(1, threadsExecutor), tarefa -> {
+            Thread thread = new Thread(tarefa, "gmail-pubsub-" + contador.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        FlowControlSettings controleDeFluxo = FlowControlSettings.newBuilder()
+                .setMaxOutstandingElementCount(maxMensagensPendentes)
+                .setMaxOutstandingRequestBytes(maxMbPendentes * BYTES_POR_MB)
+                .setLimitExceededBehavior(LimitExceededBehavior.Block)
+                .build();
+
+        Subscriber.Builder builder = Subscriber.newBuilder(subscriptionName, messageProcessor::processarMensagem)
+                .setFlowControlSettings(controleDeFluxo)
+                .setParallelPullCount(Math.max(1, pullParalelo))
+                .setExecutorProvider(FixedExecutorProvider.create(executor))
+                .setMaxAckExtensionPeriod(Duration.ofSeconds(extensaoAckMaximaSegundos));
+
+        if (usaEmulador()) {
+            canalEmulador = ManagedChannelBuilder.forTarget(hostEmulador).usePlaintext().build();
+            builder.setChannelProvider(FixedTransportChannelProvider.create(GrpcTransportChannel.create(canalEmulador)))
+                    .setCredentialsProvider(NoCredentialsProvider.create());
+        } else {
+            GoogleCredentials credentials = credentialsManager.obterCredenciais();
+            builder.setCredentialsProvider(() -> credentials);
+        }
+
+        return builder.build();
+    }
+
+    private boolean usaEmulador() {
+        return hostEmulador != null && !hostEmulador.isBlank();
+    }
+}
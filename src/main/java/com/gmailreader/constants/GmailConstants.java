@@ -28,6 +28,16 @@ public final class GmailConstants {
 
         public static final String EMAIL_FILE_EXTENSION = ".json";
 
+        public static final String PROCESSED_IDS_FILE = "emails_processados.json";
+
+        public static final String PROCESSED_INDEX_FILE = "emails_processados.idx";
+
+        public static final String HISTORY_ID_FILE = "ultimo_history_id.txt";
+
+        public static final String PENDING_NOTIFICATIONS_FILE = "notificacoes_pendentes.txt";
+
+        public static final String DEAD_LETTER_FILE = "notificacoes_descartadas.jsonl";
+
         private Storage() {
             throw new UnsupportedOperationException("Classe de constantes não deve ser instanciada");
         }
@@ -2,6 +2,7 @@ package com.gmailreader.controller;
 
 import com.gmailreader.dto.ApiResponse;
 import com.gmailreader.service.EmailProcessingService;
+import com.gmailreader.service.processing.RelatorioProcessamento;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -17,11 +18,13 @@ public class EmailController {
 
     @GetMapping("/processar-emails")
     public ResponseEntity<ApiResponse<String>> processarEmails() {
-        emailProcessingService.processarEmails();
+        RelatorioProcessamento relatorio = emailProcessingService.processarEmails();
         
         ApiResponse<String> response = ApiResponse.sucesso(
             "Emails processados com sucesso!",
-            "Processamento concluído"
+            String.format("Processamento concluído: %d de %d emails (%d falhas, %d já processados ignorados)",
+                relatorio.getEmailsProcessados(), relatorio.getTotalEmails(), relatorio.getFalhas().size(),
+                relatorio.getEmailsIgnorados())
         );
         
         return ResponseEntity.ok(response);
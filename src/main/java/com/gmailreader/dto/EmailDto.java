@@ -1,11 +1,13 @@
 package com.gmailreader.dto;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 import java.util.List;
+import java.util.Map;
 
 @Data
 @NoArgsConstructor
@@ -32,6 +34,10 @@ public class EmailDto {
     
     @JsonProperty("anexos")
     private List<String> anexos;
+
+    @JsonProperty("cabecalhos")
+    @JsonInclude(JsonInclude.Include.NON_EMPTY)
+    private Map<String, String> cabecalhos;
     
     public EmailDto(String id, String data, String remetente, String assunto, String corpo) {
         this.id = id;
@@ -42,4 +48,9 @@ public class EmailDto {
         this.temAnexo = false;
         this.anexos = List.of();
     }
+
+    public EmailDto(String id, String data, String remetente, String assunto, String corpo,
+                    boolean temAnexo, List<String> anexos) {
+        this(id, data, remetente, assunto, corpo, temAnexo, anexos, Map.of());
+    }
 }
@@ -0,0 +1,56 @@
+package com.gmailreader.repository;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.gmailreader.constants.GmailConstants;
+import com.gmailreader.service.StorageService;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+
+/**
+ * Registra as notificações do Pub/Sub que esgotaram as tentativas de processamento, uma
+ * linha JSON por mensagem, para análise e reenvio manual. Cada registro é gravado com
+ * {@code fsync} antes de a mensagem receber ack.
+ */
+@Repository
+public class DeadLetterFileRepository {
+
+    private static final String ARQUIVO_DESCARTADAS = GmailConstants.Storage.DEAD_LETTER_FILE;
+
+    private final StorageService storageService;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    public DeadLetterFileRepository(StorageService storageService) {
+        this.storageService = storageService;
+    }
+
+    public synchronized void registrar(String messageId, int tentativas, String motivo, String conteudo) throws IOException {
+        ObjectNode registro = objectMapper.createObjectNode()
+                .put("messageId", messageId)
+                .put("tentativas", tentativas)
+                .put("motivo", motivo)
+                .put("descartadaEm", Instant.now().toString())
+                .put("conteudo", conteudo);
+        byte[] linha = (objectMapper.writeValueAsString(registro) + "\n").getBytes(StandardCharsets.UTF_8);
+
+        try (FileChannel canal = FileChannel.open(caminhoArquivo(),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(linha);
+            while (buffer.hasRemaining()) {
+                canal.write(buffer);
+            }
+            canal.force(true);
+        }
+    }
+
+    private Path caminhoArquivo() {
+        return Path.of(storageService.obterLocalizacaoArmazenamento(), ARQUIVO_DESCARTADAS).toAbsolutePath();
+    }
+}
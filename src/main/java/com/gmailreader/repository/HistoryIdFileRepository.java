@@ -0,0 +1,63 @@
+package com.gmailreader.repository;
+
+import com.gmailreader.constants.GmailConstants;
+import com.gmailreader.exception.GmailReaderException;
+import com.gmailreader.repository.io.ArquivoAtomico;
+import com.gmailreader.service.StorageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+/**
+ * Guarda o último {@code historyId} sincronizado. A gravação passa por
+ * {@link ArquivoAtomico}, de modo que uma queda no meio da escrita mantém o valor anterior.
+ */
+@Repository
+public class HistoryIdFileRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(HistoryIdFileRepository.class);
+    private static final String ARQUIVO_HISTORY_ID = GmailConstants.Storage.HISTORY_ID_FILE;
+
+    private final StorageService storageService;
+
+    public HistoryIdFileRepository(StorageService storageService) {
+        this.storageService = storageService;
+    }
+
+    public synchronized Optional<BigInteger> obterUltimoHistoryId() {
+        Path arquivo = caminhoArquivo();
+        if (!Files.isRegularFile(arquivo)) {
+            return Optional.empty();
+        }
+
+        try {
+            String conteudo = Files.readString(arquivo, StandardCharsets.UTF_8).trim();
+            return conteudo.isEmpty() ? Optional.empty() : Optional.of(new BigInteger(conteudo));
+        } catch (IOException | NumberFormatException e) {
+            logger.warn("Não foi possível ler o historyId de {}: {}", arquivo, e.getMessage());
+            return Optional.empty();
+        }
+    }
+
+    public synchronized void salvarHistoryId(BigInteger historyId) {
+        Path arquivo = caminhoArquivo();
+
+        try {
+            ArquivoAtomico.gravar(arquivo, historyId.toString());
+            logger.debug("historyId {} salvo em {}", historyId, arquivo);
+        } catch (IOException e) {
+            throw new GmailReaderException("Falha ao salvar historyId: " + historyId, e);
+        }
+    }
+
+    private Path caminhoArquivo() {
+        return Path.of(storageService.obterLocalizacaoArmazenamento(), ARQUIVO_HISTORY_ID).toAbsolutePath();
+    }
+}
@@ -0,0 +1,70 @@
+package com.gmailreader.repository;
+
+import com.gmailreader.constants.GmailConstants;
+import com.gmailreader.repository.io.ArquivoAtomico;
+import com.gmailreader.service.StorageService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Guarda, por caixa de email, o menor {@code historyId} notificado e ainda não sincronizado.
+ * Uma linha {@code emailAddress=historyId} por caixa.
+ */
+@Repository
+public class PendingNotificationFileRepository {
+
+    private static final Logger logger = LoggerFactory.getLogger(PendingNotificationFileRepository.class);
+    private static final String ARQUIVO_PENDENTES = GmailConstants.Storage.PENDING_NOTIFICATIONS_FILE;
+    private static final String SEPARADOR = "=";
+
+    private final StorageService storageService;
+
+    public PendingNotificationFileRepository(StorageService storageService) {
+        this.storageService = storageService;
+    }
+
+    public synchronized Map<String, BigInteger> carregar() {
+        Path arquivo = caminhoArquivo();
+        Map<String, BigInteger> pendentes = new LinkedHashMap<>();
+        if (!Files.isRegularFile(arquivo)) {
+            return pendentes;
+        }
+
+        try {
+            for (String linha : Files.readAllLines(arquivo, StandardCharsets.UTF_8)) {
+                int separador = linha.lastIndexOf(SEPARADOR);
+                if (separador <= 0) {
+                    continue;
+                }
+                try {
+                    pendentes.put(linha.substring(0, separador), new BigInteger(linha.substring(separador + 1).trim()));
+                } catch (NumberFormatException e) {
+                    logger.warn("Linha inválida em {}: {}", arquivo, linha);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Não foi possível ler as notificações pendentes de {}: {}", arquivo, e.getMessage());
+        }
+        return pendentes;
+    }
+
+    public synchronized void salvar(Map<String, BigInteger> pendentes) throws IOException {
+        StringBuilder conteudo = new StringBuilder();
+        pendentes.forEach((emailAddress, historyId) ->
+                conteudo.append(emailAddress).append(SEPARADOR).append(historyId).append('\n'));
+        ArquivoAtomico.gravar(caminhoArquivo(), conteudo.toString());
+    }
+
+    private Path caminhoArquivo() {
+        return Path.of(storageService.obterLocalizacaoArmazenamento(), ARQUIVO_PENDENTES).toAbsolutePath();
+    }
+}
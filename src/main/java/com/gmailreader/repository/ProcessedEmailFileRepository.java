@@ -1,24 +1,28 @@
 package com.gmailreader.repository;
 
+import com.gmailreader.constants.GmailConstants;
 import com.gmailreader.repository.cache.EmailCache;
 import com.gmailreader.repository.io.EmailFileReader;
 import com.gmailreader.repository.io.EmailFileWriter;
 import com.gmailreader.repository.parser.JsonEmailParser;
+import com.gmailreader.repository.parser.ResultadoCargaIndice;
 import com.gmailreader.service.StorageService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Repository;
 
 import jakarta.annotation.PostConstruct;
 import java.io.File;
 import java.util.List;
-import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 
 @Repository
 public class ProcessedEmailFileRepository {
 
     private static final Logger logger = LoggerFactory.getLogger(ProcessedEmailFileRepository.class);
-    private static final String ARQUIVO_PROCESSADOS = "emails_processados.json";
+    private static final String ARQUIVO_PROCESSADOS = GmailConstants.Storage.PROCESSED_IDS_FILE;
+    private static final long BYTES_POR_MB = 1024L * 1024L;
 
     private final StorageService storageService;
     private final EmailCache emailCache;
@@ -26,6 +30,18 @@ public class ProcessedEmailFileRepository {
     private final EmailFileWriter fileWriter;
     private final JsonEmailParser jsonParser;
 
+    @Value("${gmail.indice.incluir-arquivos-diarios:false}")
+    private boolean incluirArquivosDiarios;
+
+    @Value("${gmail.indice.paralelismo:1}")
+    private int paralelismoCarga;
+
+    @Value("${gmail.indice.tamanho-segmento-mb:32}")
+    private int tamanhoSegmentoMb;
+
+    @Value("${gmail.indice.escrita.assincrona:false}")
+    private boolean escritaAssincrona;
+
     public ProcessedEmailFileRepository(
             StorageService storageService,
             EmailCache emailCache,
@@ -54,10 +70,34 @@ public class ProcessedEmailFileRepository {
         
         if (emailCache.adicionar(emailId)) {
             String caminhoPasta = storageService.obterLocalizacaoArmazenamento();
-            fileWriter.salvarEmailId(caminhoPasta, ARQUIVO_PROCESSADOS, emailId);
+            if (escritaAssincrona) {
+                fileWriter.agendarEmailId(caminhoPasta, ARQUIVO_PROCESSADOS, emailId);
+            } else {
+                fileWriter.salvarEmailId(caminhoPasta, ARQUIVO_PROCESSADOS, emailId);
+            }
         }
     }
 
+    /**
+     * Como {@link #marcarComoProcessado(String)}, mas sem aguardar a gravação do ID: o
+     * futuro conclui quando o ID está em disco e falha se a gravação falhar ou exceder
+     * {@code gmail.indice.escrita.espera-maxima-ms}. Com a escrita assíncrona, ele já
+     * vem concluído.
+     */
+    public CompletableFuture<Void> registrarComoProcessado(String emailId) {
+        garantirIndiceCarregado();
+
+        if (!emailCache.adicionar(emailId)) {
+            return CompletableFuture.completedFuture(null);
+        }
+        String caminhoPasta = storageService.obterLocalizacaoArmazenamento();
+        if (escritaAssincrona) {
+            fileWriter.agendarEmailId(caminhoPasta, ARQUIVO_PROCESSADOS, emailId);
+            return CompletableFuture.completedFuture(null);
+        }
+        return fileWriter.agendarEmailIdComPrazo(caminhoPasta, ARQUIVO_PROCESSADOS, emailId);
+    }
+
     private void garantirIndiceCarregado() {
         if (!emailCache.estaCarregado()) {
             carregarIndiceEmMemoria();
@@ -70,12 +110,25 @@ public class ProcessedEmailFileRepository {
         }
 
         String caminhoPasta = storageService.obterLocalizacaoArmazenamento();
-        List<File> arquivos = fileReader.listarArquivosJson(caminhoPasta);
+        List<File> arquivos = selecionarArquivosDoIndice(caminhoPasta);
         
-        Set<String> todosIds = jsonParser.extrairIdsDeArquivos(arquivos, fileReader::lerLinhasDoArquivo);
+        ResultadoCargaIndice resultado = paralelismoCarga > 1
+                ? jsonParser.extrairIdsEmParalelo(arquivos, fileReader::percorrerLinhas,
+                        paralelismoCarga, tamanhoSegmentoMb * BYTES_POR_MB)
+                : jsonParser.extrairIdsEmStreaming(arquivos, fileReader::percorrerLinhas);
         
-        emailCache.carregar(todosIds);
+        emailCache.carregar(resultado.getIds());
         
-        logger.info("Repositório inicializado com {} emails processados", emailCache.tamanho());
+        logger.info("Repositório inicializado com {} emails processados ({} arquivo(s), {} bytes lidos em {} ms)",
+                emailCache.tamanho(), resultado.getArquivosLidos(), resultado.getBytesLidos(), resultado.getDuracaoMs());
+    }
+
+    private List<File> selecionarArquivosDoIndice(String caminhoPasta) {
+        if (incluirArquivosDiarios) {
+            return fileReader.listarArquivosJson(caminhoPasta);
+        }
+
+        File arquivoProcessados = new File(caminhoPasta, ARQUIVO_PROCESSADOS);
+        return arquivoProcessados.isFile() ? List.of(arquivoProcessados) : List.of();
     }
 }
@@ -0,0 +1,127 @@
+package com.gmailreader.repository.cache;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+public class BloomFilterEmailCache implements EmailCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(BloomFilterEmailCache.class);
+    private static final String METRICA_CONSULTAS = "gmail.cache.filtro.consultas";
+
+    private final EmailCache delegate;
+    private final FiltroBloom filtro;
+    private final long quantidadeEsperada;
+    private final AtomicLong idsNoFiltro = new AtomicLong();
+    private final Counter descartados;
+    private final Counter confirmados;
+    private final Counter falsosPositivos;
+    private volatile boolean filtroPronto = false;
+
+    public BloomFilterEmailCache(EmailCache delegate, long quantidadeEsperada, double taxaFalsosPositivos,
+                                 MeterRegistry meterRegistry) {
+        this.delegate = delegate;
+        this.filtro = new FiltroBloom(quantidadeEsperada, taxaFalsosPositivos);
+        this.quantidadeEsperada = quantidadeEsperada;
+        this.descartados = Counter.builder(METRICA_CONSULTAS).tag("resultado", "novo")
+                .description("Consultas respondidas pelo filtro como email novo").register(meterRegistry);
+        this.confirmados = Counter.builder(METRICA_CONSULTAS).tag("resultado", "processado")
+                .description("Consultas repassadas ao cache e confirmadas como processadas").register(meterRegistry);
+        this.falsosPositivos = Counter.builder(METRICA_CONSULTAS).tag("resultado", "falso_positivo")
+                .description("Consultas repassadas ao cache que não estavam processadas").register(meterRegistry);
+
+        logger.info("Filtro de Bloom configurado para {} IDs com taxa de falsos positivos {} ({} bits, {} hashes)",
+                quantidadeEsperada, taxaFalsosPositivos, filtro.getQuantidadeBits(), filtro.getQuantidadeHashes());
+    }
+
+    @Override
+    public boolean contem(String emailId) {
+        if (!garantirFiltroPronto()) {
+            return delegate.contem(emailId);
+        }
+
+        if (!filtro.talvezContenha(emailId)) {
+            descartados.increment();
+            return false;
+        }
+
+        boolean contem = delegate.contem(emailId);
+        if (contem) {
+            confirmados.increment();
+        } else {
+            falsosPositivos.increment();
+        }
+        return contem;
+    }
+
+    @Override
+    public boolean adicionar(String emailId) {
+        registrarNoFiltro(emailId);
+        return delegate.adicionar(emailId);
+    }
+
+    @Override
+    public void carregar(Set<String> emailIds) {
+        delegate.carregar(emailIds);
+        garantirFiltroPronto();
+    }
+
+    @Override
+    public int tamanho() {
+        return delegate.tamanho();
+    }
+
+    @Override
+    public synchronized void limpar() {
+        delegate.limpar();
+        filtroPronto = false;
+        filtro.limpar();
+        idsNoFiltro.set(0);
+    }
+
+    @Override
+    public boolean estaCarregado() {
+        return delegate.estaCarregado();
+    }
+
+    @Override
+    public void paraCadaId(Consumer<String> acao) {
+        delegate.paraCadaId(acao);
+    }
+
+    public double obterTaxaDescarte() {
+        double total = descartados.count() + confirmados.count() + falsosPositivos.count();
+        return total == 0 ? 0 : descartados.count() / total;
+    }
+
+    private boolean garantirFiltroPronto() {
+        if (filtroPronto) {
+            return true;
+        }
+        if (!delegate.estaCarregado()) {
+            return false;
+        }
+
+        synchronized (this) {
+            if (!filtroPronto && delegate.estaCarregado()) {
+                delegate.paraCadaId(this::registrarNoFiltro);
+                filtroPronto = true;
+                logger.info("Filtro de Bloom populado com {} IDs processados", idsNoFiltro.get());
+            }
+        }
+        return filtroPronto;
+    }
+
+    private void registrarNoFiltro(String emailId) {
+        filtro.adicionar(emailId);
+        if (idsNoFiltro.incrementAndGet() == quantidadeEsperada + 1) {
+            logger.warn("Filtro de Bloom excedeu a quantidade esperada de {} IDs; a taxa de falsos positivos vai aumentar",
+                    quantidadeEsperada);
+        }
+    }
+}
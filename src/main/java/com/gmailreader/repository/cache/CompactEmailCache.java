@@ -0,0 +1,253 @@
+package com.gmailreader.repository.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+/**
+ * Cache de IDs processados em tabelas de {@code long} com endereçamento aberto.
+ * IDs do Gmail (16 dígitos hexadecimais) ocupam entre ~11 e ~21 bytes por entrada
+ * (8 bytes por slot, fator de carga entre 0,375 e 0,75), contra 100+ bytes no
+ * {@link InMemoryEmailCache}. IDs fora desse formato vão para um conjunto de Strings.
+ */
+@Component
+@ConditionalOnProperty(name = "gmail.cache.tipo", havingValue = "compacto")
+public class CompactEmailCache implements EmailCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(CompactEmailCache.class);
+    private static final int BITS_SEGMENTOS = 6;
+    private static final int CAPACIDADE_INICIAL_SEGMENTO = 1024;
+
+    private final Segmento[] segmentos;
+    private final Set<String> idsNaoHexadecimais;
+    private volatile boolean contemZero = false;
+    private volatile boolean carregado = false;
+
+    public CompactEmailCache() {
+        this.segmentos = new Segmento[1 << BITS_SEGMENTOS];
+        for (int i = 0; i < segmentos.length; i++) {
+            segmentos[i] = new Segmento();
+        }
+        this.idsNaoHexadecimais = ConcurrentHashMap.newKeySet();
+    }
+
+    @Override
+    public boolean contem(String emailId) {
+        if (!IdsHexadecimais.ehIdHexadecimal(emailId)) {
+            return idsNaoHexadecimais.contains(emailId);
+        }
+
+        long chave = IdsHexadecimais.paraLong(emailId);
+        if (chave == 0) {
+            return contemZero;
+        }
+        long hash = IdsHexadecimais.misturar(chave);
+        return segmentoDe(hash).contem(chave, hash);
+    }
+
+    @Override
+    public boolean adicionar(String emailId) {
+        boolean adicionado;
+
+        if (!IdsHexadecimais.ehIdHexadecimal(emailId)) {
+            adicionado = idsNaoHexadecimais.add(emailId);
+        } else {
+            long chave = IdsHexadecimais.paraLong(emailId);
+            if (chave == 0) {
+                adicionado = adicionarZero();
+            } else {
+                long hash = IdsHexadecimais.misturar(chave);
+                adicionado = segmentoDe(hash).adicionar(chave, hash);
+            }
+        }
+
+        if (adicionado) {
+            logger.debug("Email ID adicionado ao cache: {}", emailId);
+        }
+        return adicionado;
+    }
+
+    @Override
+    public synchronized void carregar(Set<String> emailIds) {
+        if (carregado) {
+            logger.warn("Cache já foi carregado. Ignorando nova carga.");
+            return;
+        }
+
+        limparEstrutura();
+        for (String emailId : emailIds) {
+            adicionar(emailId);
+        }
+        carregado = true;
+
+        logger.info("Cache compacto carregado com {} emails processados ({} fora do formato hexadecimal)",
+                emailIds.size(), idsNaoHexadecimais.size());
+    }
+
+    @Override
+    public int tamanho() {
+        long total = idsNaoHexadecimais.size() + (contemZero ? 1 : 0);
+        for (Segmento segmento : segmentos) {
+            total += segmento.tamanho();
+        }
+        return (int) Math.min(total, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void limpar() {
+        limparEstrutura();
+        carregado = false;
+        logger.info("Cache limpo");
+    }
+
+    @Override
+    public boolean estaCarregado() {
+        return carregado;
+    }
+
+    @Override
+    public void paraCadaId(Consumer<String> acao) {
+        if (contemZero) {
+            acao.accept(IdsHexadecimais.paraHex(0));
+        }
+        for (Segmento segmento : segmentos) {
+            segmento.paraCadaChave(acao);
+        }
+        idsNaoHexadecimais.forEach(acao);
+    }
+
+    private synchronized boolean adicionarZero() {
+        if (contemZero) {
+            return false;
+        }
+        contemZero = true;
+        return true;
+    }
+
+    private void limparEstrutura() {
+        for (Segmento segmento : segmentos) {
+            segmento.limpar();
+        }
+        idsNaoHexadecimais.clear();
+        contemZero = false;
+    }
+
+    private Segmento segmentoDe(long hash) {
+        return segmentos[(int) (hash >>> (Long.SIZE - BITS_SEGMENTOS))];
+    }
+
+    private static final class Segmento {
+
+        private final StampedLock lock = new StampedLock();
+        private long[] tabela = new long[CAPACIDADE_INICIAL_SEGMENTO];
+        private int tamanho;
+
+        boolean contem(long chave, long hash) {
+            long stamp = lock.tryOptimisticRead();
+            boolean encontrado = procurar(tabela, chave, hash);
+            if (lock.validate(stamp)) {
+                return encontrado;
+            }
+
+            stamp = lock.readLock();
+            try {
+                return procurar(tabela, chave, hash);
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        boolean adicionar(long chave, long hash) {
+            long stamp = lock.writeLock();
+            try {
+                if ((tamanho + 1) * 4L > tabela.length * 3L) {
+                    redimensionar();
+                }
+
+                long[] atual = tabela;
+                int mascara = atual.length - 1;
+                int indice = (int) hash & mascara;
+                while (atual[indice] != 0) {
+                    if (atual[indice] == chave) {
+                        return false;
+                    }
+                    indice = (indice + 1) & mascara;
+                }
+                atual[indice] = chave;
+                tamanho++;
+                return true;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        int tamanho() {
+            long stamp = lock.readLock();
+            try {
+                return tamanho;
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        void paraCadaChave(Consumer<String> acao) {
+            long stamp = lock.readLock();
+            try {
+                for (long chave : tabela) {
+                    if (chave != 0) {
+                        acao.accept(IdsHexadecimais.paraHex(chave));
+                    }
+                }
+            } finally {
+                lock.unlockRead(stamp);
+            }
+        }
+
+        void limpar() {
+            long stamp = lock.writeLock();
+            try {
+                tabela = new long[CAPACIDADE_INICIAL_SEGMENTO];
+                tamanho = 0;
+            } finally {
+                lock.unlockWrite(stamp);
+            }
+        }
+
+        private void redimensionar() {
+            long[] nova = new long[tabela.length * 2];
+            int mascara = nova.length - 1;
+            for (long chave : tabela) {
+                if (chave != 0) {
+                    int indice = (int) IdsHexadecimais.misturar(chave) & mascara;
+                    while (nova[indice] != 0) {
+                        indice = (indice + 1) & mascara;
+                    }
+                    nova[indice] = chave;
+                }
+            }
+            tabela = nova;
+        }
+
+        private static boolean procurar(long[] tabela, long chave, long hash) {
+            int mascara = tabela.length - 1;
+            int indice = (int) hash & mascara;
+            for (int tentativas = 0; tentativas < tabela.length; tentativas++) {
+                long valor = tabela[indice];
+                if (valor == chave) {
+                    return true;
+                }
+                if (valor == 0) {
+                    return false;
+                }
+                indice = (indice + 1) & mascara;
+            }
+            return false;
+        }
+    }
+}
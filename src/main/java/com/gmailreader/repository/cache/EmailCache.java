@@ -1,6 +1,7 @@
 package com.gmailreader.repository.cache;
 
 import java.util.Set;
+import java.util.function.Consumer;
 
 public interface EmailCache {
     
@@ -15,4 +16,6 @@ public interface EmailCache {
     void limpar();
     
     boolean estaCarregado();
+    
+    void paraCadaId(Consumer<String> acao);
 }
@@ -0,0 +1,85 @@
+package com.gmailreader.repository.cache;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+public final class FiltroBloom {
+
+    private static final double LN2 = Math.log(2);
+    private static final long SEMENTE_SEGUNDO_HASH = 0x9E3779B97F4A7C15L;
+
+    private final AtomicLongArray bits;
+    private final long quantidadeBits;
+    private final int quantidadeHashes;
+
+    public FiltroBloom(long quantidadeEsperada, double taxaFalsosPositivos) {
+        if (quantidadeEsperada <= 0) {
+            throw new IllegalArgumentException("Quantidade esperada deve ser positiva");
+        }
+        if (taxaFalsosPositivos <= 0 || taxaFalsosPositivos >= 1) {
+            throw new IllegalArgumentException("Taxa de falsos positivos deve estar entre 0 e 1");
+        }
+
+        long bitsCalculados = (long) Math.ceil(-quantidadeEsperada * Math.log(taxaFalsosPositivos) / (LN2 * LN2));
+        int palavras = (int) Math.min(Integer.MAX_VALUE - 8, Math.max(1, (bitsCalculados + 63) / 64));
+
+        this.bits = new AtomicLongArray(palavras);
+        this.quantidadeBits = (long) palavras * 64;
+        this.quantidadeHashes = Math.max(1, (int) Math.round((double) quantidadeBits / quantidadeEsperada * LN2));
+    }
+
+    public void adicionar(String emailId) {
+        long h1 = hash(emailId);
+        long h2 = IdsHexadecimais.misturar(h1 ^ SEMENTE_SEGUNDO_HASH) | 1;
+
+        for (int i = 0; i < quantidadeHashes; i++) {
+            long indice = Long.remainderUnsigned(h1 + i * h2, quantidadeBits);
+            int palavra = (int) (indice >>> 6);
+            long mascara = 1L << indice;
+
+            long atual = bits.get(palavra);
+            while ((atual & mascara) == 0 && !bits.compareAndSet(palavra, atual, atual | mascara)) {
+                atual = bits.get(palavra);
+            }
+        }
+    }
+
+    public boolean talvezContenha(String emailId) {
+        long h1 = hash(emailId);
+        long h2 = IdsHexadecimais.misturar(h1 ^ SEMENTE_SEGUNDO_HASH) | 1;
+
+        for (int i = 0; i < quantidadeHashes; i++) {
+            long indice = Long.remainderUnsigned(h1 + i * h2, quantidadeBits);
+            if ((bits.get((int) (indice >>> 6)) & (1L << indice)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public void limpar() {
+        for (int i = 0; i < bits.length(); i++) {
+            bits.set(i, 0);
+        }
+    }
+
+    public long getQuantidadeBits() {
+        return quantidadeBits;
+    }
+
+    public int getQuantidadeHashes() {
+        return quantidadeHashes;
+    }
+
+    private static long hash(String emailId) {
+        if (IdsHexadecimais.ehIdHexadecimal(emailId)) {
+            return IdsHexadecimais.misturar(IdsHexadecimais.paraLong(emailId));
+        }
+
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < emailId.length(); i++) {
+            h ^= emailId.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return IdsHexadecimais.misturar(h);
+    }
+}
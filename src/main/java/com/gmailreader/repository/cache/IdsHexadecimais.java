@@ -0,0 +1,47 @@
+package com.gmailreader.repository.cache;
+
+final class IdsHexadecimais {
+
+    private static final int TAMANHO_ID_HEX = 16;
+    private static final char[] DIGITOS = "0123456789abcdef".toCharArray();
+
+    private IdsHexadecimais() {
+        throw new UnsupportedOperationException("Classe utilitária não deve ser instanciada");
+    }
+
+    static boolean ehIdHexadecimal(String emailId) {
+        if (emailId == null || emailId.length() != TAMANHO_ID_HEX) {
+            return false;
+        }
+        for (int i = 0; i < TAMANHO_ID_HEX; i++) {
+            char c = emailId.charAt(i);
+            if ((c < '0' || c > '9') && (c < 'a' || c > 'f')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    static long paraLong(String emailId) {
+        return Long.parseUnsignedLong(emailId, 16);
+    }
+
+    static String paraHex(long chave) {
+        char[] digitos = new char[TAMANHO_ID_HEX];
+        for (int i = TAMANHO_ID_HEX - 1; i >= 0; i--) {
+            digitos[i] = DIGITOS[(int) (chave & 0xF)];
+            chave >>>= 4;
+        }
+        return new String(digitos);
+    }
+
+    static long misturar(long chave) {
+        long h = chave;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
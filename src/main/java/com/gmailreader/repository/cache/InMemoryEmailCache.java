@@ -2,12 +2,15 @@ package com.gmailreader.repository.cache;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 @Component
+@ConditionalOnProperty(name = "gmail.cache.tipo", havingValue = "memoria", matchIfMissing = true)
 public class InMemoryEmailCache implements EmailCache {
     
     private static final Logger logger = LoggerFactory.getLogger(InMemoryEmailCache.class);
@@ -63,4 +66,9 @@ public class InMemoryEmailCache implements EmailCache {
     public boolean estaCarregado() {
         return carregado;
     }
+    
+    @Override
+    public void paraCadaId(Consumer<String> acao) {
+        indiceEmMemoria.forEach(acao);
+    }
 }
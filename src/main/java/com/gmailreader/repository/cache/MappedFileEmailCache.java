@@ -0,0 +1,455 @@
+package com.gmailreader.repository.cache;
+
+import com.gmailreader.constants.GmailConstants;
+import com.gmailreader.exception.GmailReaderException;
+import com.gmailreader.service.StorageService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+
+/**
+ * Cache de IDs processados mantido em um arquivo mapeado em memória ({@code emails_processados.idx}),
+ * ao lado de {@code emails_processados.json}. O arquivo é uma tabela de {@code long} com endereçamento
+ * aberto precedida de um cabeçalho versionado; ao reiniciar basta mapeá-lo, sem parsing nem uso de heap.
+ * O crescimento grava uma tabela nova em arquivo temporário e a publica com um move atômico. Só um
+ * índice fechado corretamente e em dia com o JSON é reaproveitado; os demais são reconstruídos.
+ */
+@Component
+@ConditionalOnProperty(name = "gmail.cache.tipo", havingValue = "mapeado")
+public class MappedFileEmailCache implements EmailCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(MappedFileEmailCache.class);
+
+    private static final int MAGICO = 0x474D4958;
+    private static final int VERSAO = 1;
+    private static final int TAMANHO_CABECALHO = 64;
+    private static final int POS_MAGICO = 0;
+    private static final int POS_VERSAO = 4;
+    private static final int POS_CAPACIDADE = 8;
+    private static final int POS_TAMANHO = 16;
+    private static final int POS_TAMANHO_JSON = 24;
+    private static final int POS_ESTADO = 32;
+    private static final int POS_NAO_HEXADECIMAIS = 36;
+    private static final int POS_CONTEM_ZERO = 40;
+
+    private static final int ESTADO_ABERTO = 0;
+    private static final int ESTADO_FECHADO = 1;
+    private static final int ESTADO_INVALIDO = 2;
+
+    private static final long CAPACIDADE_INICIAL = 1L << 16;
+    private static final long CAPACIDADE_MAXIMA = 1L << 27;
+    private static final String SUFIXO_TEMPORARIO = ".tmp";
+
+    private final StorageService storageService;
+    private final StampedLock lock = new StampedLock();
+    private final Set<String> idsNaoHexadecimais = ConcurrentHashMap.newKeySet();
+
+    private Path arquivoIndice;
+    private Path arquivoJson;
+    private volatile MappedByteBuffer mapa;
+    private long capacidade;
+    private long tamanho;
+    private volatile boolean carregado = false;
+
+    public MappedFileEmailCache(StorageService storageService) {
+        this.storageService = storageService;
+    }
+
+    @PostConstruct
+    public void abrir() {
+        Path pasta = Paths.get(storageService.obterLocalizacaoArmazenamento());
+        arquivoIndice = pasta.resolve(GmailConstants.Storage.PROCESSED_INDEX_FILE);
+        arquivoJson = pasta.resolve(GmailConstants.Storage.PROCESSED_IDS_FILE);
+
+        long stamp = lock.writeLock();
+        try {
+            Files.deleteIfExists(arquivoTemporario());
+
+            if (Files.exists(arquivoIndice) && mapearExistente()) {
+                mapa.putInt(POS_ESTADO, ESTADO_ABERTO);
+                mapa.force();
+                carregado = true;
+                logger.info("Índice mapeado aberto com {} emails processados: {}", tamanho, arquivoIndice);
+            } else {
+                logger.info("Índice mapeado ausente ou inválido em {}. Será reconstruído a partir do JSON.", arquivoIndice);
+            }
+        } catch (IOException e) {
+            logger.warn("Erro ao abrir índice mapeado {}: {}. Será reconstruído a partir do JSON.",
+                    arquivoIndice, e.getMessage());
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @PreDestroy
+    public void fechar() {
+        long stamp = lock.writeLock();
+        try {
+            if (mapa != null && carregado) {
+                mapa.putLong(POS_TAMANHO_JSON, tamanhoArquivoJson());
+                mapa.putInt(POS_ESTADO, ESTADO_FECHADO);
+                mapa.force();
+                logger.info("Índice mapeado fechado com {} emails processados", tamanho);
+            }
+        } catch (IOException e) {
+            logger.warn("Erro ao fechar índice mapeado {}: {}", arquivoIndice, e.getMessage());
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public boolean contem(String emailId) {
+        if (!IdsHexadecimais.ehIdHexadecimal(emailId)) {
+            return idsNaoHexadecimais.contains(emailId);
+        }
+
+        long chave = IdsHexadecimais.paraLong(emailId);
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                // a capacidade vem do próprio buffer lido: os campos podem mudar durante a leitura otimista
+                MappedByteBuffer tabela = mapa;
+                boolean encontrado = tabela != null && procurar(tabela, capacidadeDe(tabela), chave);
+                if (lock.validate(stamp)) {
+                    return encontrado;
+                }
+            } catch (RuntimeException e) {
+                // leitura inconsistente com uma troca de tabela; repetida abaixo sob o lock de leitura
+            }
+        }
+
+        stamp = lock.readLock();
+        try {
+            return procurar(mapa, capacidade, chave);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public boolean adicionar(String emailId) {
+        boolean hexadecimal = IdsHexadecimais.ehIdHexadecimal(emailId);
+        if (!hexadecimal && !idsNaoHexadecimais.add(emailId)) {
+            return false;
+        }
+
+        long stamp = lock.writeLock();
+        try {
+            garantirTabela();
+
+            boolean adicionado;
+            if (hexadecimal) {
+                adicionado = inserirComCrescimento(IdsHexadecimais.paraLong(emailId));
+            } else {
+                mapa.putInt(POS_NAO_HEXADECIMAIS, mapa.getInt(POS_NAO_HEXADECIMAIS) + 1);
+                adicionado = true;
+            }
+
+            if (adicionado) {
+                logger.debug("Email ID adicionado ao cache: {}", emailId);
+            }
+            return adicionado;
+        } catch (IOException e) {
+            throw new GmailReaderException("Falha ao gravar no índice mapeado: " + arquivoIndice, e);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public void carregar(Set<String> emailIds) {
+        long stamp = lock.writeLock();
+        try {
+            if (carregado) {
+                logger.warn("Cache já foi carregado. Ignorando nova carga.");
+                return;
+            }
+
+            long novaCapacidade = capacidadePara(emailIds.size());
+            MappedByteBuffer novo = criarTabela(novaCapacidade, ESTADO_ABERTO);
+            idsNaoHexadecimais.clear();
+
+            long inseridos = 0;
+            for (String emailId : emailIds) {
+                if (IdsHexadecimais.ehIdHexadecimal(emailId)) {
+                    if (inserir(novo, novaCapacidade, IdsHexadecimais.paraLong(emailId))) {
+                        inseridos++;
+                    }
+                } else if (idsNaoHexadecimais.add(emailId)) {
+                    novo.putInt(POS_NAO_HEXADECIMAIS, novo.getInt(POS_NAO_HEXADECIMAIS) + 1);
+                }
+            }
+            novo.putLong(POS_TAMANHO, inseridos);
+
+            publicar(novo, novaCapacidade);
+            tamanho = inseridos;
+            carregado = true;
+
+            logger.info("Índice mapeado reconstruído com {} emails processados ({} fora do formato hexadecimal)",
+                    emailIds.size(), idsNaoHexadecimais.size());
+        } catch (IOException e) {
+            throw new GmailReaderException("Falha ao reconstruir índice mapeado: " + arquivoIndice, e);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public int tamanho() {
+        long stamp = lock.readLock();
+        try {
+            return (int) Math.min(tamanho + idsNaoHexadecimais.size(), Integer.MAX_VALUE);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    @Override
+    public void limpar() {
+        long stamp = lock.writeLock();
+        try {
+            publicar(criarTabela(CAPACIDADE_INICIAL, ESTADO_INVALIDO), CAPACIDADE_INICIAL);
+            tamanho = 0;
+            idsNaoHexadecimais.clear();
+            carregado = false;
+            logger.info("Cache limpo");
+        } catch (IOException e) {
+            throw new GmailReaderException("Falha ao limpar índice mapeado: " + arquivoIndice, e);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    @Override
+    public boolean estaCarregado() {
+        return carregado;
+    }
+
+    @Override
+    public void paraCadaId(Consumer<String> acao) {
+        long stamp = lock.readLock();
+        try {
+            if (mapa != null) {
+                if (mapa.getInt(POS_CONTEM_ZERO) != 0) {
+                    acao.accept(IdsHexadecimais.paraHex(0));
+                }
+                for (long i = 0; i < capacidade; i++) {
+                    long chave = mapa.getLong(posicaoSlot(i));
+                    if (chave != 0) {
+                        acao.accept(IdsHexadecimais.paraHex(chave));
+                    }
+                }
+            }
+            idsNaoHexadecimais.forEach(acao);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    private boolean mapearExistente() throws IOException {
+        long tamanhoArquivo = Files.size(arquivoIndice);
+        if (tamanhoArquivo < TAMANHO_CABECALHO) {
+            logger.warn("Índice mapeado truncado: {} bytes", tamanhoArquivo);
+            return false;
+        }
+
+        MappedByteBuffer candidato = mapear(arquivoIndice, tamanhoArquivo);
+        long capacidadeArquivo = candidato.getLong(POS_CAPACIDADE);
+        int estado = candidato.getInt(POS_ESTADO);
+
+        if (candidato.getInt(POS_MAGICO) != MAGICO || candidato.getInt(POS_VERSAO) != VERSAO) {
+            logger.warn("Índice mapeado com assinatura ou versão incompatível");
+            return false;
+        }
+        if (Long.bitCount(capacidadeArquivo) != 1 || capacidadeArquivo > CAPACIDADE_MAXIMA
+                || tamanhoArquivo != TAMANHO_CABECALHO + capacidadeArquivo * Long.BYTES) {
+            logger.warn("Índice mapeado com capacidade inconsistente: {}", capacidadeArquivo);
+            return false;
+        }
+        if (estado == ESTADO_INVALIDO || candidato.getInt(POS_NAO_HEXADECIMAIS) != 0) {
+            logger.warn("Índice mapeado incompleto ou com IDs fora do formato hexadecimal");
+            return false;
+        }
+
+        if (estado != ESTADO_FECHADO) {
+            // o ID entra no índice antes da linha no JSON: após uma queda, o índice pode ter IDs nunca gravados
+            logger.warn("Índice mapeado não foi fechado corretamente");
+            return false;
+        }
+        if (candidato.getLong(POS_TAMANHO_JSON) != tamanhoArquivoJson()) {
+            logger.warn("Índice mapeado desatualizado em relação a {}", arquivoJson.getFileName());
+            return false;
+        }
+
+        mapa = candidato;
+        capacidade = capacidadeArquivo;
+        tamanho = candidato.getLong(POS_TAMANHO);
+        return true;
+    }
+
+    private void garantirTabela() throws IOException {
+        if (mapa == null) {
+            publicar(criarTabela(CAPACIDADE_INICIAL, ESTADO_INVALIDO), CAPACIDADE_INICIAL);
+            tamanho = 0;
+        }
+    }
+
+    private boolean inserirComCrescimento(long chave) throws IOException {
+        if (procurar(mapa, capacidade, chave)) {
+            return false;
+        }
+        if ((tamanho + 1) * 4 > capacidade * 3) {
+            crescer();
+        }
+
+        inserir(mapa, capacidade, chave);
+        tamanho++;
+        mapa.putLong(POS_TAMANHO, tamanho);
+        return true;
+    }
+
+    private void crescer() throws IOException {
+        long novaCapacidade = capacidade * 2;
+        if (novaCapacidade > CAPACIDADE_MAXIMA) {
+            throw new GmailReaderException("Índice mapeado atingiu a capacidade máxima de " + CAPACIDADE_MAXIMA + " entradas");
+        }
+
+        MappedByteBuffer novo = criarTabela(novaCapacidade, mapa.getInt(POS_ESTADO));
+        for (long i = 0; i < capacidade; i++) {
+            long chave = mapa.getLong(posicaoSlot(i));
+            if (chave != 0) {
+                inserir(novo, novaCapacidade, chave);
+            }
+        }
+        novo.putLong(POS_TAMANHO, mapa.getLong(POS_TAMANHO));
+        novo.putInt(POS_NAO_HEXADECIMAIS, mapa.getInt(POS_NAO_HEXADECIMAIS));
+        novo.putInt(POS_CONTEM_ZERO, mapa.getInt(POS_CONTEM_ZERO));
+
+        publicar(novo, novaCapacidade);
+        logger.info("Índice mapeado expandido para {} entradas", novaCapacidade);
+    }
+
+    private MappedByteBuffer criarTabela(long novaCapacidade, int estado) throws IOException {
+        Path temporario = arquivoTemporario();
+        Files.createDirectories(arquivoIndice.toAbsolutePath().getParent());
+        Files.deleteIfExists(temporario);
+
+        long tamanhoArquivo = TAMANHO_CABECALHO + novaCapacidade * Long.BYTES;
+        try (FileChannel canal = FileChannel.open(temporario,
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer novo = canal.map(FileChannel.MapMode.READ_WRITE, 0, tamanhoArquivo);
+            novo.putInt(POS_MAGICO, MAGICO);
+            novo.putInt(POS_VERSAO, VERSAO);
+            novo.putLong(POS_CAPACIDADE, novaCapacidade);
+            novo.putInt(POS_ESTADO, estado);
+            return novo;
+        }
+    }
+
+    private void publicar(MappedByteBuffer novo, long novaCapacidade) throws IOException {
+        novo.force();
+        Files.move(arquivoTemporario(), arquivoIndice,
+                StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        mapa = novo;
+        capacidade = novaCapacidade;
+    }
+
+    private static boolean inserir(MappedByteBuffer tabela, long capacidadeTabela, long chave) {
+        if (chave == 0) {
+            if (tabela.getInt(POS_CONTEM_ZERO) != 0) {
+                return false;
+            }
+            tabela.putInt(POS_CONTEM_ZERO, 1);
+            return true;
+        }
+
+        long mascara = capacidadeTabela - 1;
+        long indice = IdsHexadecimais.misturar(chave) & mascara;
+        while (true) {
+            int posicao = posicaoSlot(indice);
+            long valor = tabela.getLong(posicao);
+            if (valor == chave) {
+                return false;
+            }
+            if (valor == 0) {
+                tabela.putLong(posicao, chave);
+                return true;
+            }
+            indice = (indice + 1) & mascara;
+        }
+    }
+
+    private static boolean procurar(MappedByteBuffer tabela, long capacidadeTabela, long chave) {
+        if (tabela == null) {
+            return false;
+        }
+        if (chave == 0) {
+            return tabela.getInt(POS_CONTEM_ZERO) != 0;
+        }
+
+        long mascara = capacidadeTabela - 1;
+        long indice = IdsHexadecimais.misturar(chave) & mascara;
+        for (long tentativas = 0; tentativas < capacidadeTabela; tentativas++) {
+            long valor = tabela.getLong(posicaoSlot(indice));
+            if (valor == chave) {
+                return true;
+            }
+            if (valor == 0) {
+                return false;
+            }
+            indice = (indice + 1) & mascara;
+        }
+        return false;
+    }
+
+    private static long capacidadePara(long quantidade) {
+        if (quantidade * 4 > CAPACIDADE_MAXIMA * 3) {
+            throw new GmailReaderException("Índice mapeado não comporta " + quantidade + " entradas");
+        }
+
+        long novaCapacidade = CAPACIDADE_INICIAL;
+        while (quantidade * 2 > novaCapacidade && novaCapacidade < CAPACIDADE_MAXIMA) {
+            novaCapacidade <<= 1;
+        }
+        return novaCapacidade;
+    }
+
+    private static long capacidadeDe(MappedByteBuffer tabela) {
+        return (tabela.capacity() - TAMANHO_CABECALHO) / Long.BYTES;
+    }
+
+    private static int posicaoSlot(long indice) {
+        return (int) (TAMANHO_CABECALHO + indice * Long.BYTES);
+    }
+
+    private static MappedByteBuffer mapear(Path arquivo, long tamanhoArquivo) throws IOException {
+        try (FileChannel canal = FileChannel.open(arquivo, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return canal.map(FileChannel.MapMode.READ_WRITE, 0, tamanhoArquivo);
+        }
+    }
+
+    private Path arquivoTemporario() {
+        return arquivoIndice.resolveSibling(arquivoIndice.getFileName() + SUFIXO_TEMPORARIO);
+    }
+
+    private long tamanhoArquivoJson() throws IOException {
+        return Files.exists(arquivoJson) ? Files.size(arquivoJson) : 0;
+    }
+}
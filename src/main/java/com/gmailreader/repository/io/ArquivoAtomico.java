@@ -0,0 +1,38 @@
+package com.gmailreader.repository.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Substitui o conteúdo de um arquivo pequeno de forma durável: grava num temporário ao lado,
+ * força os dados para o disco e só então o move sobre o original com {@code ATOMIC_MOVE}.
+ */
+public final class ArquivoAtomico {
+
+    private static final String SUFIXO_TEMPORARIO = ".tmp";
+
+    private ArquivoAtomico() {
+        throw new UnsupportedOperationException("Classe utilitária não deve ser instanciada");
+    }
+
+    public static void gravar(Path arquivo, String conteudo) throws IOException {
+        Path temporario = arquivo.resolveSibling(arquivo.getFileName() + SUFIXO_TEMPORARIO);
+        Files.createDirectories(arquivo.toAbsolutePath().getParent());
+
+        try (FileChannel canal = FileChannel.open(temporario, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer dados = ByteBuffer.wrap(conteudo.getBytes(StandardCharsets.UTF_8));
+            while (dados.hasRemaining()) {
+                canal.write(dados);
+            }
+            canal.force(true);
+        }
+        Files.move(temporario, arquivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
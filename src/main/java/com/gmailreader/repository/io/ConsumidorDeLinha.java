@@ -0,0 +1,7 @@
+package com.gmailreader.repository.io;
+
+@FunctionalInterface
+public interface ConsumidorDeLinha {
+
+    void aceitar(byte[] dados, int inicio, int fim);
+}
@@ -5,6 +5,10 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
@@ -13,6 +17,7 @@ import java.util.Scanner;
 public class EmailFileReader {
     
     private static final Logger logger = LoggerFactory.getLogger(EmailFileReader.class);
+    private static final int TAMANHO_BUFFER = 64 * 1024;
     
     public List<String> lerLinhasDoArquivo(File arquivo) {
         List<String> linhas = new ArrayList<>();
@@ -32,6 +37,87 @@ public class EmailFileReader {
         return linhas;
     }
     
+    public long percorrerLinhas(File arquivo, ConsumidorDeLinha consumidor) {
+        return percorrerLinhas(arquivo, 0, Long.MAX_VALUE, consumidor);
+    }
+
+    public long percorrerLinhas(File arquivo, long inicio, long fim, ConsumidorDeLinha consumidor) {
+        long bytesLidos = 0;
+
+        try (FileChannel canal = FileChannel.open(arquivo.toPath(), StandardOpenOption.READ)) {
+            long posicaoBuffer = Math.max(0, inicio - 1);
+            canal.position(posicaoBuffer);
+
+            boolean descartarPrimeiraLinha = inicio > 0;
+            boolean segmentoConcluido = false;
+            ByteBuffer buffer = ByteBuffer.allocate(TAMANHO_BUFFER);
+            int varridos = 0;
+            int lidos;
+
+            while (!segmentoConcluido && (lidos = canal.read(buffer)) != -1) {
+                bytesLidos += lidos;
+                byte[] dados = buffer.array();
+                int limite = buffer.position();
+                int inicioLinha = 0;
+
+                for (int i = varridos; i < limite; i++) {
+                    if (dados[i] == '\n') {
+                        if (descartarPrimeiraLinha) {
+                            descartarPrimeiraLinha = false;
+                        } else {
+                            emitirLinha(dados, inicioLinha, i, consumidor);
+                        }
+                        inicioLinha = i + 1;
+
+                        if (posicaoBuffer + inicioLinha >= fim) {
+                            segmentoConcluido = true;
+                            break;
+                        }
+                    }
+                }
+
+                if (segmentoConcluido) {
+                    break;
+                }
+
+                int restante = limite - inicioLinha;
+                if (restante == dados.length) {
+                    buffer = ByteBuffer.allocate(dados.length * 2).put(dados, 0, restante);
+                } else {
+                    System.arraycopy(dados, inicioLinha, dados, 0, restante);
+                    buffer.position(restante);
+                }
+                posicaoBuffer += inicioLinha;
+                varridos = restante;
+            }
+
+            if (!segmentoConcluido && !descartarPrimeiraLinha && buffer.position() > 0) {
+                emitirLinha(buffer.array(), 0, buffer.position(), consumidor);
+            }
+            logger.debug("Lidos {} bytes do arquivo: {}", bytesLidos, arquivo.getName());
+        } catch (IOException e) {
+            logger.error("Erro ao ler arquivo {}: {}", arquivo.getName(), e.getMessage(), e);
+        }
+
+        return bytesLidos;
+    }
+
+    private void emitirLinha(byte[] dados, int inicio, int fim, ConsumidorDeLinha consumidor) {
+        while (inicio < fim && ehEspaco(dados[inicio])) {
+            inicio++;
+        }
+        while (fim > inicio && ehEspaco(dados[fim - 1])) {
+            fim--;
+        }
+        if (inicio < fim) {
+            consumidor.aceitar(dados, inicio, fim);
+        }
+    }
+
+    private boolean ehEspaco(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+    
     public List<File> listarArquivosJson(String caminhoPasta) {
         List<File> arquivos = new ArrayList<>();
         
@@ -1,40 +1,297 @@
 package com.gmailreader.repository.io;
 
+import jakarta.annotation.PreDestroy;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
-import java.io.File;
-import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 
 @Component
 public class EmailFileWriter {
-    
+
     private static final Logger logger = LoggerFactory.getLogger(EmailFileWriter.class);
-    private final Object lockEscrita = new Object();
-    
+    private static final int TAMANHO_LOTE_PADRAO = 512;
+    private static final int TAMANHO_BUFFER = 64 * 1024;
+    private static final long ESPERA_FILA_MS = 100;
+    private static final long ESPERA_ENCERRAMENTO_MS = 10_000;
+
+    public enum PoliticaSincronizacao {
+        NENHUMA,
+        LOTE
+    }
+
+    @Value("${gmail.indice.escrita.tamanho-lote:512}")
+    private int tamanhoLote;
+
+    @Value("${gmail.indice.escrita.intervalo-ms:0}")
+    private long intervaloMs;
+
+    @Value("${gmail.indice.escrita.sincronizacao:NENHUMA}")
+    private PoliticaSincronizacao politicaSincronizacao;
+
+    @Value("${gmail.indice.escrita.espera-maxima-ms:30000}")
+    private long esperaMaximaMs = 30000;
+
+    private final BlockingQueue<RegistroPendente> fila = new LinkedBlockingQueue<>();
+    private final Object lockCiclo = new Object();
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(TAMANHO_BUFFER);
+    private Thread escritor;
+    private volatile boolean encerrado = false;
+    private FileChannel canal;
+    private Path caminhoAberto;
+
     public void salvarEmailId(String caminhoPasta, String nomeArquivo, String emailId) {
-        synchronized (lockEscrita) {
+        try {
+            agendarEmailId(caminhoPasta, nomeArquivo, emailId).get(esperaMaximaMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Interrompido ao salvar email ID {}", emailId);
+        } catch (ExecutionException e) {
+            logger.error("Erro ao salvar email ID {}: {}", emailId, e.getCause().getMessage(), e.getCause());
+        } catch (TimeoutException e) {
+            logger.error("Email ID {} não foi gravado em {} ms", emailId, esperaMaximaMs);
+        }
+    }
+
+    public CompletableFuture<Void> agendarEmailId(String caminhoPasta, String nomeArquivo, String emailId) {
+        RegistroPendente registro = new RegistroPendente(Paths.get(caminhoPasta, nomeArquivo), emailId);
+
+        synchronized (lockCiclo) {
+            if (encerrado) {
+                registro.futuro.completeExceptionally(new IllegalStateException("Escritor de IDs já foi encerrado"));
+                return registro.futuro;
+            }
+            garantirEscritorIniciado();
+            fila.add(registro);
+        }
+
+        return registro.futuro;
+    }
+
+    /**
+     * Como {@link #agendarEmailId(String, String, String)}, mas o futuro devolvido falha
+     * com {@link TimeoutException} se o ID não for gravado em {@code esperaMaximaMs}.
+     */
+    public CompletableFuture<Void> agendarEmailIdComPrazo(String caminhoPasta, String nomeArquivo, String emailId) {
+        return agendarEmailId(caminhoPasta, nomeArquivo, emailId).copy()
+                .orTimeout(esperaMaximaMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        Thread thread;
+        synchronized (lockCiclo) {
+            encerrado = true;
+            thread = escritor;
+        }
+
+        if (thread != null) {
             try {
-                File pasta = new File(caminhoPasta);
-                if (!pasta.exists()) {
-                    pasta.mkdirs();
-                    logger.debug("Pasta criada: {}", caminhoPasta);
+                thread.join(ESPERA_ENCERRAMENTO_MS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        falharPendentes(fila, new IllegalStateException("Escritor de IDs encerrado antes da gravação"));
+        fecharCanal();
+        logger.info("Escritor de IDs processados encerrado");
+    }
+
+    private void garantirEscritorIniciado() {
+        if (escritor == null) {
+            escritor = new Thread(this::executarCiclo, "gmail-indice-escritor");
+            escritor.setDaemon(true);
+            escritor.start();
+        }
+    }
+
+    /**
+     * Laço da thread escritora. Se ela terminar por interrupção ou erro inesperado, o lote
+     * em andamento falha e uma nova thread assume a fila, para que nenhum chamador fique
+     * esperando um futuro que nunca será concluído.
+     */
+    private void executarCiclo() {
+        List<RegistroPendente> lote = new ArrayList<>();
+        Throwable erro = null;
+
+        try {
+            while (true) {
+                RegistroPendente primeiro = fila.poll(ESPERA_FILA_MS, TimeUnit.MILLISECONDS);
+                if (primeiro == null) {
+                    if (encerrado && fila.isEmpty()) {
+                        return;
+                    }
+                    continue;
                 }
-                
-                File arquivo = new File(pasta, nomeArquivo);
-                
-                try (FileWriter writer = new FileWriter(arquivo, true)) {
-                    JSONObject json = new JSONObject();
-                    json.put("id", emailId);
-                    writer.write(json.toString() + "\n");
-                    
-                    logger.debug("Email ID salvo no arquivo {}: {}", nomeArquivo, emailId);
+
+                lote.add(primeiro);
+                coletarLote(lote);
+                gravarLote(lote);
+                lote.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            erro = e;
+        } catch (Throwable e) {
+            logger.error("Erro inesperado no escritor de IDs: {}", e.getMessage(), e);
+            erro = e;
+        } finally {
+            if (erro != null) {
+                falharPendentes(lote, erro);
+            }
+            synchronized (lockCiclo) {
+                escritor = null;
+                if (!encerrado && !fila.isEmpty()) {
+                    garantirEscritorIniciado();
                 }
-            } catch (Exception e) {
-                logger.error("Erro ao salvar email ID {}: {}", emailId, e.getMessage(), e);
             }
         }
     }
+
+    private static void falharPendentes(Collection<RegistroPendente> registros, Throwable erro) {
+        List<RegistroPendente> pendentes = new ArrayList<>(registros);
+        registros.removeAll(pendentes);
+        pendentes.forEach(registro -> registro.futuro.completeExceptionally(erro));
+    }
+
+    private void coletarLote(List<RegistroPendente> lote) throws InterruptedException {
+        int limite = tamanhoLote > 0 ? tamanhoLote : TAMANHO_LOTE_PADRAO;
+        fila.drainTo(lote, limite - lote.size());
+
+        if (intervaloMs <= 0) {
+            return;
+        }
+
+        long prazo = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(intervaloMs);
+        while (lote.size() < limite) {
+            long restante = prazo - System.nanoTime();
+            RegistroPendente registro = restante > 0 ? fila.poll(restante, TimeUnit.NANOSECONDS) : null;
+            if (registro == null) {
+                return;
+            }
+            lote.add(registro);
+            fila.drainTo(lote, limite - lote.size());
+        }
+    }
+
+    private void gravarLote(List<RegistroPendente> lote) {
+        int inicio = 0;
+
+        while (inicio < lote.size()) {
+            Path caminho = lote.get(inicio).caminho;
+            int fim = inicio;
+            while (fim < lote.size() && lote.get(fim).caminho.equals(caminho)) {
+                fim++;
+            }
+
+            List<RegistroPendente> grupo = lote.subList(inicio, fim);
+            try {
+                gravarGrupo(caminho, grupo);
+                grupo.forEach(registro -> registro.futuro.complete(null));
+                logger.debug("Lote de {} IDs salvo no arquivo {}", grupo.size(), caminho.getFileName());
+            } catch (IOException | RuntimeException e) {
+                logger.error("Erro ao salvar lote de {} IDs em {}: {}", grupo.size(), caminho, e.getMessage(), e);
+                fecharCanal();
+                grupo.forEach(registro -> registro.futuro.completeExceptionally(e));
+            }
+
+            inicio = fim;
+        }
+    }
+
+    private void gravarGrupo(Path caminho, List<RegistroPendente> grupo) throws IOException {
+        FileChannel destino = abrirCanal(caminho);
+        buffer.clear();
+
+        for (RegistroPendente registro : grupo) {
+            byte[] linha = ("{\"id\":" + JSONObject.quote(registro.emailId) + "}\n").getBytes(StandardCharsets.UTF_8);
+            if (linha.length > buffer.remaining()) {
+                descarregarBuffer(destino);
+            }
+            if (linha.length > buffer.capacity()) {
+                escreverTudo(destino, ByteBuffer.wrap(linha));
+            } else {
+                buffer.put(linha);
+            }
+        }
+        descarregarBuffer(destino);
+
+        if (politicaSincronizacao == PoliticaSincronizacao.LOTE) {
+            destino.force(false);
+        }
+    }
+
+    private void descarregarBuffer(FileChannel destino) throws IOException {
+        buffer.flip();
+        escreverTudo(destino, buffer);
+        buffer.clear();
+    }
+
+    private void escreverTudo(FileChannel destino, ByteBuffer dados) throws IOException {
+        while (dados.hasRemaining()) {
+            destino.write(dados);
+        }
+    }
+
+    private FileChannel abrirCanal(Path caminho) throws IOException {
+        if (canal != null && canal.isOpen() && caminho.equals(caminhoAberto)) {
+            return canal;
+        }
+
+        fecharCanal();
+        Path pasta = caminho.toAbsolutePath().getParent();
+        if (!Files.exists(pasta)) {
+            Files.createDirectories(pasta);
+            logger.debug("Pasta criada: {}", pasta);
+        }
+
+        canal = FileChannel.open(caminho, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        caminhoAberto = caminho;
+        return canal;
+    }
+
+    private synchronized void fecharCanal() {
+        if (canal == null) {
+            return;
+        }
+        try {
+            canal.close();
+        } catch (IOException e) {
+            logger.warn("Erro ao fechar arquivo {}: {}", caminhoAberto, e.getMessage());
+        }
+        canal = null;
+        caminhoAberto = null;
+    }
+
+    private static final class RegistroPendente {
+
+        private final Path caminho;
+        private final String emailId;
+        private final CompletableFuture<Void> futuro = new CompletableFuture<>();
+
+        private RegistroPendente(Path caminho, String emailId) {
+            this.caminho = caminho;
+            this.emailId = emailId;
+        }
+    }
 }
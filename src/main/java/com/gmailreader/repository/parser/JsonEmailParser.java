@@ -1,14 +1,22 @@
 package com.gmailreader.repository.parser;
 
+import com.gmailreader.repository.io.ConsumidorDeLinha;
+import org.json.JSONException;
 import org.json.JSONObject;
+import org.json.JSONTokener;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.TimeUnit;
 
 @Component
 public class JsonEmailParser {
@@ -46,8 +54,271 @@ public class JsonEmailParser {
         return todosIds;
     }
     
+    public ResultadoCargaIndice extrairIdsEmStreaming(List<File> arquivos, LeitorDeLinhasAdapter leitor) {
+        long inicio = System.nanoTime();
+        ColetorDeIds coletor = new ColetorDeIds();
+        long bytesLidos = 0;
+
+        for (File arquivo : arquivos) {
+            int invalidasAntes = coletor.linhasInvalidas;
+            bytesLidos += leitor.percorrerLinhas(arquivo, coletor);
+
+            int invalidas = coletor.linhasInvalidas - invalidasAntes;
+            if (invalidas > 0) {
+                logger.warn("Ignoradas {} linhas sem ID válido no arquivo {}", invalidas, arquivo.getName());
+            }
+        }
+
+        long duracaoMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+        logger.info("Total de {} IDs extraídos de {} arquivos ({} bytes em {} ms)",
+                coletor.ids.size(), arquivos.size(), bytesLidos, duracaoMs);
+
+        return new ResultadoCargaIndice(coletor.ids, arquivos.size(), bytesLidos, coletor.linhasInvalidas, duracaoMs);
+    }
+
+    public ResultadoCargaIndice extrairIdsEmParalelo(List<File> arquivos, LeitorDeSegmentosAdapter leitor,
+                                                     int paralelismo, long tamanhoSegmento) {
+        long inicio = System.nanoTime();
+        List<SegmentoArquivo> segmentos = dividirEmSegmentos(arquivos, tamanhoSegmento);
+
+        ForkJoinPool pool = new ForkJoinPool(paralelismo);
+        CargaParcial carga;
+        try {
+            carga = pool.invoke(new TarefaCarga(segmentos, 0, segmentos.size(), leitor));
+        } finally {
+            pool.shutdown();
+        }
+
+        if (carga.linhasInvalidas > 0) {
+            logger.warn("Ignoradas {} linhas sem ID válido durante a carga paralela", carga.linhasInvalidas);
+        }
+
+        long duracaoMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+        logger.info("Total de {} IDs extraídos de {} arquivos em {} segmentos com paralelismo {} ({} bytes em {} ms)",
+                carga.ids.size(), arquivos.size(), segmentos.size(), paralelismo, carga.bytesLidos, duracaoMs);
+
+        return new ResultadoCargaIndice(carga.ids, arquivos.size(), carga.bytesLidos, carga.linhasInvalidas, duracaoMs);
+    }
+
+    private List<SegmentoArquivo> dividirEmSegmentos(List<File> arquivos, long tamanhoSegmento) {
+        List<SegmentoArquivo> segmentos = new ArrayList<>();
+
+        for (File arquivo : arquivos) {
+            long tamanho = arquivo.length();
+            if (tamanhoSegmento <= 0 || tamanho <= tamanhoSegmento) {
+                segmentos.add(new SegmentoArquivo(arquivo, 0, Long.MAX_VALUE));
+                continue;
+            }
+
+            for (long inicio = 0; inicio < tamanho; inicio += tamanhoSegmento) {
+                long fim = inicio + tamanhoSegmento >= tamanho ? Long.MAX_VALUE : inicio + tamanhoSegmento;
+                segmentos.add(new SegmentoArquivo(arquivo, inicio, fim));
+            }
+        }
+
+        return segmentos;
+    }
+
+    public String extrairId(byte[] dados, int inicio, int fim) {
+        int pos = pularEspacos(dados, inicio, fim);
+        if (pos >= fim || dados[pos] != '{') {
+            return null;
+        }
+        pos++;
+
+        while (true) {
+            pos = pularEspacos(dados, pos, fim);
+            if (pos >= fim || dados[pos] != '"') {
+                return null;
+            }
+
+            int fimChave = fimDaString(dados, pos, fim);
+            if (fimChave < 0) {
+                return null;
+            }
+            boolean chaveId = fimChave - pos == 3 && dados[pos + 1] == 'i' && dados[pos + 2] == 'd';
+
+            pos = pularEspacos(dados, fimChave + 1, fim);
+            if (pos >= fim || dados[pos] != ':') {
+                return null;
+            }
+            pos = pularEspacos(dados, pos + 1, fim);
+            if (pos >= fim) {
+                return null;
+            }
+
+            if (chaveId) {
+                return dados[pos] == '"' ? lerString(dados, pos, fim) : null;
+            }
+
+            pos = pularValor(dados, pos, fim);
+            if (pos < 0) {
+                return null;
+            }
+            pos = pularEspacos(dados, pos, fim);
+            if (pos >= fim || dados[pos] != ',') {
+                return null;
+            }
+            pos++;
+        }
+    }
+
+    private int pularEspacos(byte[] dados, int pos, int fim) {
+        while (pos < fim && (dados[pos] == ' ' || dados[pos] == '\t' || dados[pos] == '\r' || dados[pos] == '\n')) {
+            pos++;
+        }
+        return pos;
+    }
+
+    private int fimDaString(byte[] dados, int aspaInicial, int fim) {
+        for (int i = aspaInicial + 1; i < fim; i++) {
+            if (dados[i] == '\\') {
+                i++;
+            } else if (dados[i] == '"') {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private int pularValor(byte[] dados, int pos, int fim) {
+        byte primeiro = dados[pos];
+
+        if (primeiro == '"') {
+            int fimString = fimDaString(dados, pos, fim);
+            return fimString < 0 ? -1 : fimString + 1;
+        }
+
+        if (primeiro == '{' || primeiro == '[') {
+            int profundidade = 0;
+            for (int i = pos; i < fim; i++) {
+                byte b = dados[i];
+                if (b == '"') {
+                    i = fimDaString(dados, i, fim);
+                    if (i < 0) {
+                        return -1;
+                    }
+                } else if (b == '{' || b == '[') {
+                    profundidade++;
+                } else if ((b == '}' || b == ']') && --profundidade == 0) {
+                    return i + 1;
+                }
+            }
+            return -1;
+        }
+
+        while (pos < fim && dados[pos] != ',' && dados[pos] != '}' && dados[pos] != ']'
+                && dados[pos] != ' ' && dados[pos] != '\t') {
+            pos++;
+        }
+        return pos;
+    }
+
+    private String lerString(byte[] dados, int aspaInicial, int fim) {
+        int fimString = fimDaString(dados, aspaInicial, fim);
+        if (fimString < 0) {
+            return null;
+        }
+
+        for (int i = aspaInicial + 1; i < fimString; i++) {
+            if (dados[i] == '\\') {
+                String literal = new String(dados, aspaInicial, fimString - aspaInicial + 1, StandardCharsets.UTF_8);
+                try {
+                    return (String) new JSONTokener(literal).nextValue();
+                } catch (JSONException e) {
+                    return null;
+                }
+            }
+        }
+        return new String(dados, aspaInicial + 1, fimString - aspaInicial - 1, StandardCharsets.UTF_8);
+    }
+
+    private final class ColetorDeIds implements ConsumidorDeLinha {
+
+        private final Set<String> ids = new HashSet<>();
+        private int linhasInvalidas;
+
+        @Override
+        public void aceitar(byte[] dados, int inicio, int fim) {
+            String id = extrairId(dados, inicio, fim);
+            if (id != null) {
+                ids.add(id);
+            } else {
+                linhasInvalidas++;
+            }
+        }
+    }
+
+    private record SegmentoArquivo(File arquivo, long inicio, long fim) {
+    }
+
+    private static final class CargaParcial {
+
+        private final Set<String> ids;
+        private final long bytesLidos;
+        private final int linhasInvalidas;
+
+        private CargaParcial(Set<String> ids, long bytesLidos, int linhasInvalidas) {
+            this.ids = ids;
+            this.bytesLidos = bytesLidos;
+            this.linhasInvalidas = linhasInvalidas;
+        }
+
+        private CargaParcial combinar(CargaParcial outra) {
+            Set<String> maior = ids.size() >= outra.ids.size() ? ids : outra.ids;
+            Set<String> menor = maior == ids ? outra.ids : ids;
+            maior.addAll(menor);
+            return new CargaParcial(maior, bytesLidos + outra.bytesLidos, linhasInvalidas + outra.linhasInvalidas);
+        }
+    }
+
+    private final class TarefaCarga extends RecursiveTask<CargaParcial> {
+
+        private final List<SegmentoArquivo> segmentos;
+        private final int inicio;
+        private final int fim;
+        private final LeitorDeSegmentosAdapter leitor;
+
+        private TarefaCarga(List<SegmentoArquivo> segmentos, int inicio, int fim, LeitorDeSegmentosAdapter leitor) {
+            this.segmentos = segmentos;
+            this.inicio = inicio;
+            this.fim = fim;
+            this.leitor = leitor;
+        }
+
+        @Override
+        protected CargaParcial compute() {
+            if (fim - inicio <= 1) {
+                ColetorDeIds coletor = new ColetorDeIds();
+                long bytesLidos = 0;
+                if (fim > inicio) {
+                    SegmentoArquivo segmento = segmentos.get(inicio);
+                    bytesLidos = leitor.percorrerLinhas(segmento.arquivo(), segmento.inicio(), segmento.fim(), coletor);
+                }
+                return new CargaParcial(coletor.ids, bytesLidos, coletor.linhasInvalidas);
+            }
+
+            int meio = (inicio + fim) >>> 1;
+            TarefaCarga esquerda = new TarefaCarga(segmentos, inicio, meio, leitor);
+            TarefaCarga direita = new TarefaCarga(segmentos, meio, fim, leitor);
+            esquerda.fork();
+            CargaParcial resultadoDireita = direita.compute();
+            return esquerda.join().combinar(resultadoDireita);
+        }
+    }
+
     @FunctionalInterface
     public interface EmailFileReaderAdapter {
         List<String> lerLinhas(File arquivo);
     }
+
+    @FunctionalInterface
+    public interface LeitorDeLinhasAdapter {
+        long percorrerLinhas(File arquivo, ConsumidorDeLinha consumidor);
+    }
+
+    @FunctionalInterface
+    public interface LeitorDeSegmentosAdapter {
+        long percorrerLinhas(File arquivo, long inicio, long fim, ConsumidorDeLinha consumidor);
+    }
 }
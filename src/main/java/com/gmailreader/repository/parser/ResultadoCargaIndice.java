@@ -0,0 +1,19 @@
+package com.gmailreader.repository.parser;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.Set;
+
+@Getter
+@AllArgsConstructor
+@ToString(exclude = "ids")
+public class ResultadoCargaIndice {
+
+    private final Set<String> ids;
+    private final int arquivosLidos;
+    private final long bytesLidos;
+    private final int linhasInvalidas;
+    private final long duracaoMs;
+}
@@ -0,0 +1,14 @@
+package com.gmailreader.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Conteúdo de um email escrito diretamente no destino, sem passar por uma {@code String}
+ * intermediária. Deve escrever uma única linha, sem o separador final.
+ */
+@FunctionalInterface
+public interface ConteudoEmail {
+
+    void escrever(OutputStream saida) throws IOException;
+}
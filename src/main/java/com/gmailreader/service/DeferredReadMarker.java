@@ -0,0 +1,230 @@
+package com.gmailreader.service;
+
+import com.gmailreader.service.provider.MensagemNaoEncontradaException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Acumula os IDs a marcar como lidos e os envia via {@code users.messages.batchModify}
+ * (até 1000 IDs por chamada). O envio ocorre quando o lote enche, periodicamente ou
+ * ao fim de cada execução de {@link EmailProcessingService#processarEmails()}. Um lote que
+ * esgota as tentativas é reenviado mensagem a mensagem num batch HTTP, para que um ID
+ * problemático não prenda os demais na fila.
+ */
+@Component
+public class DeferredReadMarker {
+
+    private static final Logger logger = LoggerFactory.getLogger(DeferredReadMarker.class);
+    private static final int LIMITE_IDS_POR_CHAMADA = 1000;
+    private static final long ESPERA_INICIAL_TENTATIVA_MS = 200;
+    private static final String METRICA_LOTES = "gmail.leitura.lotes";
+
+    private final GmailModifierService gmailModifierService;
+    private final Deque<String> pendentes = new ArrayDeque<>();
+    private final Object lockEnvio = new Object();
+    private final Counter lotesEnviados;
+    private final Counter lotesComFalha;
+    private final Counter idsMarcados;
+    private ScheduledExecutorService agendador;
+
+    @Value("${gmail.leitura.adiada:false}")
+    private boolean adiada;
+
+    @Value("${gmail.leitura.tamanho-lote:1000}")
+    private int tamanhoLote;
+
+    @Value("${gmail.leitura.intervalo-ms:30000}")
+    private long intervaloMs;
+
+    @Value("${gmail.leitura.tentativas:3}")
+    private int tentativas;
+
+    public DeferredReadMarker(GmailModifierService gmailModifierService,
+                              ObjectProvider<MeterRegistry> meterRegistryProvider) {
+        this.gmailModifierService = gmailModifierService;
+        MeterRegistry meterRegistry = meterRegistryProvider.getIfAvailable(SimpleMeterRegistry::new);
+        this.lotesEnviados = Counter.builder(METRICA_LOTES).tag("resultado", "sucesso")
+                .description("Chamadas batchModify concluídas").register(meterRegistry);
+        this.lotesComFalha = Counter.builder(METRICA_LOTES).tag("resultado", "falha")
+                .description("Chamadas batchModify que esgotaram as tentativas").register(meterRegistry);
+        this.idsMarcados = Counter.builder("gmail.leitura.ids.marcados")
+                .description("Emails marcados como lidos em lote").register(meterRegistry);
+        Gauge.builder("gmail.leitura.pendentes", this, DeferredReadMarker::quantidadePendente)
+                .description("IDs aguardando a marcação como lido").register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void iniciar() {
+        if (!adiada || intervaloMs <= 0) {
+            return;
+        }
+
+        agendador = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+            Thread thread = new Thread(tarefa, "gmail-leitura-lote");
+            thread.setDaemon(true);
+            return thread;
+        });
+        agendador.scheduleWithFixedDelay(this::descarregar, intervaloMs, intervaloMs, TimeUnit.MILLISECONDS);
+        logger.info("Marcação como lido adiada ativa (lote de {} IDs, intervalo de {} ms)", limiteLote(), intervaloMs);
+    }
+
+    public boolean estaAtiva() {
+        return adiada;
+    }
+
+    public void agendar(String messageId) {
+        boolean loteCheio;
+        synchronized (pendentes) {
+            pendentes.addLast(messageId);
+            loteCheio = pendentes.size() >= limiteLote();
+        }
+
+        if (loteCheio) {
+            descarregar();
+        }
+    }
+
+    public void descarregar() {
+        synchronized (lockEnvio) {
+            List<String> lote;
+            while (!(lote = retirarLote()).isEmpty()) {
+                if (enviarComTentativas(lote)) {
+                    continue;
+                }
+                List<String> restantes = enviarIndividualmente(lote);
+                if (!restantes.isEmpty()) {
+                    devolver(restantes);
+                    return;
+                }
+            }
+        }
+    }
+
+    public int quantidadePendente() {
+        synchronized (pendentes) {
+            return pendentes.size();
+        }
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        if (agendador != null) {
+            agendador.shutdownNow();
+        }
+        descarregar();
+
+        int restantes = quantidadePendente();
+        if (restantes > 0) {
+            logger.warn("{} emails não foram marcados como lidos antes do encerramento", restantes);
+        }
+    }
+
+    private boolean enviarComTentativas(List<String> lote) {
+        int maximoTentativas = Math.max(1, tentativas);
+        long espera = ESPERA_INICIAL_TENTATIVA_MS;
+
+        for (int tentativa = 1; tentativa <= maximoTentativas; tentativa++) {
+            try {
+                gmailModifierService.marcarComoLidosEmMassa(lote);
+                lotesEnviados.increment();
+                idsMarcados.increment(lote.size());
+                logger.debug("{} emails marcados como lidos em lote", lote.size());
+                return true;
+            } catch (IOException | RuntimeException e) {
+                logger.warn("Falha ao marcar {} emails como lidos (tentativa {}/{}): {}",
+                        lote.size(), tentativa, maximoTentativas, e.getMessage());
+            }
+
+            if (tentativa < maximoTentativas && !aguardar(espera)) {
+                break;
+            }
+            espera *= 2;
+        }
+
+        lotesComFalha.increment();
+        return false;
+    }
+
+    /**
+     * Marca o lote com uma chamada {@code messages.modify} por ID, agrupadas em batch HTTP,
+     * e devolve os IDs que continuam falhando. Mensagens que não existem mais são descartadas.
+     */
+    private List<String> enviarIndividualmente(List<String> lote) {
+        Map<String, IOException> falhas;
+        try {
+            falhas = gmailModifierService.marcarComoLidos(lote);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Falha ao marcar {} emails como lidos individualmente: {}", lote.size(), e.getMessage());
+            return lote;
+        }
+
+        List<String> restantes = new ArrayList<>();
+        for (String messageId : lote) {
+            IOException falha = falhas.get(messageId);
+            if (falha == null) {
+                idsMarcados.increment();
+            } else if (falha instanceof MensagemNaoEncontradaException) {
+                logger.info("Email {} não existe mais no Gmail; marcação como lido descartada", messageId);
+            } else {
+                restantes.add(messageId);
+            }
+        }
+        if (!restantes.isEmpty()) {
+            logger.error("{} de {} emails mantidos para nova tentativa de marcação como lido",
+                    restantes.size(), lote.size());
+        }
+        return restantes;
+    }
+
+    private boolean aguardar(long ms) {
+        try {
+            Thread.sleep(ms);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private List<String> retirarLote() {
+        synchronized (pendentes) {
+            int quantidade = Math.min(pendentes.size(), limiteLote());
+            List<String> lote = new ArrayList<>(quantidade);
+            for (int i = 0; i < quantidade; i++) {
+                lote.add(pendentes.pollFirst());
+            }
+            return lote;
+        }
+    }
+
+    private void devolver(List<String> lote) {
+        synchronized (pendentes) {
+            for (int i = lote.size() - 1; i >= 0; i--) {
+                pendentes.addFirst(lote.get(i));
+            }
+        }
+    }
+
+    private int limiteLote() {
+        return Math.max(1, Math.min(tamanhoLote, LIMITE_IDS_POR_CHAMADA));
+    }
+}
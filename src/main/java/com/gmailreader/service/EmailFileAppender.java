@@ -0,0 +1,385 @@
+package com.gmailreader.service;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Mantém aberto o arquivo diário de emails e grava as linhas através de um buffer
+ * direto reutilizado. Com {@code gmail.storage.lote.intervalo-ms} maior que zero,
+ * as linhas de vários emails são acumuladas e descarregadas juntas; as ações
+ * registradas em {@link #aposDescarga(Supplier)} só rodam depois que as linhas
+ * pendentes chegam ao arquivo, e fora do lock do gravador, para que uma ação lenta não
+ * bloqueie quem está anexando. Se a descarga falha, os bytes continuam no buffer e
+ * são gravados na próxima tentativa. Um {@link ConteudoEmail} escreve seus bytes
+ * direto nesse buffer.
+ */
+@Component
+public class EmailFileAppender {
+
+    private static final Logger logger = LoggerFactory.getLogger(EmailFileAppender.class);
+    private static final String SEPARADOR_LINHA = System.lineSeparator();
+    private static final int BYTES_POR_KB = 1024;
+    private static final int TAMANHO_MINIMO_BUFFER_KB = 4;
+
+    @Value("${gmail.storage.lote.intervalo-ms:0}")
+    private long intervaloMs;
+
+    @Value("${gmail.storage.lote.tamanho-buffer-kb:256}")
+    private int tamanhoBufferKb;
+
+    private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder()
+            .onMalformedInput(CodingErrorAction.REPLACE)
+            .onUnmappableCharacter(CodingErrorAction.REPLACE);
+    private ByteBuffer buffer;
+    private FileChannel canal;
+    private File arquivoAberto;
+    private long inicioPendenciaNanos;
+    private ScheduledExecutorService agendador;
+    private boolean encerrado = false;
+    private long bytesDescarregados;
+    private List<AcaoPendente> acoesPendentes = new ArrayList<>();
+    private List<AcaoPendente> acoesLiberadas = new ArrayList<>();
+
+    private final OutputStream saidaBuffer = new OutputStream() {
+        @Override
+        public void write(int valor) throws IOException {
+            if (!buffer.hasRemaining()) {
+                descarregarBuffer();
+            }
+            buffer.put((byte) valor);
+        }
+
+        @Override
+        public void write(byte[] dados, int inicio, int tamanho) throws IOException {
+            while (tamanho > 0) {
+                if (!buffer.hasRemaining()) {
+                    descarregarBuffer();
+                }
+                int trecho = Math.min(tamanho, buffer.remaining());
+                buffer.put(dados, inicio, trecho);
+                inicio += trecho;
+                tamanho -= trecho;
+            }
+        }
+    };
+
+    public void anexar(File arquivo, String conteudo) throws IOException {
+        try {
+            anexarNoBuffer(arquivo, conteudo);
+        } finally {
+            executarAcoesLiberadas();
+        }
+    }
+
+    /**
+     * Grava o conteúdo direto no buffer. Se a escrita falhar, só os bytes deste email são
+     * desfeitos (ver {@link #desfazerLinha(int, long)}); as linhas de outros emails
+     * pendentes no buffer são mantidas. A serialização acontece dentro do lock do
+     * gravador, pois escreve no buffer compartilhado.
+     */
+    public void anexar(File arquivo, ConteudoEmail conteudo) throws IOException {
+        try {
+            anexarNoBuffer(arquivo, conteudo);
+        } finally {
+            executarAcoesLiberadas();
+        }
+    }
+
+    private synchronized void anexarNoBuffer(File arquivo, String conteudo) throws IOException {
+        if (encerrado) {
+            throw new IllegalStateException("Gravador de arquivos de email já foi encerrado");
+        }
+
+        garantirArquivoAberto(arquivo);
+        int inicio = buffer.position();
+        long descarregadosAntes = bytesDescarregados;
+        try {
+            if (inicio == 0) {
+                inicioPendenciaNanos = System.nanoTime();
+            }
+            codificar(conteudo);
+            codificar(SEPARADOR_LINHA);
+
+            if (intervaloMs <= 0 || System.nanoTime() - inicioPendenciaNanos >= TimeUnit.MILLISECONDS.toNanos(intervaloMs)) {
+                descarregarBuffer();
+            }
+        } catch (IOException | RuntimeException e) {
+            desfazerLinha(inicio, descarregadosAntes);
+            throw e;
+        }
+    }
+
+    private synchronized void anexarNoBuffer(File arquivo, ConteudoEmail conteudo) throws IOException {
+        if (encerrado) {
+            throw new IllegalStateException("Gravador de arquivos de email já foi encerrado");
+        }
+
+        garantirArquivoAberto(arquivo);
+        int inicio = buffer.position();
+        long descarregadosAntes = bytesDescarregados;
+        try {
+            if (inicio == 0) {
+                inicioPendenciaNanos = System.nanoTime();
+            }
+            conteudo.escrever(saidaBuffer);
+            codificar(SEPARADOR_LINHA);
+
+            if (intervaloMs <= 0 || System.nanoTime() - inicioPendenciaNanos >= TimeUnit.MILLISECONDS.toNanos(intervaloMs)) {
+                descarregarBuffer();
+            }
+        } catch (IOException | RuntimeException e) {
+            desfazerLinha(inicio, descarregadosAntes);
+            throw e;
+        }
+    }
+
+    /**
+     * Executa {@code acao} assim que as linhas hoje pendentes no buffer estiverem no
+     * arquivo, ou na hora quando não há nada pendente. O futuro devolvido acompanha o da
+     * ação, e falha se ela falhar ou se o gravador for encerrado sem gravar as linhas.
+     */
+    public CompletableFuture<Void> aposDescarga(Supplier<CompletableFuture<Void>> acao) {
+        AcaoPendente pendente = new AcaoPendente(acao);
+        synchronized (this) {
+            if (buffer != null && buffer.position() > 0) {
+                acoesPendentes.add(pendente);
+                return pendente.resultado;
+            }
+        }
+        pendente.executar();
+        return pendente.resultado;
+    }
+
+    public void descarregar() throws IOException {
+        try {
+            descarregarLinhas();
+        } finally {
+            executarAcoesLiberadas();
+        }
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        List<AcaoPendente> naoGravadas;
+        synchronized (this) {
+            encerrado = true;
+            if (agendador != null) {
+                agendador.shutdownNow();
+            }
+
+            try {
+                descarregarLinhas();
+            } catch (IOException e) {
+                logger.error("Erro ao descarregar emails pendentes no encerramento; {} bytes perdidos: {}",
+                        buffer.position(), e.getMessage(), e);
+            }
+            fecharCanal();
+            arquivoAberto = null;
+            naoGravadas = acoesPendentes;
+            acoesPendentes = new ArrayList<>();
+        }
+
+        executarAcoesLiberadas();
+        IllegalStateException erro = new IllegalStateException("Gravador de arquivos de email encerrado antes da gravação");
+        naoGravadas.forEach(acao -> acao.resultado.completeExceptionally(erro));
+        logger.info("Gravador de arquivos de email encerrado");
+    }
+
+    private synchronized void descarregarLinhas() throws IOException {
+        if (arquivoAberto == null) {
+            return;
+        }
+        descarregarBuffer();
+    }
+
+    private void garantirArquivoAberto(File arquivo) throws IOException {
+        if (arquivo.equals(arquivoAberto)) {
+            return;
+        }
+
+        if (arquivoAberto != null) {
+            descarregarLinhas();
+            fecharCanal();
+        }
+
+        if (buffer == null) {
+            int tamanhoKb = Math.max(tamanhoBufferKb, TAMANHO_MINIMO_BUFFER_KB);
+            buffer = ByteBuffer.allocateDirect(tamanhoKb * BYTES_POR_KB);
+        }
+        if (intervaloMs > 0 && agendador == null) {
+            iniciarDescargaPeriodica();
+        }
+
+        arquivoAberto = arquivo;
+        abrirCanal();
+    }
+
+    private void abrirCanal() throws IOException {
+        canal = FileChannel.open(arquivoAberto.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        logger.debug("Arquivo de emails aberto para escrita: {}", arquivoAberto.getAbsolutePath());
+    }
+
+    private void iniciarDescargaPeriodica() {
+        agendador = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+            Thread thread = new Thread(tarefa, "gmail-storage-descarga");
+            thread.setDaemon(true);
+            return thread;
+        });
+        agendador.scheduleWithFixedDelay(this::descarregarPeriodicamente, intervaloMs, intervaloMs, TimeUnit.MILLISECONDS);
+    }
+
+    private void descarregarPeriodicamente() {
+        try {
+            descarregar();
+        } catch (IOException e) {
+            logger.error("Erro ao descarregar lote de emails; os bytes foram mantidos para a próxima tentativa: {}",
+                    e.getMessage(), e);
+        }
+    }
+
+    private void codificar(String texto) throws IOException {
+        CharBuffer entrada = CharBuffer.wrap(texto);
+        encoder.reset();
+
+        CoderResult resultado;
+        do {
+            resultado = encoder.encode(entrada, buffer, true);
+            if (resultado.isOverflow()) {
+                descarregarBuffer();
+            }
+        } while (resultado.isOverflow());
+
+        while (encoder.flush(buffer).isOverflow()) {
+            descarregarBuffer();
+        }
+    }
+
+    /**
+     * Grava o buffer no canal. Em caso de falha, os bytes ainda não gravados ficam no
+     * início do buffer e o canal é fechado, para ser reaberto na próxima tentativa.
+     */
+    private void descarregarBuffer() throws IOException {
+        buffer.flip();
+        try {
+            if (canal == null) {
+                abrirCanal();
+            }
+            while (buffer.hasRemaining()) {
+                bytesDescarregados += canal.write(buffer);
+            }
+        } catch (IOException e) {
+            fecharCanal();
+            throw e;
+        } finally {
+            buffer.compact();
+        }
+
+        if (buffer.position() == 0 && !acoesPendentes.isEmpty()) {
+            acoesLiberadas.addAll(acoesPendentes);
+            acoesPendentes = new ArrayList<>();
+        }
+    }
+
+    /**
+     * Executa, fora do lock, as ações cujas linhas já chegaram ao arquivo. Chamado pelos
+     * métodos públicos depois de liberar o lock.
+     */
+    private void executarAcoesLiberadas() {
+        List<AcaoPendente> acoes;
+        synchronized (this) {
+            if (acoesLiberadas.isEmpty()) {
+                return;
+            }
+            acoes = acoesLiberadas;
+            acoesLiberadas = new ArrayList<>();
+        }
+        acoes.forEach(AcaoPendente::executar);
+    }
+
+    /**
+     * Remove os bytes da linha cuja escrita falhou, preservando as linhas anteriores. Os
+     * que ainda estão no buffer são descartados; os que já chegaram ao arquivo (linha
+     * maior que o buffer) são cortados com {@code truncate}. Se o corte falhar, a próxima
+     * linha começa numa linha nova, para não ser colada à incompleta.
+     */
+    private void desfazerLinha(int inicio, long descarregadosAntes) {
+        long descarregados = bytesDescarregados - descarregadosAntes;
+        if (descarregados <= inicio) {
+            buffer.position((int) (inicio - descarregados));
+            return;
+        }
+
+        long gravadosDaLinha = descarregados - inicio;
+        buffer.clear();
+        try {
+            if (canal == null) {
+                abrirCanal();
+            }
+            canal.truncate(canal.size() - gravadosDaLinha);
+            logger.warn("Removidos {} bytes de um email incompleto de {}", gravadosDaLinha, arquivoAberto);
+        } catch (IOException e) {
+            logger.error("Não foi possível remover o email incompleto de {}: {}", arquivoAberto, e.getMessage(), e);
+            fecharCanal();
+            buffer.put(SEPARADOR_LINHA.getBytes(StandardCharsets.UTF_8));
+        }
+    }
+
+    private void fecharCanal() {
+        if (canal == null) {
+            return;
+        }
+        try {
+            canal.close();
+        } catch (IOException e) {
+            logger.warn("Erro ao fechar arquivo {}: {}", arquivoAberto, e.getMessage());
+        }
+        canal = null;
+    }
+
+    private static final class AcaoPendente {
+
+        private final Supplier<CompletableFuture<Void>> acao;
+        private final CompletableFuture<Void> resultado = new CompletableFuture<>();
+
+        private AcaoPendente(Supplier<CompletableFuture<Void>> acao) {
+            this.acao = acao;
+        }
+
+        private void executar() {
+            try {
+                acao.get().whenComplete((valor, erro) -> {
+                    if (erro == null) {
+                        resultado.complete(null);
+                    } else {
+                        resultado.completeExceptionally(erro);
+                    }
+                });
+            } catch (RuntimeException e) {
+                logger.error("Erro em ação posterior à gravação dos emails: {}", e.getMessage(), e);
+                resultado.completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -1,56 +1,363 @@
 package com.gmailreader.service;
 
 import com.gmailreader.exception.GmailReaderException;
+import com.gmailreader.repository.ProcessedEmailFileRepository;
 import com.gmailreader.service.processing.ProcessingContext;
 import com.gmailreader.service.processing.ProcessingStep;
+import com.gmailreader.service.processing.RelatorioProcessamento;
+import com.gmailreader.service.provider.MensagemNaoEncontradaException;
+import com.gmailreader.service.provider.ResultadoBuscaMensagens;
 import com.google.api.services.gmail.model.Message;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
 
 @Service
 public class EmailProcessingService {
 
+    private static final Logger logger = LoggerFactory.getLogger(EmailProcessingService.class);
+
     private final GmailReaderService gmailReaderService;
     private final ProcessingStep processingChain;
+    private final DeferredReadMarker deferredReadMarker;
+    private final ProcessedEmailFileRepository processedEmailRepository;
+    private final StorageService storageService;
+
+    @Value("${gmail.processamento.paralelismo:1}")
+    private int paralelismo;
+
+    @Value("${gmail.processamento.capacidade-fila:0}")
+    private int capacidadeFila;
+
+    @Value("${gmail.processamento.estagios.habilitado:false}")
+    private boolean estagiosHabilitados;
+
+    private ThreadPoolExecutor executor;
 
     public EmailProcessingService(
             GmailReaderService gmailReaderService,
-            ProcessingStep processingChain) {
+            ProcessingStep processingChain,
+            DeferredReadMarker deferredReadMarker,
+            ProcessedEmailFileRepository processedEmailRepository,
+            StorageService storageService) {
 
         this.gmailReaderService = gmailReaderService;
         this.processingChain = processingChain;
+        this.deferredReadMarker = deferredReadMarker;
+        this.processedEmailRepository = processedEmailRepository;
+        this.storageService = storageService;
     }
 
-    public void processarEmails() {
-        try {
-            List<Message> emails = gmailReaderService.listarEmails();
+    public RelatorioProcessamento processarEmails() {
+        return executar((ignorados, falhasBusca) -> gmailReaderService.listarEmailsEmFluxo(
+                id -> naoProcessado(id, ignorados),
+                (id, erro) -> registrarFalhaDeBusca(id, erro, ignorados, falhasBusca)));
+    }
 
-            for (Message email : emails) {
-                processarEmail(email);
+    /**
+     * Processa apenas as mensagens informadas (ex.: as adicionadas segundo o histórico do
+     * Gmail), ignorando as já processadas. Falhas ao buscar os detalhes entram no relatório;
+     * mensagens que não existem mais no Gmail contam como ignoradas.
+     */
+    public RelatorioProcessamento processarEmailsPorId(List<String> messageIds) {
+        return executar((ignorados, falhasBusca) -> {
+            List<String> pendentes = messageIds.stream().filter(id -> naoProcessado(id, ignorados)).toList();
+            if (pendentes.isEmpty()) {
+                return Stream.empty();
             }
+
+            ResultadoBuscaMensagens resultado = gmailReaderService.obterEmails(pendentes);
+            resultado.getFalhas().forEach((id, erro) -> registrarFalhaDeBusca(id, erro, ignorados, falhasBusca));
+            return resultado.getMensagens().stream();
+        });
+    }
+
+    private static void registrarFalhaDeBusca(String id, IOException erro, AtomicInteger ignorados,
+                                              Map<String, String> falhasBusca) {
+        if (erro instanceof MensagemNaoEncontradaException) {
+            // apagada depois de ser listada: nada a reprocessar
+            logger.info("Email {} não existe mais no Gmail; ignorado", id);
+            ignorados.incrementAndGet();
+        } else {
+            falhasBusca.put(id, String.valueOf(erro.getMessage()));
+        }
+    }
+
+    private RelatorioProcessamento executar(FonteEmails fonte) {
+        long inicio = System.currentTimeMillis();
+        AtomicInteger ignorados = new AtomicInteger();
+        Map<String, String> falhasBusca = new ConcurrentHashMap<>();
+        Map<String, CompletableFuture<Void>> registros = new ConcurrentHashMap<>();
+        try (Stream<Message> emails = fonte.abrir(ignorados, falhasBusca)) {
+            RelatorioProcessamento relatorio;
+            if (estagiosHabilitados) {
+                relatorio = processarEmEstagios(emails, ignorados, registros, inicio);
+            } else if (paralelismo > 1) {
+                relatorio = processarEmParalelo(emails, ignorados, registros, inicio);
+            } else {
+                relatorio = processarEmSequencia(emails, ignorados, registros, inicio);
+            }
+            relatorio = confirmarRegistros(relatorio, registros);
+            if (!falhasBusca.isEmpty()) {
+                relatorio = incluirFalhasDeBusca(relatorio, falhasBusca);
+            }
+
+            logger.info("Processamento concluído: {}/{} emails em {} ms ({} falhas, {} já processados ignorados)",
+                    relatorio.getEmailsProcessados(), relatorio.getTotalEmails(),
+                    relatorio.getDuracaoMs(), relatorio.getFalhas().size(), relatorio.getEmailsIgnorados());
+            return relatorio;
         } catch (IOException e) {
             throw new GmailReaderException(
                     "Falha na comunicação com Gmail API", e
             );
+        } catch (UncheckedIOException e) {
+            throw new GmailReaderException(
+                    "Falha na comunicação com Gmail API", e.getCause()
+            );
         } catch (GmailReaderException e) {
             throw e;
         } catch (Exception e) {
             throw new GmailReaderException(
                     "Erro inesperado durante o processamento de emails", e
             );
+        } finally {
+            if (deferredReadMarker.estaAtiva()) {
+                deferredReadMarker.descarregar();
+            }
         }
     }
 
+    /**
+     * Processa um email e só retorna depois que ele foi gravado e registrado como
+     * processado.
+     */
     public void processarEmail(Message email) {
+        CompletableFuture<Void> registro = processarSemAguardarRegistro(email);
+        try {
+            storageService.descarregar();
+            registro.join();
+        } catch (CompletionException e) {
+            throw new GmailReaderException(
+                    "Falha ao registrar como processado o email ID: " + email.getId(), e.getCause()
+            );
+        }
+    }
+
+    private CompletableFuture<Void> processarSemAguardarRegistro(Message email) {
         try {
             ProcessingContext context = new ProcessingContext(email.getId());
             processingChain.processar(email, context);
+            context.conclusao().join();
+            return context.registroProcessado();
+        } catch (CompletionException e) {
+            throw new GmailReaderException(
+                    "Falha ao processar email ID: " + email.getId(), e.getCause()
+            );
         } catch (Exception e) {
             throw new GmailReaderException(
                     "Falha ao processar email ID: " + email.getId(), e
             );
         }
     }
+
+    @PreDestroy
+    public synchronized void encerrar() {
+        if (executor != null) {
+            executor.shutdown();
+            executor = null;
+        }
+    }
+
+    private RelatorioProcessamento incluirFalhasDeBusca(RelatorioProcessamento relatorio, Map<String, String> falhasBusca) {
+        Map<String, String> falhas = new HashMap<>(falhasBusca);
+        falhas.putAll(relatorio.getFalhas());
+        return new RelatorioProcessamento(relatorio.getTotalEmails() + falhasBusca.size(),
+                relatorio.getEmailsProcessados(), relatorio.getEmailsIgnorados(), Map.copyOf(falhas),
+                relatorio.getDuracaoMs());
+    }
+
+    private boolean naoProcessado(String emailId, AtomicInteger ignorados) {
+        if (processedEmailRepository.emailJaProcessado(emailId)) {
+            ignorados.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Grava os emails que ainda estão em buffer e aguarda, numa única espera, o registro
+     * dos processados. O email cujo registro falhou sai dos processados e entra nas
+     * falhas, para que o checkpoint do histórico não avance sobre ele.
+     */
+    private RelatorioProcessamento confirmarRegistros(RelatorioProcessamento relatorio,
+                                                      Map<String, CompletableFuture<Void>> registros) {
+        if (registros.isEmpty()) {
+            return relatorio;
+        }
+
+        String falhaDescarga = null;
+        try {
+            storageService.descarregar();
+            CompletableFuture.allOf(registros.values().toArray(CompletableFuture<?>[]::new))
+                    .handle((resultado, erro) -> null)
+                    .join();
+        } catch (GmailReaderException e) {
+            falhaDescarga = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+        }
+
+        Map<String, String> falhas = new HashMap<>(relatorio.getFalhas());
+        int naoRegistrados = 0;
+        for (Map.Entry<String, CompletableFuture<Void>> registro : registros.entrySet()) {
+            String motivo = motivoFalhaRegistro(registro.getValue(), falhaDescarga);
+            if (motivo != null) {
+                logger.warn("Email {} não foi registrado como processado: {}", registro.getKey(), motivo);
+                falhas.put(registro.getKey(), motivo);
+                naoRegistrados++;
+            }
+        }
+        if (naoRegistrados == 0) {
+            return relatorio;
+        }
+        return new RelatorioProcessamento(relatorio.getTotalEmails(), relatorio.getEmailsProcessados() - naoRegistrados,
+                relatorio.getEmailsIgnorados(), Map.copyOf(falhas), relatorio.getDuracaoMs());
+    }
+
+    private static String motivoFalhaRegistro(CompletableFuture<Void> registro, String falhaDescarga) {
+        if (!registro.isDone()) {
+            return String.valueOf(falhaDescarga);
+        }
+        try {
+            registro.join();
+            return null;
+        } catch (CompletionException | CancellationException e) {
+            Throwable causa = e instanceof CompletionException && e.getCause() != null ? e.getCause() : e;
+            return causa instanceof TimeoutException
+                    ? "Tempo esgotado ao gravar o ID processado"
+                    : String.valueOf(causa.getMessage());
+        }
+    }
+
+    private RelatorioProcessamento processarEmSequencia(Stream<Message> emails, AtomicInteger ignorados,
+                                                        Map<String, CompletableFuture<Void>> registros, long inicio) {
+        int total = 0;
+        for (Message email : (Iterable<Message>) emails::iterator) {
+            registros.put(email.getId(), processarSemAguardarRegistro(email));
+            total++;
+        }
+        return new RelatorioProcessamento(total, total, ignorados.get(), Map.of(), System.currentTimeMillis() - inicio);
+    }
+
+    private RelatorioProcessamento processarEmParalelo(Stream<Message> emails, AtomicInteger ignorados,
+                                                       Map<String, CompletableFuture<Void>> registros, long inicio)
+            throws ExecutionException {
+        ThreadPoolExecutor pool = obterExecutor();
+        Map<String, String> falhas = new ConcurrentHashMap<>();
+        AtomicInteger processados = new AtomicInteger();
+        List<Future<?>> futuros = new ArrayList<>();
+
+        try {
+            for (Message email : (Iterable<Message>) emails::iterator) {
+                futuros.add(pool.submit(() -> {
+                    try {
+                        registros.put(email.getId(), processarSemAguardarRegistro(email));
+                        processados.incrementAndGet();
+                    } catch (GmailReaderException e) {
+                        String motivo = e.getCause() != null ? e.getCause().getMessage() : e.getMessage();
+                        logger.warn("Falha ao processar email {}: {}", email.getId(), motivo);
+                        falhas.put(email.getId(), String.valueOf(motivo));
+                    }
+                }));
+            }
+
+            for (Future<?> futuro : futuros) {
+                futuro.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futuros.forEach(futuro -> futuro.cancel(true));
+            throw new GmailReaderException("Processamento de emails interrompido", e);
+        }
+
+        return new RelatorioProcessamento(futuros.size(), processados.get(), ignorados.get(), Map.copyOf(falhas),
+                System.currentTimeMillis() - inicio);
+    }
+
+    private RelatorioProcessamento processarEmEstagios(Stream<Message> emails, AtomicInteger ignorados,
+                                                       Map<String, CompletableFuture<Void>> registros, long inicio) {
+        Map<String, String> falhas = new ConcurrentHashMap<>();
+        AtomicInteger processados = new AtomicInteger();
+        List<CompletableFuture<Void>> conclusoes = new ArrayList<>();
+        int total = 0;
+
+        for (Message email : (Iterable<Message>) emails::iterator) {
+            total++;
+            String emailId = email.getId();
+            ProcessingContext context = new ProcessingContext(emailId);
+            try {
+                processingChain.processar(email, context);
+            } catch (Exception e) {
+                falhas.put(emailId, String.valueOf(e.getMessage()));
+                continue;
+            }
+
+            conclusoes.add(context.conclusao().whenComplete((resultado, erro) -> {
+                if (erro == null) {
+                    registros.put(emailId, context.registroProcessado());
+                    processados.incrementAndGet();
+                } else {
+                    Throwable causa = erro instanceof CompletionException && erro.getCause() != null ? erro.getCause() : erro;
+                    falhas.put(emailId, String.valueOf(causa.getMessage()));
+                }
+            }));
+        }
+
+        CompletableFuture.allOf(conclusoes.toArray(CompletableFuture<?>[]::new))
+                .handle((resultado, erro) -> null)
+                .join();
+
+        return new RelatorioProcessamento(total, processados.get(), ignorados.get(), Map.copyOf(falhas),
+                System.currentTimeMillis() - inicio);
+    }
+
+    private synchronized ThreadPoolExecutor obterExecutor() {
+        if (executor == null) {
+            int capacidade = capacidadeFila > 0 ? capacidadeFila : paralelismo * 2;
+            AtomicInteger contador = new AtomicInteger();
+            executor = new ThreadPoolExecutor(paralelismo, paralelismo, 0L, TimeUnit.MILLISECONDS,
+                    new ArrayBlockingQueue<>(capacidade),
+                    tarefa -> {
+                        Thread thread = new Thread(tarefa, "gmail-processamento-" + contador.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    new ThreadPoolExecutor.CallerRunsPolicy());
+        }
+        return executor;
+    }
+
+    @FunctionalInterface
+    private interface FonteEmails {
+        Stream<Message> abrir(AtomicInteger ignorados, Map<String, String> falhasBusca) throws IOException;
+    }
 }
@@ -1,125 +1,204 @@
 package com.gmailreader.service;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.gmailreader.dto.EmailDto;
 import com.gmailreader.exception.GmailReaderException;
+import com.gmailreader.service.header.CabecalhosEmail;
+import com.gmailreader.service.header.ExtratorCabecalhos;
+import com.gmailreader.service.mime.ConteudoMime;
+import com.gmailreader.service.mime.ExtratorConteudoMime;
 import com.google.api.services.gmail.model.Message;
-import com.google.api.services.gmail.model.MessagePart;
-import com.google.api.services.gmail.model.MessagePartHeader;
+import jakarta.annotation.PostConstruct;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.util.Base64;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.List;
-import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
-import java.util.Locale;
+import java.time.format.DateTimeParseException;
 
 @Service
 public class EmailToJsonService {
 
     private static final Logger logger = LoggerFactory.getLogger(EmailToJsonService.class);
+    private static final List<String> CABECALHOS_BASICOS = List.of("From", "Subject", "Date");
+    private static final DateTimeFormatter FORMATO_RFC_2822 = DateTimeFormatter.RFC_1123_DATE_TIME;
+    private static final DateTimeFormatter FORMATO_SAIDA = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss");
+
     private final ObjectMapper objectMapper;
+    private final ObjectWriter escritor;
+
+    @Value("${gmail.conversao.cabecalhos-extras:}")
+    private List<String> cabecalhosExtras = List.of();
+
+    @Value("${gmail.conversao.fuso-horario:}")
+    private String fusoHorario = "";
+
+    @Value("${gmail.conversao.corpo.tamanho-maximo-kb:0}")
+    private int tamanhoMaximoCorpoKb = 0;
+
+    private ExtratorCabecalhos extratorCabecalhos = new ExtratorCabecalhos(CABECALHOS_BASICOS);
+    private ExtratorConteudoMime extratorConteudo = new ExtratorConteudoMime(0);
+    private ZoneId fusoSaida;
 
     public EmailToJsonService() {
         this.objectMapper = new ObjectMapper();
+        this.escritor = objectMapper.writerFor(EmailDto.class)
+                .without(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+    }
+
+    @PostConstruct
+    void configurar() {
+        extratorConteudo = new ExtratorConteudoMime(Math.max(tamanhoMaximoCorpoKb, 0) * 1024);
+        fusoSaida = fusoHorario == null || fusoHorario.isBlank() ? null : ZoneId.of(fusoHorario.trim());
+
+        List<String> nomes = new ArrayList<>(CABECALHOS_BASICOS);
+        cabecalhosExtras.stream()
+                .map(String::trim)
+                .filter(nome -> !nome.isEmpty() && nomes.stream().noneMatch(nome::equalsIgnoreCase))
+                .forEach(nomes::add);
+        extratorCabecalhos = new ExtratorCabecalhos(nomes);
     }
 
     public String converter(Message message) {
         try {
-            if (message.getPayload() == null) {
-                return objectMapper.writeValueAsString(new EmailDto(message.getId(), "", "", "", ""));
-            }
-
-            String remetente = extrairHeader(message.getPayload().getHeaders(), "From");
-            String assunto = extrairHeader(message.getPayload().getHeaders(), "Subject");
-            String data = formatarData(extrairHeader(message.getPayload().getHeaders(), "Date"));
-            
-            List<String> anexos = extrairAnexos(message.getPayload());
-            String corpo = extrairCorpo(message.getPayload());
-
-            EmailDto emailDto = new EmailDto(
-                message.getId(), 
-                data, 
-                remetente, 
-                assunto, 
-                corpo,
-                !anexos.isEmpty(),
-                anexos
-            );
-            
-            return objectMapper.writeValueAsString(emailDto);
+            return objectMapper.writeValueAsString(converterParaDto(message));
         } catch (JsonProcessingException e) {
             throw new GmailReaderException("Erro ao serializar email para JSON: " + e.getMessage(), e);
         }
     }
 
-    private String extrairHeader(List<MessagePartHeader> headers, String nomeHeader) {
-        if (headers == null) return "";
-        return headers.stream()
-                .filter(header -> nomeHeader.equals(header.getName()))
-                .findFirst()
-                .map(MessagePartHeader::getValue)
-                .orElse("");
+    /**
+     * Serializa o email direto em {@code saida}, sem montar a {@code String} do JSON.
+     */
+    public void escrever(EmailDto emailDto, OutputStream saida) throws IOException {
+        escritor.writeValue(saida, emailDto);
     }
 
-    private List<String> extrairAnexos(MessagePart payload) {
-        if (payload.getParts() == null) {
-            return List.of();
+    public EmailDto converterParaDto(Message message) {
+        if (message.getPayload() == null) {
+            return new EmailDto(message.getId(), "", "", "", "");
         }
+
+        CabecalhosEmail cabecalhos = extratorCabecalhos.extrair(message.getPayload().getHeaders());
+        String remetente = cabecalhos.obter("From");
+        String assunto = cabecalhos.obter("Subject");
+        String data = formatarData(cabecalhos.obter("Date"));
         
-        List<String> anexos = payload.getParts().stream()
-                .filter(part -> part.getFilename() != null && !part.getFilename().isEmpty())
-                .map(part -> {
-                    String filename = part.getFilename();
-                    String mimeType = part.getMimeType() != null ? part.getMimeType() : "unknown";
-                    return String.format("%s (%s)", filename, mimeType);
-                })
-                .toList();
-        
+        ConteudoMime conteudo = extratorConteudo.extrair(message.getPayload());
+        List<String> anexos = conteudo.getAnexos();
         if (!anexos.isEmpty()) {
             logger.info("Email contém {} anexo(s): {}", anexos.size(), String.join(", ", anexos));
         }
-        
-        return anexos;
-    }
-    
-    private String extrairCorpo(MessagePart payload) {
-        String corpo = "";
-        
-        if (payload.getBody() != null && payload.getBody().getData() != null) {
-            corpo = decodificarBase64(payload.getBody().getData());
-        } else if (payload.getParts() != null) {
-            corpo = payload.getParts().stream()
-                    .filter(part -> "text/plain".equals(part.getMimeType()))
-                    .filter(part -> part.getBody() != null && part.getBody().getData() != null)
-                    .findFirst()
-                    .map(part -> decodificarBase64(part.getBody().getData()))
-                    .orElse("");
+        if (conteudo.isTruncado()) {
+            logger.debug("Corpo do email {} cortado em {} KB", message.getId(), tamanhoMaximoCorpoKb);
         }
-        
-        return corpo.replaceAll("\\r\\n|\\r|\\n", " ").trim();
+        String corpo = normalizarQuebrasDeLinha(conteudo.getCorpo());
+
+        return new EmailDto(
+            message.getId(), 
+            data, 
+            remetente, 
+            assunto, 
+            corpo,
+            !anexos.isEmpty(),
+            anexos,
+            cabecalhos.comoMapa(CABECALHOS_BASICOS.size())
+        );
     }
 
-    private String decodificarBase64(String data) {
-        return new String(Base64.getUrlDecoder().decode(data));
+    /**
+     * Troca cada quebra de linha ({@code \r\n}, {@code \r} ou {@code \n}) por um espaço e
+     * remove os espaços das pontas, numa única passada.
+     */
+    static String normalizarQuebrasDeLinha(String texto) {
+        int tamanhoOriginal = texto.length();
+        char[] saida = null;
+        int tamanho = 0;
+
+        for (int i = 0; i < tamanhoOriginal; i++) {
+            char caractere = texto.charAt(i);
+            if (caractere == '\r' || caractere == '\n') {
+                if (saida == null) {
+                    saida = new char[tamanhoOriginal];
+                    texto.getChars(0, i, saida, 0);
+                    tamanho = i;
+                }
+                saida[tamanho++] = ' ';
+                if (caractere == '\r' && i + 1 < tamanhoOriginal && texto.charAt(i + 1) == '\n') {
+                    i++;
+                }
+            } else if (saida != null) {
+                saida[tamanho++] = caractere;
+            }
+        }
+
+        if (saida == null) {
+            return texto.trim();
+        }
+        int inicio = 0;
+        while (inicio < tamanho && saida[inicio] <= ' ') {
+            inicio++;
+        }
+        while (tamanho > inicio && saida[tamanho - 1] <= ' ') {
+            tamanho--;
+        }
+        return new String(saida, inicio, tamanho - inicio);
     }
 
+    /**
+     * Interpreta a data no formato da RFC 2822 (com ou sem dia da semana, com o comentário
+     * final opcional, ex.: {@code (UTC)}) e a formata no fuso configurado, ou no fuso do
+     * próprio cabeçalho quando nenhum foi configurado.
+     */
     private String formatarData(String dataOriginal) {
         if (dataOriginal == null || dataOriginal.isEmpty()) return "";
-        
+
         try {
-            String dataSemTimezone = dataOriginal.replaceAll(" [+-]\\d{4}$", "");
-            DateTimeFormatter formatoEntrada = DateTimeFormatter.ofPattern("EEE, dd MMM yyyy HH:mm:ss", Locale.ENGLISH);
-            DateTimeFormatter formatoSaida = DateTimeFormatter.ofPattern("dd-MM-yyyy HH:mm:ss");
-            
-            return LocalDateTime.parse(dataSemTimezone, formatoEntrada).format(formatoSaida) + "hs";
-        } catch (Exception e) {
-            return dataOriginal.replaceAll(" [+-]\\d{4}$", "");
+            OffsetDateTime data = OffsetDateTime.parse(removerComentario(dataOriginal), FORMATO_RFC_2822);
+            if (fusoSaida != null) {
+                return data.atZoneSameInstant(fusoSaida).format(FORMATO_SAIDA) + "hs";
+            }
+            return data.format(FORMATO_SAIDA) + "hs";
+        } catch (DateTimeParseException e) {
+            return removerFusoHorario(dataOriginal);
+        }
+    }
+
+    private static String removerComentario(String data) {
+        String semEspacos = data.trim();
+        int abertura = semEspacos.lastIndexOf('(');
+        if (abertura > 0 && semEspacos.endsWith(")")) {
+            return semEspacos.substring(0, abertura).trim();
         }
+        return semEspacos;
     }
-    
+
+    private static String removerFusoHorario(String data) {
+        int tamanho = data.length();
+        if (tamanho < 6 || data.charAt(tamanho - 6) != ' ') {
+            return data;
+        }
+        char sinal = data.charAt(tamanho - 5);
+        if (sinal != '+' && sinal != '-') {
+            return data;
+        }
+        for (int i = tamanho - 4; i < tamanho; i++) {
+            if (!Character.isDigit(data.charAt(i))) {
+                return data;
+            }
+        }
+        return data.substring(0, tamanho - 6);
+    }
+
 }
 
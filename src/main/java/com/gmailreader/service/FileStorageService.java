@@ -8,8 +8,11 @@ import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
 
 
 @Service
@@ -22,11 +25,18 @@ public class FileStorageService implements StorageService {
 
     private final EmailFileNamingService fileNamingService;
     private final DirectoryManagerService directoryManagerService;
+    private final EmailFileAppender fileAppender;
+
+    private Clock relogio = Clock.systemDefaultZone();
+    private LocalDate diaAtual;
+    private File arquivoAtual;
 
     public FileStorageService(EmailFileNamingService fileNamingService,
-                              DirectoryManagerService directoryManagerService) {
+                              DirectoryManagerService directoryManagerService,
+                              EmailFileAppender fileAppender) {
         this.fileNamingService = fileNamingService;
         this.directoryManagerService = directoryManagerService;
+        this.fileAppender = fileAppender;
     }
 
     @Override
@@ -36,19 +46,31 @@ public class FileStorageService implements StorageService {
         validarConteudo(conteudo);
         
         try {
+            File arquivo = obterArquivoDoDia();
 
-            String nomeArquivo = fileNamingService.gerarNomeArquivo();
-            logger.debug("Nome do arquivo gerado: {}", nomeArquivo);
+            escreverConteudoNoArquivo(arquivo, conteudo);
+            
+            logger.debug("Email salvo com sucesso: {} (tamanho: {} bytes)", arquivo.getPath(), conteudo.length());
 
-            File arquivo = directoryManagerService.criarCaminhoArquivo(pastaDestino, nomeArquivo);
-            logger.debug("Caminho do arquivo: {}", arquivo.getAbsolutePath());
+        } catch (IOException e) {
+            logger.error("Erro de I/O ao salvar email: {}", e.getMessage(), e);
+            throw new GmailReaderException("Erro ao salvar arquivo de email", e);
+        } catch (Exception e) {
+            logger.error("Erro inesperado ao salvar email: {}", e.getMessage(), e);
+            throw new GmailReaderException("Erro inesperado durante o salvamento", e);
+        }
+    }
 
-            boolean arquivoExistia = arquivo.exists();
+    @Override
+    public void salvarEmailEmFluxo(ConteudoEmail conteudo) {
+        if (conteudo == null) {
+            throw new IllegalArgumentException("Conteúdo do email não pode ser null");
+        }
 
-            escreverConteudoNoArquivo(arquivo, conteudo);
-            
-            String acao = arquivoExistia ? "atualizado" : "criado";
-            logger.info("Email {} com sucesso: {} (tamanho: {} bytes)", acao, arquivo.getPath(), conteudo.length());
+        try {
+            File arquivo = obterArquivoDoDia();
+            fileAppender.anexar(arquivo, conteudo);
+            logger.debug("Email salvo com sucesso: {}", arquivo.getPath());
 
         } catch (IOException e) {
             logger.error("Erro de I/O ao salvar email: {}", e.getMessage(), e);
@@ -59,11 +81,44 @@ public class FileStorageService implements StorageService {
         }
     }
 
+    @Override
+    public CompletableFuture<Void> aposGravacao(Supplier<CompletableFuture<Void>> acao) {
+        return fileAppender.aposDescarga(acao);
+    }
+
+    @Override
+    public void descarregar() {
+        try {
+            fileAppender.descarregar();
+        } catch (IOException e) {
+            logger.error("Erro de I/O ao descarregar emails pendentes: {}", e.getMessage(), e);
+            throw new GmailReaderException("Erro ao gravar emails pendentes no arquivo", e);
+        }
+    }
+
     @Override
     public String obterLocalizacaoArmazenamento() {
         return pastaDestino;
     }
 
+    private synchronized File obterArquivoDoDia() throws IOException {
+        LocalDate hoje = LocalDate.now(relogio);
+        if (arquivoAtual != null && hoje.equals(diaAtual)) {
+            return arquivoAtual;
+        }
+
+        String nomeArquivo = fileNamingService.gerarNomeArquivo(hoje);
+        logger.debug("Nome do arquivo gerado: {}", nomeArquivo);
+
+        File arquivo = directoryManagerService.criarCaminhoArquivo(pastaDestino, nomeArquivo);
+        String acao = arquivo.exists() ? "reaberto" : "criado";
+        logger.info("Arquivo de emails do dia {}: {}", acao, arquivo.getPath());
+
+        arquivoAtual = arquivo;
+        diaAtual = hoje;
+        return arquivo;
+    }
+
     private void validarConteudo(String conteudo) {
         if (!StringUtils.hasText(conteudo)) {
             throw new IllegalArgumentException("Conteúdo do email não pode ser null ou vazio");
@@ -83,11 +138,7 @@ public class FileStorageService implements StorageService {
         
         logger.debug("Escrevendo conteúdo no arquivo: {}", arquivo.getAbsolutePath());
         
-        try (FileWriter writer = new FileWriter(arquivo, true)) {
-            writer.write(conteudo + System.lineSeparator());
-            writer.flush();
-            
-            logger.debug("Conteúdo escrito com sucesso");
-        }
+        fileAppender.anexar(arquivo, conteudo);
+        logger.debug("Conteúdo escrito com sucesso");
     }
 }
@@ -1,36 +1,81 @@
 package com.gmailreader.service;
 
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
 import com.google.api.services.gmail.Gmail;
 import com.google.api.services.gmail.model.History;
+import com.google.api.services.gmail.model.HistoryMessageAdded;
+import com.google.api.services.gmail.model.ListHistoryResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashSet;
 import java.util.List;
+import java.util.Set;
 
 @Service
 public class GmailHistoryService {
 
     private static final Logger logger = LoggerFactory.getLogger(GmailHistoryService.class);
+    private static final String TIPO_MENSAGEM_ADICIONADA = "messageAdded";
+    private static final int HISTORICO_NAO_ENCONTRADO = 404;
+    private static final int LIMITE_EXCEDIDO = 429;
+    private static final int PROIBIDO = 403;
+    private static final Set<String> MOTIVOS_LIMITE = Set.of("rateLimitExceeded", "userRateLimitExceeded");
+
+    public enum ResultadoPercurso { CONCLUIDO, INTERROMPIDO, EXPIRADO }
+
+    @FunctionalInterface
+    public interface ConsumidorPaginaHistorico {
+        /**
+         * @return {@code false} para interromper o percurso antes da próxima página
+         */
+        boolean consumir(PaginaHistorico pagina) throws IOException;
+    }
 
     private final GmailServiceManager gmailServiceManager;
 
+    @Value("${gmail.user.id:me}")
+    private String userId = "me";
+
+    @Value("${gmail.search.labels:INBOX}")
+    private List<String> labels = List.of("INBOX");
+
+    @Value("${gmail.historico.tamanho-pagina:500}")
+    private int tamanhoPagina = 500;
+
+    @Value("${gmail.historico.tentativas:5}")
+    private int tentativas = 5;
+
+    @Value("${gmail.historico.espera-inicial-ms:500}")
+    private long esperaInicialMs = 500;
+
+    @Value("${gmail.historico.espera-maxima-ms:32000}")
+    private long esperaMaximaMs = 32000;
+
+    private volatile long esperaEntrePaginasMs;
+
     public GmailHistoryService(GmailServiceManager gmailServiceManager) {
         this.gmailServiceManager = gmailServiceManager;
     }
 
     public List<History> buscarHistorico(BigInteger startHistoryId) {
         try {
-            Gmail gmailService = gmailServiceManager.getGmailService();
-            
-            List<History> historyList = gmailService.users().history().list("me")
-                    .setStartHistoryId(startHistoryId)
-                    .execute()
-                    .getHistory();
-                    
-            List<History> resultado = historyList != null ? historyList : Collections.emptyList();
+            List<History> resultado = new ArrayList<>();
+            ResultadoPercurso percurso = percorrer(startHistoryId, null, pagina -> {
+                resultado.addAll(pagina.getRegistros());
+                return true;
+            });
+            if (percurso == ResultadoPercurso.EXPIRADO) {
+                return Collections.emptyList();
+            }
             
             logger.info("Buscado histórico para historyId {}: {} alterações encontradas", 
                        startHistoryId, resultado.size());
@@ -44,8 +89,136 @@ public class GmailHistoryService {
         }
     }
 
+    /**
+     * Percorre {@code history.list} (somente {@code messageAdded}) página a página a partir de
+     * {@code startHistoryId}, entregando cada página ao consumidor assim que chega. O
+     * {@code ultimoHistoryId} de cada página é o maior já coberto por ela e pode ser salvo como
+     * checkpoint. Um {@code historyId} desconhecido pelo Gmail (HTTP 404) resulta em
+     * {@link ResultadoPercurso#EXPIRADO}; demais falhas são propagadas.
+     */
+    public ResultadoPercurso percorrerMensagensAdicionadas(BigInteger startHistoryId,
+                                                           ConsumidorPaginaHistorico consumidor) throws IOException {
+        return percorrer(startHistoryId, List.of(TIPO_MENSAGEM_ADICIONADA), consumidor);
+    }
+
     public boolean temAlteracoes(BigInteger startHistoryId) {
         List<History> historico = buscarHistorico(startHistoryId);
         return !historico.isEmpty();
     }
+
+    private ResultadoPercurso percorrer(BigInteger startHistoryId, List<String> historyTypes,
+                                        ConsumidorPaginaHistorico consumidor) throws IOException {
+        Gmail gmailService = gmailServiceManager.getGmailService();
+        String pageToken = null;
+        int paginas = 0;
+        int registros = 0;
+
+        do {
+            ListHistoryResponse response;
+            try {
+                response = buscarPaginaComEspera(gmailService, startHistoryId, historyTypes, pageToken);
+            } catch (GoogleJsonResponseException e) {
+                if (e.getStatusCode() == HISTORICO_NAO_ENCONTRADO) {
+                    logger.warn("historyId {} expirado no Gmail; será necessária uma varredura completa", startHistoryId);
+                    return ResultadoPercurso.EXPIRADO;
+                }
+                throw e;
+            }
+
+            pageToken = response.getNextPageToken();
+            paginas++;
+            PaginaHistorico pagina = montarPagina(response, pageToken == null);
+            registros += pagina.getRegistros().size();
+
+            if (!consumidor.consumir(pagina)) {
+                logger.info("Percurso do histórico interrompido na página {} (historyId {})",
+                        paginas, pagina.getUltimoHistoryId());
+                return ResultadoPercurso.INTERROMPIDO;
+            }
+        } while (pageToken != null);
+
+        logger.debug("Histórico a partir de {} percorrido: {} registros em {} páginas", startHistoryId, registros, paginas);
+        return ResultadoPercurso.CONCLUIDO;
+    }
+
+    private ListHistoryResponse buscarPaginaComEspera(Gmail gmailService, BigInteger startHistoryId,
+                                                      List<String> historyTypes, String pageToken) throws IOException {
+        for (int tentativa = 1; ; tentativa++) {
+            aguardar(esperaEntrePaginasMs);
+            try {
+                Gmail.Users.History.List request = gmailService.users().history().list(userId)
+                        .setStartHistoryId(startHistoryId);
+                request.setMaxResults((long) tamanhoPagina);
+                if (pageToken != null) {
+                    request.setPageToken(pageToken);
+                }
+                if (historyTypes != null) {
+                    request.setHistoryTypes(historyTypes);
+                }
+                if (labels.size() == 1) {
+                    request.setLabelId(labels.get(0));
+                }
+
+                ListHistoryResponse response = request.execute();
+                esperaEntrePaginasMs = esperaEntrePaginasMs / 2;
+                return response;
+
+            } catch (GoogleJsonResponseException e) {
+                if (!deveDesacelerar(e) || tentativa >= tentativas) {
+                    throw e;
+                }
+                esperaEntrePaginasMs = Math.min(esperaMaximaMs, Math.max(esperaInicialMs, esperaEntrePaginasMs * 2));
+                logger.warn("Gmail limitou a leitura do histórico (HTTP {}); nova tentativa {}/{} em {} ms",
+                        e.getStatusCode(), tentativa + 1, tentativas, esperaEntrePaginasMs);
+            }
+        }
+    }
+
+    private PaginaHistorico montarPagina(ListHistoryResponse response, boolean ultima) {
+        List<History> registros = listaOuVazia(response.getHistory());
+        Set<String> messageIds = new LinkedHashSet<>();
+        BigInteger maiorHistoryId = null;
+
+        for (History history : registros) {
+            for (HistoryMessageAdded adicionada : listaOuVazia(history.getMessagesAdded())) {
+                if (adicionada.getMessage() != null) {
+                    messageIds.add(adicionada.getMessage().getId());
+                }
+            }
+            if (history.getId() != null && (maiorHistoryId == null || history.getId().compareTo(maiorHistoryId) > 0)) {
+                maiorHistoryId = history.getId();
+            }
+        }
+
+        if (ultima && response.getHistoryId() != null) {
+            maiorHistoryId = response.getHistoryId();
+        }
+        return new PaginaHistorico(registros, new ArrayList<>(messageIds), maiorHistoryId, ultima);
+    }
+
+    private boolean deveDesacelerar(GoogleJsonResponseException e) {
+        int status = e.getStatusCode();
+        if (status == LIMITE_EXCEDIDO || status >= 500) {
+            return true;
+        }
+        GoogleJsonError detalhes = e.getDetails();
+        return status == PROIBIDO && detalhes != null && detalhes.getErrors() != null
+                && detalhes.getErrors().stream().anyMatch(erro -> MOTIVOS_LIMITE.contains(erro.getReason()));
+    }
+
+    private void aguardar(long esperaMs) throws InterruptedIOException {
+        if (esperaMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(esperaMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Leitura do histórico interrompida");
+        }
+    }
+
+    private static <T> List<T> listaOuVazia(List<T> lista) {
+        return lista != null ? lista : Collections.emptyList();
+    }
 }
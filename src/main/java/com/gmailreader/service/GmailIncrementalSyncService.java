@@ -0,0 +1,94 @@
+package com.gmailreader.service;
+
+import com.gmailreader.exception.GmailReaderException;
+import com.gmailreader.repository.HistoryIdFileRepository;
+import com.gmailreader.service.GmailHistoryService.ResultadoPercurso;
+import com.gmailreader.service.processing.RelatorioProcessamento;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Optional;
+
+/**
+ * Sincroniza a caixa a partir do último {@code historyId} salvo, processando só as
+ * mensagens adicionadas desde então. O checkpoint avança a cada página do histórico
+ * concluída sem falhas, de modo que um reinício retoma do ponto em que parou. Uma página
+ * só conta como concluída depois que o {@link EmailProcessingService} descarregou os
+ * emails em lote e os registrou como processados; assim nem o checkpoint nem o ack da
+ * notificação passam à frente do que está em disco. Sem checkpoint, ou com o histórico
+ * expirado no Gmail, faz uma varredura completa e passa a usar o {@code historyId} da
+ * notificação.
+ */
+@Service
+public class GmailIncrementalSyncService {
+
+    private static final Logger logger = LoggerFactory.getLogger(GmailIncrementalSyncService.class);
+
+    private final GmailHistoryService gmailHistoryService;
+    private final EmailProcessingService emailProcessingService;
+    private final HistoryIdFileRepository historyIdRepository;
+
+    public GmailIncrementalSyncService(GmailHistoryService gmailHistoryService,
+                                       EmailProcessingService emailProcessingService,
+                                       HistoryIdFileRepository historyIdRepository) {
+        this.gmailHistoryService = gmailHistoryService;
+        this.emailProcessingService = emailProcessingService;
+        this.historyIdRepository = historyIdRepository;
+    }
+
+    public synchronized RelatorioProcessamento sincronizar(BigInteger historyIdNotificado) {
+        Optional<BigInteger> ultimoHistoryId = historyIdRepository.obterUltimoHistoryId();
+        if (ultimoHistoryId.isEmpty()) {
+            logger.info("Nenhum historyId salvo; executando varredura completa");
+            return varreduraCompleta(historyIdNotificado);
+        }
+
+        BigInteger inicio = ultimoHistoryId.get();
+
+        RelatorioProcessamento[] acumulado = { RelatorioProcessamento.vazio() };
+        ResultadoPercurso resultado;
+        try {
+            resultado = gmailHistoryService.percorrerMensagensAdicionadas(inicio, pagina -> {
+                if (!pagina.getMessageIdsAdicionados().isEmpty()) {
+                    RelatorioProcessamento relatorio = emailProcessingService.processarEmailsPorId(
+                            pagina.getMessageIdsAdicionados());
+                    acumulado[0] = acumulado[0].somar(relatorio);
+                    if (relatorio.temFalhas()) {
+                        logger.warn("Checkpoint do histórico mantido: {} emails falharam e serão reprocessados "
+                                + "na próxima sincronização", relatorio.getFalhas().size());
+                        return false;
+                    }
+                }
+                salvarCheckpoint(pagina.getUltimoHistoryId());
+                return true;
+            });
+        } catch (IOException e) {
+            throw new GmailReaderException("Falha ao buscar histórico do Gmail a partir de " + inicio, e);
+        }
+
+        if (resultado == ResultadoPercurso.EXPIRADO) {
+            return varreduraCompleta(historyIdNotificado);
+        }
+        return acumulado[0];
+    }
+
+    private RelatorioProcessamento varreduraCompleta(BigInteger historyIdNotificado) {
+        RelatorioProcessamento relatorio = emailProcessingService.processarEmails();
+        if (relatorio.temFalhas()) {
+            logger.warn("historyId não atualizado: {} emails falharam na varredura completa", relatorio.getFalhas().size());
+        } else if (historyIdNotificado != null) {
+            salvarCheckpoint(historyIdNotificado);
+        }
+        return relatorio;
+    }
+
+    private void salvarCheckpoint(BigInteger historyId) {
+        if (historyId != null) {
+            historyIdRepository.salvarHistoryId(historyId);
+            logger.debug("Checkpoint do histórico avançado para {}", historyId);
+        }
+    }
+}
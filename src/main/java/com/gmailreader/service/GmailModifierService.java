@@ -1,21 +1,26 @@
 package com.gmailreader.service;
 
 import com.gmailreader.constants.GmailConstants;
+import com.gmailreader.service.batch.GmailBatchClient;
 import com.google.api.services.gmail.Gmail;
+import com.google.api.services.gmail.model.BatchModifyMessagesRequest;
 import com.google.api.services.gmail.model.ModifyMessageRequest;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.Map;
 
 @Service
 public class GmailModifierService {
 
     private final Gmail gmailService;
+    private final GmailBatchClient batchClient;
     private final String userId = GmailConstants.Gmail.CURRENT_USER_ID;
 
-    public GmailModifierService(Gmail gmailService) {
+    public GmailModifierService(Gmail gmailService, GmailBatchClient batchClient) {
         this.gmailService = gmailService;
+        this.batchClient = batchClient;
     }
 
     public void marcarComoLido(String messageId) throws IOException {
@@ -23,4 +28,15 @@ public class GmailModifierService {
                         new ModifyMessageRequest().setRemoveLabelIds(List.of("UNREAD")))
                 .execute();
     }
+
+    public Map<String, IOException> marcarComoLidos(List<String> messageIds) throws IOException {
+        return batchClient.modificarMensagens(messageIds, userId,
+                new ModifyMessageRequest().setRemoveLabelIds(List.of("UNREAD")));
+    }
+
+    public void marcarComoLidosEmMassa(List<String> messageIds) throws IOException {
+        gmailService.users().messages().batchModify(userId,
+                        new BatchModifyMessagesRequest().setIds(messageIds).setRemoveLabelIds(List.of("UNREAD")))
+                .execute();
+    }
 }
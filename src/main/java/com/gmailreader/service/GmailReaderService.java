@@ -3,6 +3,10 @@ package com.gmailreader.service;
 import com.google.api.services.gmail.model.Message;
 import com.gmailreader.service.provider.EmailProvider;
 import com.gmailreader.service.provider.EmailSearchCriteria;
+import com.gmailreader.service.provider.FormatoMensagem;
+import com.gmailreader.service.provider.MensagemNaoEncontradaException;
+import com.gmailreader.service.provider.ProviderHealthMonitor;
+import com.gmailreader.service.provider.ResultadoBuscaMensagens;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
@@ -10,6 +14,9 @@ import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 
 @Service
@@ -18,6 +25,7 @@ public class GmailReaderService {
     private static final Logger logger = LoggerFactory.getLogger(GmailReaderService.class);
 
     private final EmailProvider emailProvider;
+    private final ProviderHealthMonitor healthMonitor;
     
     @Value("${gmail.user.id:me}")
     private String userId;
@@ -28,8 +36,12 @@ public class GmailReaderService {
     @Value("${gmail.search.max-results:#{null}}")
     private Integer maxResults;
 
-    public GmailReaderService(EmailProvider emailProvider) {
+    @Value("${gmail.provider.busca.formato:FULL}")
+    private FormatoMensagem formato = FormatoMensagem.FULL;
+
+    public GmailReaderService(EmailProvider emailProvider, ProviderHealthMonitor healthMonitor) {
         this.emailProvider = emailProvider;
+        this.healthMonitor = healthMonitor;
     }
 
     public List<Message> listarEmails() throws IOException {
@@ -39,6 +51,7 @@ public class GmailReaderService {
                 .userId(userId)
                 .labelIds(defaultLabels)
                 .maxResults(maxResults)
+                .formato(formato)
                 .build();
         
         return listarEmails(criteria);
@@ -47,22 +60,82 @@ public class GmailReaderService {
     public List<Message> listarEmails(EmailSearchCriteria criteria) throws IOException {
         logger.info("Listando emails com critérios personalizados: {}", criteria);
 
-        if (!emailProvider.isDisponivel()) {
-            throw new IOException("Provedor de email " + emailProvider.getNomeProvedor() + " não está disponível");
-        }
+        verificarDisponibilidade();
         
         try {
             List<Message> emails = emailProvider.listarEmails(criteria);
+            healthMonitor.registrarSucesso();
             logger.info("Listagem concluída: {} emails encontrados usando provedor {}", 
                        emails.size(), emailProvider.getNomeProvedor());
             return emails;
             
         } catch (IOException e) {
+            healthMonitor.registrarFalha(e);
             logger.error("Erro ao listar emails: {}", e.getMessage(), e);
             throw e;
         }
     }
 
+    public Stream<Message> listarEmailsEmFluxo(Predicate<String> filtroIds) throws IOException {
+        return listarEmailsEmFluxo(filtroIds, (id, erro) -> { });
+    }
+
+    /**
+     * Lista em fluxo entregando a {@code aoFalharBusca} cada mensagem cujos detalhes não
+     * puderam ser buscados, em vez de apenas registrá-la no log. Essas falhas contam para a
+     * saúde do provedor, exceto mensagem apagada.
+     */
+    public Stream<Message> listarEmailsEmFluxo(Predicate<String> filtroIds,
+                                               BiConsumer<String, IOException> aoFalharBusca) throws IOException {
+        logger.info("Listando emails em fluxo para usuário: {}", userId);
+
+        verificarDisponibilidade();
+
+        EmailSearchCriteria criteria = EmailSearchCriteria.builder()
+                .userId(userId)
+                .labelIds(defaultLabels)
+                .maxResults(maxResults)
+                .formato(formato)
+                .filtroIds(filtroIds)
+                .aoFalharBusca((id, erro) -> {
+                    if (!(erro instanceof MensagemNaoEncontradaException)) {
+                        healthMonitor.registrarFalha(erro);
+                    }
+                    aoFalharBusca.accept(id, erro);
+                })
+                .build();
+
+        try {
+            return healthMonitor.monitorar(emailProvider.listarEmailsEmFluxo(criteria));
+        } catch (IOException e) {
+            healthMonitor.registrarFalha(e);
+            throw e;
+        }
+    }
+
+    public ResultadoBuscaMensagens obterEmails(List<String> messageIds) throws IOException {
+        logger.info("Buscando {} emails por ID para usuário: {}", messageIds.size(), userId);
+        ResultadoBuscaMensagens resultado;
+        try {
+            resultado = emailProvider.obterMensagens(messageIds, userId, formato);
+        } catch (IOException e) {
+            healthMonitor.registrarFalha(e);
+            throw e;
+        }
+
+        // mensagem apagada (404) é resposta do provedor, não falha de comunicação
+        IOException falhaDeComunicacao = resultado.getFalhas().values().stream()
+                .filter(erro -> !(erro instanceof MensagemNaoEncontradaException))
+                .findFirst()
+                .orElse(null);
+        if (!resultado.getMensagens().isEmpty() || (resultado.temFalhas() && falhaDeComunicacao == null)) {
+            healthMonitor.registrarSucesso();
+        } else if (falhaDeComunicacao != null) {
+            healthMonitor.registrarFalha(falhaDeComunicacao);
+        }
+        return resultado;
+    }
+
     public List<Message> listarEmailsExcluindo(List<String> idsExcluidos) throws IOException {
         logger.info("Listando emails excluindo {} IDs", idsExcluidos.size());
         
@@ -71,13 +144,20 @@ public class GmailReaderService {
                 .labelIds(defaultLabels)
                 .idsExcluidos(idsExcluidos)
                 .maxResults(maxResults)
+                .formato(formato)
                 .build();
         
         return listarEmails(criteria);
     }
 
     public String obterInfoProvedor() {
-        String status = emailProvider.isDisponivel() ? "disponível" : "indisponível";
+        String status = healthMonitor.consultarDisponibilidade(emailProvider::isDisponivel) ? "disponível" : "indisponível";
         return String.format("Provedor: %s (%s)", emailProvider.getNomeProvedor(), status);
     }
+
+    private void verificarDisponibilidade() throws IOException {
+        if (!healthMonitor.estaDisponivel(emailProvider::isDisponivel)) {
+            throw new IOException("Provedor de email " + emailProvider.getNomeProvedor() + " não está disponível");
+        }
+    }
 }
@@ -1,8 +1,11 @@
 package com.gmailreader.service;
 
+import com.gmailreader.exception.GmailReaderException;
+import com.gmailreader.service.processing.RelatorioProcessamento;
 import com.google.api.services.gmail.model.History;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import jakarta.annotation.PostConstruct;
@@ -17,13 +20,19 @@ public class GmailWatchService {
     private final EmailProcessingService emailProcessingService;
     private final GmailWatchManager gmailWatchManager;
     private final GmailHistoryService gmailHistoryService;
+    private final GmailIncrementalSyncService incrementalSyncService;
+
+    @Value("${gmail.sincronizacao.incremental:false}")
+    private boolean sincronizacaoIncremental;
 
     public GmailWatchService(EmailProcessingService emailProcessingService,
                              GmailWatchManager gmailWatchManager,
-                             GmailHistoryService gmailHistoryService) {
+                             GmailHistoryService gmailHistoryService,
+                             GmailIncrementalSyncService incrementalSyncService) {
         this.emailProcessingService = emailProcessingService;
         this.gmailWatchManager = gmailWatchManager;
         this.gmailHistoryService = gmailHistoryService;
+        this.incrementalSyncService = incrementalSyncService;
     }
 
     @PostConstruct
@@ -42,20 +51,40 @@ public class GmailWatchService {
 
     public void processarEmailsDoHistorico(BigInteger historyId) {
         try {
-            List<History> historyList = gmailHistoryService.buscarHistorico(historyId);
-
-            if (!historyList.isEmpty()) {
-                logger.info("Encontradas {} alterações no histórico para historyId {}. Processando emails não lidos.", historyList.size(), historyId);
-            } else {
-                logger.info("Nenhum email novo encontrado no histórico para historyId {}. Processando emails manualmente.", historyId);
-            }
-
-            emailProcessingService.processarEmails();
-            logger.info("Emails processados com sucesso para historyId: {}", historyId);
-
+            sincronizarHistorico(historyId);
         } catch (Exception e) {
             logger.error("Erro ao processar emails para historyId {}: {}", historyId, e.getMessage(), e);
         }
     }
 
+    /**
+     * Sincroniza a caixa a partir da notificação e só retorna quando o resultado foi
+     * gravado: o checkpoint do histórico, no modo incremental, ou os IDs processados, na
+     * varredura completa.
+     *
+     * @throws GmailReaderException se a sincronização falhou ou terminou com emails pendentes
+     */
+    public void sincronizarHistorico(BigInteger historyId) {
+        RelatorioProcessamento relatorio = sincronizacaoIncremental
+                ? incrementalSyncService.sincronizar(historyId)
+                : varrerAPartirDoHistorico(historyId);
+
+        if (relatorio.temFalhas()) {
+            throw new GmailReaderException("Sincronização do historyId " + historyId + " terminou com "
+                    + relatorio.getFalhas().size() + " email(s) com falha");
+        }
+        logger.info("Emails processados com sucesso para historyId: {}", historyId);
+    }
+
+    private RelatorioProcessamento varrerAPartirDoHistorico(BigInteger historyId) {
+        List<History> historyList = gmailHistoryService.buscarHistorico(historyId);
+
+        if (!historyList.isEmpty()) {
+            logger.info("Encontradas {} alterações no histórico para historyId {}. Processando emails não lidos.", historyList.size(), historyId);
+        } else {
+            logger.info("Nenhum email novo encontrado no histórico para historyId {}. Processando emails manualmente.", historyId);
+        }
+
+        return emailProcessingService.processarEmails();
+    }
 }
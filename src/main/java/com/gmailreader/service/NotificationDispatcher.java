@@ -0,0 +1,238 @@
+package com.gmailreader.service;
+
+import com.gmailreader.constants.GmailConstants;
+import com.gmailreader.repository.DeadLetterFileRepository;
+import com.gmailreader.repository.PendingNotificationFileRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Agrupa as notificações do Pub/Sub: as que chegam dentro da janela configurada viram uma
+ * única sincronização, iniciada a partir do menor {@code historyId} pendente da caixa. As
+ * sincronizações rodam numa thread própria, uma por vez, fora da thread do subscriber.
+ * A notificação só é considerada enfileirada depois de gravada em disco, para que um
+ * reinício não perca o que já recebeu ack. Uma sincronização que falha volta para a fila
+ * com a mesma espera crescente da reentrega do Pub/Sub ({@code gcp.pubsub.reentrega.*}) e,
+ * esgotadas as tentativas, é gravada no arquivo de notificações descartadas.
+ */
+@Component
+public class NotificationDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(NotificationDispatcher.class);
+    private static final long ESPERA_ENCERRAMENTO_SEGUNDOS = 30;
+
+    private final GmailWatchService gmailWatchService;
+    private final PendingNotificationFileRepository pendingRepository;
+    private final DeadLetterFileRepository deadLetterRepository;
+
+    @Value("${gmail.notificacoes.agrupamento.habilitado:false}")
+    private boolean habilitado;
+
+    @Value("${gmail.notificacoes.agrupamento.janela-ms:2000}")
+    private long janelaMs = 2000;
+
+    @Value("${gcp.pubsub.reentrega.max-tentativas:5}")
+    private int maxTentativas = 5;
+
+    @Value("${gcp.pubsub.reentrega.espera-inicial-ms:1000}")
+    private long esperaInicialMs = 1000;
+
+    @Value("${gcp.pubsub.reentrega.espera-maxima-ms:60000}")
+    private long esperaMaximaMs = 60000;
+
+    private final Map<String, BigInteger> pendentes = new HashMap<>();
+    private final Map<String, BigInteger> emExecucao = new HashMap<>();
+    private final Set<String> agendadas = new HashSet<>();
+    private final Map<String, Integer> tentativas = new HashMap<>();
+    private ScheduledExecutorService executor;
+
+    public NotificationDispatcher(GmailWatchService gmailWatchService,
+                                  PendingNotificationFileRepository pendingRepository,
+                                  DeadLetterFileRepository deadLetterRepository) {
+        this.gmailWatchService = gmailWatchService;
+        this.pendingRepository = pendingRepository;
+        this.deadLetterRepository = deadLetterRepository;
+    }
+
+    public boolean estaHabilitado() {
+        return habilitado;
+    }
+
+    @PostConstruct
+    public synchronized void iniciar() {
+        if (!habilitado) {
+            return;
+        }
+        executor = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+            Thread thread = new Thread(tarefa, "gmail-notificacoes");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        Map<String, BigInteger> recuperadas = pendingRepository.carregar();
+        if (!recuperadas.isEmpty()) {
+            logger.info("Retomando {} sincronização(ões) pendente(s) de execução anterior", recuperadas.size());
+            pendentes.putAll(recuperadas);
+            recuperadas.keySet().forEach(this::agendar);
+        }
+    }
+
+    /**
+     * Registra a notificação e grava o estado pendente em disco antes de retornar.
+     *
+     * @throws IOException se o estado não pôde ser gravado; a mensagem não deve receber ack
+     */
+    public synchronized void enfileirar(String emailAddress, BigInteger historyId) throws IOException {
+        String caixa = emailAddress != null ? emailAddress : GmailConstants.Gmail.CURRENT_USER_ID;
+        BigInteger atual = pendentes.get(caixa);
+
+        if (atual == null || historyId.compareTo(atual) < 0) {
+            pendentes.put(caixa, historyId);
+            try {
+                pendingRepository.salvar(estadoDuravel());
+            } catch (IOException e) {
+                restaurar(caixa, atual);
+                throw e;
+            }
+        } else {
+            logger.debug("Notificação {} agrupada na sincronização pendente de {} (historyId {})", historyId, caixa, atual);
+        }
+
+        agendar(caixa);
+    }
+
+    public synchronized int quantidadePendente() {
+        return pendentes.size();
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        ScheduledExecutorService atual;
+        synchronized (this) {
+            atual = executor;
+            executor = null;
+        }
+        if (atual == null) {
+            return;
+        }
+        atual.shutdown();
+        try {
+            if (!atual.awaitTermination(ESPERA_ENCERRAMENTO_SEGUNDOS, TimeUnit.SECONDS)) {
+                atual.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            atual.shutdownNow();
+        }
+    }
+
+    private void agendar(String caixa) {
+        agendar(caixa, janelaMs);
+    }
+
+    private void agendar(String caixa, long atrasoMs) {
+        if (executor != null && agendadas.add(caixa)) {
+            executor.schedule(() -> sincronizar(caixa), atrasoMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void sincronizar(String caixa) {
+        BigInteger historyId;
+        synchronized (this) {
+            agendadas.remove(caixa);
+            historyId = pendentes.remove(caixa);
+            if (historyId == null) {
+                return;
+            }
+            emExecucao.put(caixa, historyId);
+        }
+
+        try {
+            logger.info("Sincronizando {} a partir do historyId {}", caixa, historyId);
+            gmailWatchService.sincronizarHistorico(historyId);
+            synchronized (this) {
+                tentativas.remove(caixa);
+            }
+        } catch (RuntimeException e) {
+            tratarFalha(caixa, historyId, e);
+        } finally {
+            synchronized (this) {
+                emExecucao.remove(caixa);
+                try {
+                    pendingRepository.salvar(estadoDuravel());
+                } catch (IOException e) {
+                    logger.warn("Não foi possível atualizar as notificações pendentes: {}", e.getMessage());
+                }
+            }
+        }
+    }
+
+    private void tratarFalha(String caixa, BigInteger historyId, RuntimeException erro) {
+        int tentativa;
+        synchronized (this) {
+            tentativa = tentativas.merge(caixa, 1, Integer::sum);
+        }
+
+        if (tentativa >= maxTentativas && descartar(caixa, historyId, tentativa, erro)) {
+            return;
+        }
+
+        long espera = calcularEspera(tentativa);
+        logger.error("Falha ao sincronizar {} a partir do historyId {}; nova tentativa em {} ms (tentativa {}/{}): {}",
+                caixa, historyId, espera, tentativa, maxTentativas, erro.getMessage(), erro);
+        synchronized (this) {
+            pendentes.merge(caixa, historyId, BigInteger::min);
+            agendar(caixa, espera);
+        }
+    }
+
+    private boolean descartar(String caixa, BigInteger historyId, int tentativa, RuntimeException erro) {
+        String conteudo = String.format("{\"emailAddress\":\"%s\",\"historyId\":%s}", caixa, historyId);
+        try {
+            deadLetterRepository.registrar(null, tentativa, String.valueOf(erro.getMessage()), conteudo);
+        } catch (IOException e) {
+            logger.error("Não foi possível gravar a sincronização de {} no arquivo de descartadas; seguirá tentando: {}",
+                    caixa, e.getMessage(), e);
+            return false;
+        }
+
+        synchronized (this) {
+            tentativas.remove(caixa);
+        }
+        logger.error("Sincronização de {} a partir do historyId {} descartada após {} tentativas e gravada no arquivo de descartadas",
+                caixa, historyId, tentativa, erro);
+        return true;
+    }
+
+    private long calcularEspera(int tentativa) {
+        return Math.min(esperaInicialMs << Math.min(tentativa - 1, 20), esperaMaximaMs);
+    }
+
+    private Map<String, BigInteger> estadoDuravel() {
+        Map<String, BigInteger> estado = new HashMap<>(pendentes);
+        emExecucao.forEach((caixa, historyId) -> estado.merge(caixa, historyId, BigInteger::min));
+        return estado;
+    }
+
+    private void restaurar(String caixa, BigInteger anterior) {
+        if (anterior == null) {
+            pendentes.remove(caixa);
+        } else {
+            pendentes.put(caixa, anterior);
+        }
+    }
+}
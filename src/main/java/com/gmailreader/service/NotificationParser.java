@@ -31,6 +31,19 @@ public class NotificationParser {
 
         return null;
     }
+
+    public String extrairEmailAddress(String notificationJson) {
+        try {
+            JsonNode jsonNode = objectMapper.readTree(notificationJson);
+            if (jsonNode != null && jsonNode.hasNonNull("emailAddress")) {
+                return jsonNode.get("emailAddress").asText();
+            }
+        } catch (Exception e) {
+            logger.debug("Não foi possível extrair emailAddress da notificação: {}", e.getMessage());
+        }
+        return null;
+    }
+
     public boolean isValidNotification(String notificationJson) {
         return extrairHistoryId(notificationJson) != null;
     }
@@ -0,0 +1,20 @@
+package com.gmailreader.service;
+
+import com.google.api.services.gmail.model.History;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.math.BigInteger;
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+@ToString(exclude = "registros")
+public class PaginaHistorico {
+
+    private final List<History> registros;
+    private final List<String> messageIdsAdicionados;
+    private final BigInteger ultimoHistoryId;
+    private final boolean ultima;
+}
@@ -1,13 +1,31 @@
 package com.gmailreader.service;
 
+import com.gmailreader.repository.DeadLetterFileRepository;
 import com.google.cloud.pubsub.v1.AckReplyConsumer;
+import com.google.cloud.pubsub.v1.Subscriber;
 import com.google.pubsub.v1.PubsubMessage;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import java.io.IOException;
 import java.math.BigInteger;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Recebe as notificações do Pub/Sub com entrega "ao menos uma vez": a mensagem só recebe
+ * ack depois que a sincronização gravou seu resultado (ou que a notificação foi gravada na
+ * fila do agrupamento). Em caso de falha recebe nack após uma espera crescente, e depois
+ * de esgotar as tentativas é gravada no arquivo de descartadas e recebe ack. A contagem
+ * local de uma mensagem que não volta a falhar dentro de {@code expiracaoMs} é esquecida.
+ */
 @Service
 public class PubSubMessageProcessor {
 
@@ -15,11 +33,33 @@ public class PubSubMessageProcessor {
 
     private final NotificationParser notificationParser;
     private final GmailWatchService gmailWatchService;
+    private final NotificationDispatcher notificationDispatcher;
+    private final DeadLetterFileRepository deadLetterRepository;
 
-    public PubSubMessageProcessor(NotificationParser notificationParser, 
-                                  GmailWatchService gmailWatchService) {
+    @Value("${gcp.pubsub.reentrega.max-tentativas:5}")
+    private int maxTentativas = 5;
+
+    @Value("${gcp.pubsub.reentrega.espera-inicial-ms:1000}")
+    private long esperaInicialMs = 1000;
+
+    @Value("${gcp.pubsub.reentrega.espera-maxima-ms:60000}")
+    private long esperaMaximaMs = 60000;
+
+    @Value("${gcp.pubsub.reentrega.expiracao-ms:3600000}")
+    private long expiracaoMs = 3600000;
+
+    private final Map<String, ContagemTentativas> tentativas = new ConcurrentHashMap<>();
+    private ScheduledExecutorService agendador;
+    private boolean encerrado;
+
+    public PubSubMessageProcessor(NotificationParser notificationParser,
+                                  GmailWatchService gmailWatchService,
+                                  NotificationDispatcher notificationDispatcher,
+                                  DeadLetterFileRepository deadLetterRepository) {
         this.notificationParser = notificationParser;
         this.gmailWatchService = gmailWatchService;
+        this.notificationDispatcher = notificationDispatcher;
+        this.deadLetterRepository = deadLetterRepository;
     }
 
     public void processarMensagem(PubsubMessage message, AckReplyConsumer consumer) {
@@ -29,18 +69,113 @@ public class PubSubMessageProcessor {
         try {
             BigInteger historyId = notificationParser.extrairHistoryId(rawJson);
 
-            if (historyId != null) {
-                gmailWatchService.processarEmailsDoHistorico(historyId);
-                consumer.ack();
+            if (historyId != null && notificationDispatcher.estaHabilitado()) {
+                notificationDispatcher.enfileirar(notificationParser.extrairEmailAddress(rawJson), historyId);
+                confirmar(message, consumer);
+                logger.debug("Notificação {} enfileirada e ack enviada para Pub/Sub.", historyId);
+            } else if (historyId != null) {
+                gmailWatchService.sincronizarHistorico(historyId);
+                confirmar(message, consumer);
                 logger.info("Mensagem processada e ack enviada para Pub/Sub.");
             } else {
                 logger.warn("Mensagem ignorada (sem historyId): {}", rawJson);
-                consumer.ack();
+                confirmar(message, consumer);
             }
 
+        } catch (IOException e) {
+            logger.error("Não foi possível enfileirar a notificação: {}", e.getMessage(), e);
+            tratarFalha(message, rawJson, consumer, e);
         } catch (Exception e) {
-            logger.error("Erro inesperado ao processar mensagem: {}", e.getMessage(), e);
+            logger.error("Erro ao processar mensagem: {}", e.getMessage(), e);
+            tratarFalha(message, rawJson, consumer, e);
+        }
+    }
+
+    @PreDestroy
+    public void encerrar() {
+        ScheduledExecutorService atual;
+        synchronized (this) {
+            atual = agendador;
+            agendador = null;
+            encerrado = true;
+        }
+        if (atual != null) {
+            // nack imediato das mensagens que aguardavam a espera, para a reentrega não depender do prazo de ack
+            atual.shutdownNow().forEach(Runnable::run);
+        }
+    }
+
+    private void confirmar(PubsubMessage message, AckReplyConsumer consumer) {
+        tentativas.remove(message.getMessageId());
+        consumer.ack();
+    }
+
+    private void tratarFalha(PubsubMessage message, String rawJson, AckReplyConsumer consumer, Exception erro) {
+        int tentativa = registrarTentativa(message);
+        if (tentativa >= maxTentativas) {
+            descartar(message, rawJson, consumer, tentativa, erro);
+            return;
+        }
+
+        long espera = calcularEspera(tentativa);
+        logger.warn("Mensagem {} será reenviada pelo Pub/Sub em {} ms (tentativa {}/{})",
+                message.getMessageId(), espera, tentativa, maxTentativas);
+        agendarNack(consumer, espera);
+    }
+
+    private void descartar(PubsubMessage message, String rawJson, AckReplyConsumer consumer, int tentativa, Exception erro) {
+        try {
+            deadLetterRepository.registrar(message.getMessageId(), tentativa, String.valueOf(erro.getMessage()), rawJson);
+            tentativas.remove(message.getMessageId());
             consumer.ack();
+            logger.error("Mensagem {} descartada após {} tentativas e gravada no arquivo de descartadas",
+                    message.getMessageId(), tentativa);
+        } catch (IOException e) {
+            logger.error("Não foi possível gravar a mensagem {} no arquivo de descartadas; será reenviada: {}",
+                    message.getMessageId(), e.getMessage(), e);
+            consumer.nack();
         }
     }
+
+    private int registrarTentativa(PubsubMessage message) {
+        long agora = System.currentTimeMillis();
+        // a reentrega pode ir para outro subscriber ou a mensagem pode expirar no Pub/Sub
+        tentativas.values().removeIf(contagem -> agora - contagem.ultimaMs() >= expiracaoMs);
+
+        int locais = tentativas.merge(message.getMessageId(), new ContagemTentativas(1, agora),
+                (anterior, nova) -> new ContagemTentativas(anterior.quantidade() + 1, agora)).quantidade();
+        Integer doServidor = Subscriber.getDeliveryAttempt(message);
+        return doServidor != null ? Math.max(doServidor, locais) : locais;
+    }
+
+    private long calcularEspera(int tentativa) {
+        return Math.min(esperaInicialMs << Math.min(tentativa - 1, 20), esperaMaximaMs);
+    }
+
+    private void agendarNack(AckReplyConsumer consumer, long espera) {
+        ScheduledExecutorService atual = espera > 0 ? obterAgendador() : null;
+        if (atual == null) {
+            consumer.nack();
+            return;
+        }
+        try {
+            atual.schedule(consumer::nack, espera, TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            consumer.nack();
+        }
+    }
+
+    private synchronized ScheduledExecutorService obterAgendador() {
+        if (agendador == null && !encerrado) {
+            agendador = Executors.newSingleThreadScheduledExecutor(tarefa -> {
+                Thread thread = new Thread(tarefa, "gmail-pubsub-reentrega");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return agendador;
+    }
+
+    private record ContagemTentativas(int quantidade, long ultimaMs) {
+    }
 }
@@ -1,8 +1,25 @@
 package com.gmailreader.service;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
 public interface StorageService {
 
     void salvarEmail(String conteudo);
 
+    void salvarEmailEmFluxo(ConteudoEmail conteudo);
+
+    /**
+     * Executa {@code acao} depois que os emails já salvos estiverem gravados no arquivo.
+     * O futuro devolvido conclui junto com o da ação, ou falha se ela não puder rodar.
+     */
+    CompletableFuture<Void> aposGravacao(Supplier<CompletableFuture<Void>> acao);
+
+    /**
+     * Grava no arquivo os emails que ainda estão em buffer, liberando as ações de
+     * {@link #aposGravacao(Supplier)} que aguardavam por eles.
+     */
+    void descarregar();
+
     String obterLocalizacaoArmazenamento();
 }
@@ -0,0 +1,126 @@
+package com.gmailreader.service.batch;
+
+import com.gmailreader.service.provider.FormatoMensagem;
+import com.gmailreader.service.provider.MensagemNaoEncontradaException;
+import com.gmailreader.service.provider.ResultadoBuscaMensagens;
+import com.google.api.client.googleapis.batch.BatchRequest;
+import com.google.api.client.googleapis.batch.json.JsonBatchCallback;
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.googleapis.services.json.AbstractGoogleJsonClientRequest;
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.services.gmail.Gmail;
+import com.google.api.services.gmail.model.Message;
+import com.google.api.services.gmail.model.ModifyMessageRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.BiConsumer;
+
+/**
+ * Agrupa chamadas {@code messages.get} e {@code messages.modify} em requisições HTTP
+ * em lote da Gmail API (até 100 chamadas por requisição). Falhas são registradas por
+ * mensagem, sem interromper os demais itens do lote.
+ */
+@Component
+public class GmailBatchClient {
+
+    private static final Logger logger = LoggerFactory.getLogger(GmailBatchClient.class);
+    private static final int LIMITE_CHAMADAS_POR_LOTE = 100;
+
+    private final Gmail gmailService;
+
+    @Value("${gmail.batch.tamanho:50}")
+    private int tamanhoLote;
+
+    public GmailBatchClient(Gmail gmailService) {
+        this.gmailService = gmailService;
+    }
+
+    public ResultadoBuscaMensagens obterMensagens(List<String> messageIds, String userId) throws IOException {
+        return obterMensagens(messageIds, userId, FormatoMensagem.FULL);
+    }
+
+    public ResultadoBuscaMensagens obterMensagens(List<String> messageIds, String userId, FormatoMensagem formato)
+            throws IOException {
+        long inicio = System.currentTimeMillis();
+        Map<String, Message> recebidas = new HashMap<>();
+        Map<String, IOException> falhas = new LinkedHashMap<>();
+
+        executarEmLotes(messageIds, messageId -> formato.aplicar(gmailService.users().messages().get(userId, messageId)),
+                recebidas::put, falhas);
+
+        List<Message> mensagens = messageIds.stream()
+                .map(recebidas::get)
+                .filter(Objects::nonNull)
+                .toList();
+        return new ResultadoBuscaMensagens(mensagens, falhas, System.currentTimeMillis() - inicio);
+    }
+
+    public Map<String, IOException> modificarMensagens(List<String> messageIds, String userId,
+                                                        ModifyMessageRequest modificacao) throws IOException {
+        Map<String, IOException> falhas = new LinkedHashMap<>();
+
+        executarEmLotes(messageIds, messageId -> gmailService.users().messages().modify(userId, messageId, modificacao),
+                (messageId, mensagem) -> { }, falhas);
+
+        return falhas;
+    }
+
+    private <T> void executarEmLotes(List<String> messageIds, FabricaRequisicao<T> fabrica,
+                                     BiConsumer<String, T> aoReceber, Map<String, IOException> falhas) throws IOException {
+        int tamanho = Math.max(1, Math.min(tamanhoLote, LIMITE_CHAMADAS_POR_LOTE));
+
+        for (int inicio = 0; inicio < messageIds.size(); inicio += tamanho) {
+            List<String> trecho = messageIds.subList(inicio, Math.min(inicio + tamanho, messageIds.size()));
+            Set<String> respondidas = new HashSet<>();
+            BatchRequest lote = gmailService.batch();
+
+            for (String messageId : trecho) {
+                fabrica.criar(messageId).queue(lote, new JsonBatchCallback<T>() {
+                    @Override
+                    public void onSuccess(T resposta, HttpHeaders headers) {
+                        respondidas.add(messageId);
+                        aoReceber.accept(messageId, resposta);
+                    }
+
+                    @Override
+                    public void onFailure(GoogleJsonError erro, HttpHeaders headers) {
+                        respondidas.add(messageId);
+                        logger.warn("Falha no lote para a mensagem {}: {} {}", messageId, erro.getCode(), erro.getMessage());
+                        IOException falha = new IOException(
+                                String.format("Falha ao processar mensagem %s: %d %s", messageId, erro.getCode(), erro.getMessage()));
+                        falhas.put(messageId, erro.getCode() == MensagemNaoEncontradaException.STATUS_NAO_ENCONTRADA
+                                ? new MensagemNaoEncontradaException(messageId, falha) : falha);
+                    }
+                });
+            }
+
+            try {
+                lote.execute();
+                logger.debug("Lote de {} chamadas executado", trecho.size());
+            } catch (IOException e) {
+                logger.error("Erro ao executar lote de {} chamadas: {}", trecho.size(), e.getMessage(), e);
+                for (String messageId : trecho) {
+                    if (!respondidas.contains(messageId)) {
+                        falhas.put(messageId, e);
+                    }
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    private interface FabricaRequisicao<T> {
+        AbstractGoogleJsonClientRequest<T> criar(String messageId) throws IOException;
+    }
+}
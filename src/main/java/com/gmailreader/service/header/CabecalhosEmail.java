@@ -0,0 +1,49 @@
+package com.gmailreader.service.header;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Valores dos cabeçalhos coletados por um {@link ExtratorCabecalhos}, na ordem dos nomes
+ * configurados. Cabeçalhos ausentes são devolvidos como texto vazio.
+ */
+public class CabecalhosEmail {
+
+    private final String[] nomes;
+    private final String[] valores;
+
+    CabecalhosEmail(String[] nomes) {
+        this.nomes = nomes;
+        this.valores = new String[nomes.length];
+    }
+
+    public String obter(String nome) {
+        for (int indice = 0; indice < nomes.length; indice++) {
+            if (nomes[indice].equalsIgnoreCase(nome)) {
+                return valores[indice] != null ? valores[indice] : "";
+            }
+        }
+        return "";
+    }
+
+    /**
+     * Cabeçalhos encontrados a partir da posição {@code inicio} da lista de nomes.
+     */
+    public Map<String, String> comoMapa(int inicio) {
+        Map<String, String> mapa = new LinkedHashMap<>();
+        for (int indice = inicio; indice < nomes.length; indice++) {
+            if (valores[indice] != null) {
+                mapa.put(nomes[indice], valores[indice]);
+            }
+        }
+        return mapa;
+    }
+
+    String valor(int indice) {
+        return valores[indice];
+    }
+
+    void definir(int indice, String valor) {
+        valores[indice] = valor != null ? valor : "";
+    }
+}
@@ -0,0 +1,43 @@
+package com.gmailreader.service.header;
+
+import com.google.api.services.gmail.model.MessagePartHeader;
+
+import java.util.List;
+
+/**
+ * Coleta um conjunto fixo de cabeçalhos numa única passada pela lista da mensagem,
+ * comparando os nomes sem diferenciar maiúsculas. Vale a primeira ocorrência de cada
+ * cabeçalho, e a varredura para assim que todos foram encontrados.
+ */
+public class ExtratorCabecalhos {
+
+    private final String[] nomes;
+
+    public ExtratorCabecalhos(List<String> nomes) {
+        this.nomes = nomes.toArray(new String[0]);
+    }
+
+    public CabecalhosEmail extrair(List<MessagePartHeader> headers) {
+        CabecalhosEmail destino = new CabecalhosEmail(nomes);
+        if (headers == null) {
+            return destino;
+        }
+
+        int pendentes = nomes.length;
+        for (int i = 0, total = headers.size(); i < total && pendentes > 0; i++) {
+            MessagePartHeader header = headers.get(i);
+            String nome = header.getName();
+            if (nome == null) {
+                continue;
+            }
+            for (int indice = 0; indice < nomes.length; indice++) {
+                if (destino.valor(indice) == null && nomes[indice].equalsIgnoreCase(nome)) {
+                    destino.definir(indice, header.getValue());
+                    pendentes--;
+                    break;
+                }
+            }
+        }
+        return destino;
+    }
+}
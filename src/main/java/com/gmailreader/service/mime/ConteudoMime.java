@@ -0,0 +1,23 @@
+package com.gmailreader.service.mime;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.util.List;
+
+/**
+ * Corpo e anexos encontrados por um {@link ExtratorConteudoMime}. {@code truncado} indica
+ * que o corpo foi cortado no tamanho máximo configurado.
+ */
+@Getter
+@AllArgsConstructor
+public class ConteudoMime {
+
+    private final String corpo;
+    private final List<String> anexos;
+    private final boolean truncado;
+
+    public static ConteudoMime vazio() {
+        return new ConteudoMime("", List.of(), false);
+    }
+}
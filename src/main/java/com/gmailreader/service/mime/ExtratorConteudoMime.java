@@ -0,0 +1,153 @@
+package com.gmailreader.service.mime;
+
+import com.google.api.services.gmail.model.MessagePart;
+import com.google.api.services.gmail.model.MessagePartHeader;
+
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Percorre a árvore MIME da mensagem uma única vez, sem recursão, escolhendo o corpo
+ * ({@code text/plain}, ou {@code text/html} na falta dele) e coletando os anexos de
+ * qualquer nível. Só a parte escolhida é decodificada, no charset declarado no seu
+ * {@code Content-Type} e limitada a {@code tamanhoMaximoBytes} (sem limite quando zero).
+ */
+public class ExtratorConteudoMime {
+
+    private static final Charset CHARSET_PADRAO = StandardCharsets.UTF_8;
+
+    private final int tamanhoMaximoBytes;
+
+    public ExtratorConteudoMime(int tamanhoMaximoBytes) {
+        this.tamanhoMaximoBytes = tamanhoMaximoBytes;
+    }
+
+    public ConteudoMime extrair(MessagePart payload) {
+        if (payload == null) {
+            return ConteudoMime.vazio();
+        }
+
+        MessagePart textoPlano = null;
+        MessagePart html = null;
+        List<String> anexos = new ArrayList<>();
+        Deque<MessagePart> pendentes = new ArrayDeque<>();
+        pendentes.push(payload);
+
+        while (!pendentes.isEmpty()) {
+            MessagePart parte = pendentes.pop();
+            String nomeArquivo = parte.getFilename();
+            if (nomeArquivo != null && !nomeArquivo.isEmpty()) {
+                // o conteúdo de um anexo (ex.: mensagem encaminhada) não é percorrido
+                String mimeType = parte.getMimeType() != null ? parte.getMimeType() : "unknown";
+                anexos.add(nomeArquivo + " (" + mimeType + ")");
+                continue;
+            }
+
+            if (temDados(parte)) {
+                String mimeType = parte.getMimeType();
+                if (textoPlano == null && (mimeType == null || mimeType.equalsIgnoreCase("text/plain"))) {
+                    textoPlano = parte;
+                } else if (html == null && "text/html".equalsIgnoreCase(mimeType)) {
+                    html = parte;
+                }
+            }
+
+            List<MessagePart> filhas = parte.getParts();
+            if (filhas != null) {
+                for (int i = filhas.size() - 1; i >= 0; i--) {
+                    pendentes.push(filhas.get(i));
+                }
+            }
+        }
+
+        MessagePart corpo = textoPlano != null ? textoPlano : html;
+        if (corpo == null) {
+            return new ConteudoMime("", anexos, false);
+        }
+        return decodificar(corpo, anexos);
+    }
+
+    private ConteudoMime decodificar(MessagePart parte, List<String> anexos) {
+        String dados = parte.getBody().getData();
+        boolean truncado = false;
+        if (tamanhoMaximoBytes > 0) {
+            // cada 4 caracteres em base64 viram 3 bytes; só o trecho necessário é decodificado
+            long caracteresNecessarios = (tamanhoMaximoBytes + 2L) / 3 * 4;
+            if (dados.length() > caracteresNecessarios) {
+                dados = dados.substring(0, (int) caracteresNecessarios);
+                truncado = true;
+            }
+        }
+
+        byte[] bytes = Base64.getUrlDecoder().decode(dados);
+        int tamanho = bytes.length;
+        if (tamanhoMaximoBytes > 0 && tamanho > tamanhoMaximoBytes) {
+            tamanho = tamanhoMaximoBytes;
+            truncado = true;
+        }
+        Charset charset = charsetDaParte(parte);
+        if (!truncado) {
+            return new ConteudoMime(new String(bytes, 0, tamanho, charset), anexos, false);
+        }
+
+        // sem fim de entrada, um caractere multibyte cortado no limite é descartado em vez de virar lixo
+        CharsetDecoder decodificador = charset.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE);
+        CharBuffer texto = CharBuffer.allocate((int) Math.ceil(tamanho * (double) decodificador.maxCharsPerByte()));
+        decodificador.decode(ByteBuffer.wrap(bytes, 0, tamanho), texto, false);
+        texto.flip();
+        return new ConteudoMime(texto.toString(), anexos, true);
+    }
+
+    private static boolean temDados(MessagePart parte) {
+        return parte.getBody() != null && parte.getBody().getData() != null;
+    }
+
+    private static Charset charsetDaParte(MessagePart parte) {
+        List<MessagePartHeader> headers = parte.getHeaders();
+        if (headers == null) {
+            return CHARSET_PADRAO;
+        }
+        for (MessagePartHeader header : headers) {
+            if ("Content-Type".equalsIgnoreCase(header.getName()) && header.getValue() != null) {
+                return interpretarCharset(header.getValue());
+            }
+        }
+        return CHARSET_PADRAO;
+    }
+
+    /**
+     * Lê o parâmetro {@code charset} de um {@code Content-Type}, usando UTF-8 quando ele
+     * está ausente ou não é suportado.
+     */
+    static Charset interpretarCharset(String contentType) {
+        int posicao = contentType.toLowerCase(Locale.ROOT).indexOf("charset=");
+        if (posicao < 0) {
+            return CHARSET_PADRAO;
+        }
+
+        int inicio = posicao + "charset=".length();
+        int fim = contentType.indexOf(';', inicio);
+        String nome = contentType.substring(inicio, fim < 0 ? contentType.length() : fim).trim();
+        if (nome.length() >= 2 && nome.startsWith("\"") && nome.endsWith("\"")) {
+            nome = nome.substring(1, nome.length() - 1);
+        }
+
+        try {
+            return Charset.forName(nome);
+        } catch (IllegalArgumentException e) {
+            return CHARSET_PADRAO;
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.gmailreader.service.pagination;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.List;
+
+@Getter
+@AllArgsConstructor
+@ToString
+public class PaginaMensagens {
+
+    private final List<String> messageIds;
+    private final String proximoToken;
+
+    public boolean temProxima() {
+        return proximoToken != null;
+    }
+}
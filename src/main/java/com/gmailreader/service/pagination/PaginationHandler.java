@@ -17,6 +17,7 @@ import java.util.List;
 public class PaginationHandler {
 
     private static final Logger logger = LoggerFactory.getLogger(PaginationHandler.class);
+    private static final String CAMPOS_LISTAGEM = "messages/id,nextPageToken";
 
 
     public List<String> buscarMensagensPaginadas(Gmail gmailService, EmailSearchCriteria criteria) throws IOException {
@@ -27,24 +28,10 @@ public class PaginationHandler {
         int paginasProcessadas = 0;
 
         do {
-            logger.debug("Processando página {} (token: {})", paginasProcessadas + 1, pageToken);
-            
-            ListMessagesResponse response = executarBuscaPagina(gmailService, criteria, pageToken);
-            
-            if (response.getMessages() != null) {
-                int mensagensNaPagina = response.getMessages().size();
-                logger.debug("Encontradas {} mensagens na página {}", mensagensNaPagina, paginasProcessadas + 1);
-                
-                for (Message message : response.getMessages()) {
-                    if (deveIncluirMensagem(message.getId(), criteria.getIdsExcluidos())) {
-                        messageIds.add(message.getId());
-                    }
-                }
-            } else {
-                logger.debug("Nenhuma mensagem encontrada na página {}", paginasProcessadas + 1);
-            }
+            PaginaMensagens pagina = buscarPagina(gmailService, criteria, pageToken);
+            messageIds.addAll(pagina.getMessageIds());
 
-            pageToken = response.getNextPageToken();
+            pageToken = pagina.getProximoToken();
             paginasProcessadas++;
             
         } while (pageToken != null);
@@ -56,6 +43,28 @@ public class PaginationHandler {
     }
 
 
+    public PaginaMensagens buscarPagina(Gmail gmailService, EmailSearchCriteria criteria, String pageToken)
+            throws IOException {
+        logger.debug("Processando página (token: {})", pageToken);
+
+        ListMessagesResponse response = executarBuscaPagina(gmailService, criteria, pageToken);
+        List<String> messageIds = new ArrayList<>();
+
+        if (response.getMessages() != null) {
+            logger.debug("Encontradas {} mensagens na página", response.getMessages().size());
+
+            for (Message message : response.getMessages()) {
+                if (deveIncluirMensagem(message.getId(), criteria)) {
+                    messageIds.add(message.getId());
+                }
+            }
+        } else {
+            logger.debug("Nenhuma mensagem encontrada na página");
+        }
+
+        return new PaginaMensagens(messageIds, response.getNextPageToken());
+    }
+
     private ListMessagesResponse executarBuscaPagina(Gmail gmailService, 
                                                    EmailSearchCriteria criteria, 
                                                    String pageToken) throws IOException {
@@ -64,6 +73,7 @@ public class PaginationHandler {
                 .list(criteria.getUserId())
                 .setLabelIds(criteria.getLabelIds())
                 .setPageToken(pageToken);
+        request.setFields(CAMPOS_LISTAGEM);
 
         if (criteria.getQuery() != null && !criteria.getQuery().trim().isEmpty()) {
             request.setQ(criteria.getQuery());
@@ -76,8 +86,10 @@ public class PaginationHandler {
         return request.execute();
     }
 
-    private boolean deveIncluirMensagem(String messageId, List<String> idsExcluidos) {
-        boolean incluir = idsExcluidos.isEmpty() || !idsExcluidos.contains(messageId);
+    private boolean deveIncluirMensagem(String messageId, EmailSearchCriteria criteria) {
+        List<String> idsExcluidos = criteria.getIdsExcluidos();
+        boolean incluir = (idsExcluidos.isEmpty() || !idsExcluidos.contains(messageId))
+                && criteria.getFiltroIds().test(messageId);
         
         if (!incluir) {
             logger.debug("Mensagem {} excluída conforme critérios", messageId);
@@ -2,12 +2,16 @@ package com.gmailreader.service.processing;
 
 import com.gmailreader.service.EmailToJsonService;
 import com.google.api.services.gmail.model.Message;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 @Component
 public class ConvertEmailStep extends AbstractProcessingStep {
     
     private final EmailToJsonService emailToJsonService;
+
+    @Value("${gmail.storage.escrita-em-fluxo:false}")
+    private boolean escritaEmFluxo;
     
     public ConvertEmailStep(EmailToJsonService emailToJsonService) {
         this.emailToJsonService = emailToJsonService;
@@ -15,6 +19,10 @@ public class ConvertEmailStep extends AbstractProcessingStep {
     
     @Override
     protected void executarProcessamento(Message message, ProcessingContext context) throws Exception {
+        if (escritaEmFluxo) {
+            context.definirEmailConvertido(emailToJsonService.converterParaDto(message));
+            return;
+        }
         String json = emailToJsonService.converter(message);
         context.definirJsonConvertido(json);
     }
@@ -0,0 +1,115 @@
+package com.gmailreader.service.processing;
+
+import com.google.api.services.gmail.model.Message;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executa um {@link ProcessingStep} em fila e pool de threads próprios. O step seguinte
+ * recebe outro estágio, de modo que cada etapa avança no seu ritmo; quando a fila do
+ * próximo estágio enche, a thread do estágio anterior executa a tarefa (contrapressão).
+ */
+public class EstagioProcessamento implements ProcessingStep {
+
+    private static final Logger logger = LoggerFactory.getLogger(EstagioProcessamento.class);
+    private static final long ESPERA_ENCERRAMENTO_SEGUNDOS = 30;
+
+    private final String nome;
+    private final ProcessingStep step;
+    private final ThreadPoolExecutor executor;
+    private final Timer latencia;
+    private EstagioProcessamento seguinte;
+
+    public EstagioProcessamento(String nome, ProcessingStep step, int threads, int capacidadeFila,
+                                MeterRegistry meterRegistry) {
+        this.nome = nome;
+        this.step = step;
+
+        int tamanhoPool = Math.max(1, threads);
+        AtomicInteger contador = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(tamanhoPool, tamanhoPool, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, capacidadeFila)),
+                tarefa -> {
+                    Thread thread = new Thread(tarefa, "gmail-estagio-" + nome + "-" + contador.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+
+        this.latencia = Timer.builder("gmail.processamento.estagio.latencia").tag("estagio", nome)
+                .description("Tempo de execução do step no estágio").register(meterRegistry);
+        Gauge.builder("gmail.processamento.estagio.fila", executor, pool -> pool.getQueue().size())
+                .tag("estagio", nome).description("Emails aguardando na fila do estágio").register(meterRegistry);
+
+        logger.info("Estágio {} configurado com {} threads e fila de {}", nome, tamanhoPool, capacidadeFila);
+    }
+
+    public static String nomeDoEstagio(ProcessingStep step) {
+        return step.getClass().getSimpleName()
+                .replaceFirst("Step$", "")
+                .replaceAll("([a-z0-9])([A-Z])", "$1-$2")
+                .toLowerCase();
+    }
+
+    @Override
+    public void processar(Message message, ProcessingContext context) {
+        context.iniciarEtapa();
+        try {
+            executor.execute(() -> executar(message, context));
+        } catch (RejectedExecutionException e) {
+            context.registrarFalha(e);
+            context.concluirEtapa();
+        }
+    }
+
+    @Override
+    public ProcessingStep setNext(ProcessingStep nextStep) {
+        if (nextStep instanceof EstagioProcessamento estagio) {
+            this.seguinte = estagio;
+        }
+        return step.setNext(nextStep);
+    }
+
+    public String getNome() {
+        return nome;
+    }
+
+    public void close() {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(ESPERA_ENCERRAMENTO_SEGUNDOS, TimeUnit.SECONDS)) {
+                logger.warn("Estágio {} encerrado com {} emails na fila", nome, executor.getQueue().size());
+                executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            executor.shutdownNow();
+        }
+
+        if (seguinte != null) {
+            seguinte.close();
+        }
+    }
+
+    private void executar(Message message, ProcessingContext context) {
+        long inicio = System.nanoTime();
+        try {
+            step.processar(message, context);
+        } catch (Exception e) {
+            logger.warn("Falha no estágio {} para o email {}: {}", nome, message.getId(), e.getMessage());
+            context.registrarFalha(e);
+        } finally {
+            latencia.record(System.nanoTime() - inicio, TimeUnit.NANOSECONDS);
+            context.concluirEtapa();
+        }
+    }
+}
@@ -1,22 +1,30 @@
 package com.gmailreader.service.processing;
 
 import com.gmailreader.repository.ProcessedEmailFileRepository;
+import com.gmailreader.service.StorageService;
 import com.google.api.services.gmail.model.Message;
 import org.springframework.stereotype.Component;
 
+/**
+ * Registra o email como processado só depois que a linha salva por {@link SaveEmailStep}
+ * chegou ao arquivo; com a gravação em lote, o registro fica para a descarga do lote. O
+ * resultado do registro fica no contexto, para que uma falha conte no relatório.
+ */
 @Component
 public class MarkAsProcessedStep extends AbstractProcessingStep {
 
     private final ProcessedEmailFileRepository processedEmailRepository;
+    private final StorageService storageService;
 
-    public MarkAsProcessedStep(ProcessedEmailFileRepository processedEmailRepository) {
+    public MarkAsProcessedStep(ProcessedEmailFileRepository processedEmailRepository, StorageService storageService) {
         this.processedEmailRepository = processedEmailRepository;
+        this.storageService = storageService;
     }
 
     @Override
     protected void executarProcessamento(Message message, ProcessingContext context) throws Exception {
-        processedEmailRepository.marcarComoProcessado(message.getId());
+        String emailId = message.getId();
+        context.definirRegistroProcessado(
+                storageService.aposGravacao(() -> processedEmailRepository.registrarComoProcessado(emailId)));
     }
 }
-
-
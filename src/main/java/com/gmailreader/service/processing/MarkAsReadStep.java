@@ -1,5 +1,6 @@
 package com.gmailreader.service.processing;
 
+import com.gmailreader.service.DeferredReadMarker;
 import com.gmailreader.service.GmailModifierService;
 import com.google.api.services.gmail.model.Message;
 import org.springframework.stereotype.Component;
@@ -8,13 +9,19 @@ import org.springframework.stereotype.Component;
 public class MarkAsReadStep extends AbstractProcessingStep {
     
     private final GmailModifierService gmailModifierService;
+    private final DeferredReadMarker deferredReadMarker;
     
-    public MarkAsReadStep(GmailModifierService gmailModifierService) {
+    public MarkAsReadStep(GmailModifierService gmailModifierService, DeferredReadMarker deferredReadMarker) {
         this.gmailModifierService = gmailModifierService;
+        this.deferredReadMarker = deferredReadMarker;
     }
     
     @Override
     protected void executarProcessamento(Message message, ProcessingContext context) throws Exception {
+        if (deferredReadMarker.estaAtiva()) {
+            deferredReadMarker.agendar(message.getId());
+            return;
+        }
         gmailModifierService.marcarComoLido(message.getId());
     }
 }
@@ -3,14 +3,13 @@ package com.gmailreader.service.processing;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
+import java.util.function.Function;
 
 @Service
 public class ProcessingChainFactory {
 
     public ProcessingStep criarCadeia(List<ProcessingStep> steps) {
-        if (steps == null || steps.isEmpty()) {
-            throw new IllegalArgumentException("Lista de steps não pode ser vazia");
-        }
+        validarSteps(steps);
 
         ProcessingStep primeiroStep = steps.get(0);
         ProcessingStep stepAtual = primeiroStep;
@@ -23,4 +22,21 @@ public class ProcessingChainFactory {
 
         return primeiroStep;
     }
+
+    public ProcessingStep criarCadeiaEmEstagios(List<ProcessingStep> steps,
+                                                Function<ProcessingStep, EstagioProcessamento> criarEstagio) {
+        validarSteps(steps);
+
+        List<ProcessingStep> estagios = steps.stream()
+                .<ProcessingStep>map(criarEstagio)
+                .toList();
+
+        return criarCadeia(estagios);
+    }
+
+    private void validarSteps(List<ProcessingStep> steps) {
+        if (steps == null || steps.isEmpty()) {
+            throw new IllegalArgumentException("Lista de steps não pode ser vazia");
+        }
+    }
 }
@@ -1,15 +1,37 @@
 package com.gmailreader.service.processing;
 
+import com.gmailreader.dto.EmailDto;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+
 @Getter
 @Setter
 public class ProcessingContext {
     
     private String emailId;
     private String convertedJson;
+    private EmailDto emailConvertido;
     private boolean alreadyProcessed;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final AtomicInteger etapasPendentes = new AtomicInteger();
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final CompletableFuture<Void> conclusao = new CompletableFuture<>();
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile boolean encaminhado = false;
+
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile CompletableFuture<Void> registroProcessado = CompletableFuture.completedFuture(null);
     
     public ProcessingContext(String emailId) {
         this.emailId = emailId;
@@ -24,6 +46,14 @@ public class ProcessingContext {
         this.convertedJson = convertedJson;
     }
     
+    public EmailDto obterEmailConvertido() {
+        return emailConvertido;
+    }
+
+    public void definirEmailConvertido(EmailDto emailConvertido) {
+        this.emailConvertido = emailConvertido;
+    }
+
     public boolean jaFoiProcessado() {
         return alreadyProcessed;
     }
@@ -31,4 +61,35 @@ public class ProcessingContext {
     public void definirJaProcessado(boolean alreadyProcessed) {
         this.alreadyProcessed = alreadyProcessed;
     }
+
+    public void iniciarEtapa() {
+        encaminhado = true;
+        etapasPendentes.incrementAndGet();
+    }
+
+    public void concluirEtapa() {
+        if (etapasPendentes.decrementAndGet() == 0) {
+            conclusao.complete(null);
+        }
+    }
+
+    public void registrarFalha(Throwable erro) {
+        conclusao.completeExceptionally(erro);
+    }
+
+    public CompletableFuture<Void> conclusao() {
+        return encaminhado ? conclusao : CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Registro do email como processado, que pode terminar depois da cadeia quando a
+     * gravação do email está em lote.
+     */
+    public CompletableFuture<Void> registroProcessado() {
+        return registroProcessado;
+    }
+
+    public void definirRegistroProcessado(CompletableFuture<Void> registroProcessado) {
+        this.registroProcessado = registroProcessado;
+    }
 }
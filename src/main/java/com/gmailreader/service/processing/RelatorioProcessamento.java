@@ -0,0 +1,35 @@
+package com.gmailreader.service.processing;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.util.HashMap;
+import java.util.Map;
+
+@Getter
+@AllArgsConstructor
+@ToString
+public class RelatorioProcessamento {
+
+    private final int totalEmails;
+    private final int emailsProcessados;
+    private final int emailsIgnorados;
+    private final Map<String, String> falhas;
+    private final long duracaoMs;
+
+    public static RelatorioProcessamento vazio() {
+        return new RelatorioProcessamento(0, 0, 0, Map.of(), 0);
+    }
+
+    public boolean temFalhas() {
+        return !falhas.isEmpty();
+    }
+
+    public RelatorioProcessamento somar(RelatorioProcessamento outro) {
+        Map<String, String> todasFalhas = new HashMap<>(falhas);
+        todasFalhas.putAll(outro.falhas);
+        return new RelatorioProcessamento(totalEmails + outro.totalEmails, emailsProcessados + outro.emailsProcessados,
+                emailsIgnorados + outro.emailsIgnorados, Map.copyOf(todasFalhas), duracaoMs + outro.duracaoMs);
+    }
+}
@@ -1,5 +1,7 @@
 package com.gmailreader.service.processing;
 
+import com.gmailreader.dto.EmailDto;
+import com.gmailreader.service.EmailToJsonService;
 import com.gmailreader.service.StorageService;
 import com.google.api.services.gmail.model.Message;
 import org.springframework.stereotype.Component;
@@ -8,14 +10,19 @@ import org.springframework.stereotype.Component;
 public class SaveEmailStep extends AbstractProcessingStep {
     
     private final StorageService storageService;
+    private final EmailToJsonService emailToJsonService;
     
-    public SaveEmailStep(StorageService storageService) {
+    public SaveEmailStep(StorageService storageService, EmailToJsonService emailToJsonService) {
         this.storageService = storageService;
+        this.emailToJsonService = emailToJsonService;
     }
     
     @Override
     protected void executarProcessamento(Message message, ProcessingContext context) throws Exception {
-        if (context.obterJsonConvertido() != null) {
+        EmailDto emailConvertido = context.obterEmailConvertido();
+        if (emailConvertido != null) {
+            storageService.salvarEmailEmFluxo(saida -> emailToJsonService.escrever(emailConvertido, saida));
+        } else if (context.obterJsonConvertido() != null) {
             storageService.salvarEmail(context.obterJsonConvertido());
         }
     }
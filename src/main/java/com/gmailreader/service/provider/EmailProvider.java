@@ -4,14 +4,34 @@ import com.google.api.services.gmail.model.Message;
 
 import java.io.IOException;
 import java.util.List;
+import java.util.stream.Stream;
 
 
 public interface EmailProvider {
 
     List<Message> listarEmails(EmailSearchCriteria criteria) throws IOException;
 
+    /**
+     * Lista os emails sob demanda, sem manter a caixa inteira em memória. Falhas de
+     * comunicação durante o consumo são lançadas como {@link java.io.UncheckedIOException}.
+     */
+    default Stream<Message> listarEmailsEmFluxo(EmailSearchCriteria criteria) throws IOException {
+        return listarEmails(criteria).stream();
+    }
+
     Message obterMensagemCompleta(String messageId, String userId) throws IOException;
 
+    default Message obterMensagemCompleta(String messageId, String userId, FormatoMensagem formato) throws IOException {
+        return obterMensagemCompleta(messageId, userId);
+    }
+
+    ResultadoBuscaMensagens obterMensagens(List<String> messageIds, String userId) throws IOException;
+
+    default ResultadoBuscaMensagens obterMensagens(List<String> messageIds, String userId, FormatoMensagem formato)
+            throws IOException {
+        return obterMensagens(messageIds, userId);
+    }
+
     boolean isDisponivel();
 
     String getNomeProvedor();
@@ -4,11 +4,14 @@ import com.gmailreader.constants.GmailConstants;
 import lombok.Getter;
 import lombok.ToString;
 
+import java.io.IOException;
 import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
 
 
 @Getter
-@ToString
+@ToString(exclude = {"filtroIds", "aoFalharBusca"})
 public class EmailSearchCriteria {
 
     private final String userId;
@@ -16,6 +19,9 @@ public class EmailSearchCriteria {
     private final List<String> idsExcluidos;
     private final Integer maxResults;
     private final String query;
+    private final Predicate<String> filtroIds;
+    private final BiConsumer<String, IOException> aoFalharBusca;
+    private final FormatoMensagem formato;
 
 
     private EmailSearchCriteria(Builder builder) {
@@ -24,6 +30,9 @@ public class EmailSearchCriteria {
         this.idsExcluidos = builder.idsExcluidos;
         this.maxResults = builder.maxResults;
         this.query = builder.query;
+        this.filtroIds = builder.filtroIds;
+        this.aoFalharBusca = builder.aoFalharBusca;
+        this.formato = builder.formato;
     }
 
 
@@ -38,6 +47,9 @@ public class EmailSearchCriteria {
         private List<String> idsExcluidos = List.of();
         private Integer maxResults;
         private String query;
+        private Predicate<String> filtroIds = id -> true;
+        private BiConsumer<String, IOException> aoFalharBusca = (id, erro) -> { };
+        private FormatoMensagem formato = FormatoMensagem.FULL;
 
 
         public Builder userId(String userId) {
@@ -66,6 +78,24 @@ public class EmailSearchCriteria {
             return this;
         }
 
+        public Builder filtroIds(Predicate<String> filtroIds) {
+            this.filtroIds = filtroIds;
+            return this;
+        }
+
+        /**
+         * Recebe cada mensagem listada cujos detalhes não puderam ser buscados.
+         */
+        public Builder aoFalharBusca(BiConsumer<String, IOException> aoFalharBusca) {
+            this.aoFalharBusca = aoFalharBusca;
+            return this;
+        }
+
+        public Builder formato(FormatoMensagem formato) {
+            this.formato = formato;
+            return this;
+        }
+
 
         public EmailSearchCriteria build() {
             return new EmailSearchCriteria(this);
@@ -0,0 +1,41 @@
+package com.gmailreader.service.provider;
+
+import com.google.api.services.gmail.Gmail;
+
+import java.util.List;
+
+/**
+ * Formato e máscara de campos usados no {@code messages.get}, para que a Gmail API devolva
+ * só o que o processamento lê. {@link #FULL} traz o corpo e as partes MIME usados na
+ * conversão para JSON; {@link #METADATA} traz apenas os cabeçalhos From, Subject e Date.
+ */
+public enum FormatoMensagem {
+
+    FULL("full", List.of(),
+            "id,payload(mimeType,filename,headers(name,value),body/data,parts)"),
+    METADATA("metadata", List.of("From", "Subject", "Date"),
+            "id,payload/headers(name,value)");
+
+    private final String formato;
+    private final List<String> cabecalhos;
+    private final String campos;
+
+    FormatoMensagem(String formato, List<String> cabecalhos, String campos) {
+        this.formato = formato;
+        this.cabecalhos = cabecalhos;
+        this.campos = campos;
+    }
+
+    public Gmail.Users.Messages.Get aplicar(Gmail.Users.Messages.Get requisicao) {
+        requisicao.setFormat(formato);
+        if (!cabecalhos.isEmpty()) {
+            requisicao.setMetadataHeaders(cabecalhos);
+        }
+        requisicao.setFields(campos);
+        return requisicao;
+    }
+
+    public String getCampos() {
+        return campos;
+    }
+}
@@ -1,16 +1,34 @@
 package com.gmailreader.service.provider;
 
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
 import com.google.api.services.gmail.Gmail;
 import com.google.api.services.gmail.model.Message;
+import com.gmailreader.service.batch.GmailBatchClient;
 import com.gmailreader.service.pagination.PaginationHandler;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 
 @Component
@@ -21,13 +39,26 @@ public class GmailEmailProvider implements EmailProvider {
 
     private final Gmail gmailService;
     private final PaginationHandler paginationHandler;
+    private final GmailBatchClient batchClient;
     
     @Value("${gmail.provider.progress.log.interval:10}")
     private int progressLogInterval;
 
-    public GmailEmailProvider(Gmail gmailService, PaginationHandler paginationHandler) {
+    @Value("${gmail.provider.busca.paralelismo:1}")
+    private int paralelismoBusca;
+
+    @Value("${gmail.provider.busca.preservar-ordem:true}")
+    private boolean preservarOrdem = true;
+
+    @Value("${gmail.provider.busca.lote-http:false}")
+    private boolean buscaEmLoteHttp;
+
+    private ExecutorService executorBusca;
+
+    public GmailEmailProvider(Gmail gmailService, PaginationHandler paginationHandler, GmailBatchClient batchClient) {
         this.gmailService = gmailService;
         this.paginationHandler = paginationHandler;
+        this.batchClient = batchClient;
     }
 
     @Override
@@ -38,10 +69,16 @@ public class GmailEmailProvider implements EmailProvider {
 
             List<String> messageIds = paginationHandler.buscarMensagensPaginadas(gmailService, criteria);
 
-            List<Message> emails = buscarDetalhesCompletos(messageIds, criteria.getUserId());
+            ResultadoBuscaMensagens resultado = obterMensagens(messageIds, criteria.getUserId(), criteria.getFormato());
+            if (resultado.temFalhas()) {
+                logger.warn("{} mensagens não puderam ser recuperadas: {}",
+                        resultado.getFalhas().size(), resultado.getFalhas().keySet());
+                resultado.getFalhas().forEach(criteria.getAoFalharBusca());
+            }
             
-            logger.info("Listagem concluída: {} emails recuperados", emails.size());
-            return emails;
+            logger.info("Listagem concluída: {} emails recuperados em {} ms",
+                    resultado.getMensagens().size(), resultado.getDuracaoMs());
+            return resultado.getMensagens();
             
         } catch (IOException e) {
             logger.error("Erro ao listar emails do Gmail: {}", e.getMessage(), e);
@@ -49,24 +86,71 @@ public class GmailEmailProvider implements EmailProvider {
         }
     }
 
+    @Override
+    public Stream<Message> listarEmailsEmFluxo(EmailSearchCriteria criteria) {
+        logger.info("Iniciando listagem em fluxo de emails com critérios: {}", criteria);
+
+        MensagensPaginadasIterator iterator = new MensagensPaginadasIterator(
+                pageToken -> paginationHandler.buscarPagina(gmailService, criteria, pageToken),
+                messageIds -> obterMensagens(messageIds, criteria.getUserId(), criteria.getFormato()),
+                criteria.getAoFalharBusca());
+
+        return StreamSupport.stream(
+                Spliterators.spliteratorUnknownSize(iterator, Spliterator.ORDERED | Spliterator.NONNULL), false);
+    }
+
     @Override
     public Message obterMensagemCompleta(String messageId, String userId) throws IOException {
-        logger.debug("Buscando detalhes completos da mensagem: {}", messageId);
+        return obterMensagemCompleta(messageId, userId, FormatoMensagem.FULL);
+    }
+
+    @Override
+    public Message obterMensagemCompleta(String messageId, String userId, FormatoMensagem formato) throws IOException {
+        logger.debug("Buscando detalhes da mensagem {} (formato {})", messageId, formato);
         
         try {
-            Message message = gmailService.users().messages()
-                    .get(userId, messageId)
+            Message message = formato.aplicar(gmailService.users().messages().get(userId, messageId))
                     .execute();
             
             logger.debug("Mensagem {} recuperada com sucesso", messageId);
             return message;
             
+        } catch (GoogleJsonResponseException e) {
+            if (e.getStatusCode() == MensagemNaoEncontradaException.STATUS_NAO_ENCONTRADA) {
+                throw new MensagemNaoEncontradaException(messageId, e);
+            }
+            logger.error("Erro ao buscar mensagem {}: {}", messageId, e.getMessage(), e);
+            throw new IOException("Falha ao recuperar mensagem: " + messageId, e);
         } catch (IOException e) {
             logger.error("Erro ao buscar mensagem {}: {}", messageId, e.getMessage(), e);
             throw new IOException("Falha ao recuperar mensagem: " + messageId, e);
         }
     }
 
+    @Override
+    public ResultadoBuscaMensagens obterMensagens(List<String> messageIds, String userId) throws IOException {
+        return obterMensagens(messageIds, userId, FormatoMensagem.FULL);
+    }
+
+    @Override
+    public ResultadoBuscaMensagens obterMensagens(List<String> messageIds, String userId, FormatoMensagem formato)
+            throws IOException {
+        logger.debug("Buscando detalhes de {} mensagens (formato {})", messageIds.size(), formato);
+        if (buscaEmLoteHttp) {
+            return batchClient.obterMensagens(messageIds, userId, formato);
+        }
+
+        long inicio = System.currentTimeMillis();
+        Map<String, IOException> falhas = new ConcurrentHashMap<>();
+
+        List<Message> emails = paralelismoBusca > 1 && messageIds.size() > 1
+                ? buscarEmParalelo(messageIds, userId, formato, falhas)
+                : buscarEmSequencia(messageIds, userId, formato, falhas);
+
+        logger.debug("Detalhes completos recuperados: {}/{} mensagens", emails.size(), messageIds.size());
+        return new ResultadoBuscaMensagens(emails, falhas, System.currentTimeMillis() - inicio);
+    }
+
     @Override
     public boolean isDisponivel() {
         try {
@@ -86,29 +170,93 @@ public class GmailEmailProvider implements EmailProvider {
         return PROVIDER_NAME;
     }
 
-    private List<Message> buscarDetalhesCompletos(List<String> messageIds, String userId) throws IOException {
-        logger.debug("Buscando detalhes completos de {} mensagens", messageIds.size());
-        
+    @PreDestroy
+    public synchronized void encerrar() {
+        if (executorBusca != null) {
+            executorBusca.shutdownNow();
+            executorBusca = null;
+        }
+    }
+
+    private List<Message> buscarEmSequencia(List<String> messageIds, String userId, FormatoMensagem formato,
+                                            Map<String, IOException> falhas) {
         List<Message> emails = new ArrayList<>();
-        int processadas = 0;
+        AtomicInteger processadas = new AtomicInteger();
         
         for (String messageId : messageIds) {
-            try {
-                Message emailCompleto = obterMensagemCompleta(messageId, userId);
+            Message emailCompleto = buscarRegistrandoFalha(messageId, userId, formato, falhas, processadas, messageIds.size());
+            if (emailCompleto != null) {
                 emails.add(emailCompleto);
-                processadas++;
-                
-                if (processadas % progressLogInterval == 0) {
-                    logger.debug("Processadas {}/{} mensagens", processadas, messageIds.size());
-                }
-                
-            } catch (IOException e) {
-                logger.warn("Erro ao buscar detalhes da mensagem {}: {}", messageId, e.getMessage());
-
             }
         }
         
-        logger.debug("Detalhes completos recuperados: {}/{} mensagens", emails.size(), messageIds.size());
         return emails;
     }
+
+    private List<Message> buscarEmParalelo(List<String> messageIds, String userId, FormatoMensagem formato,
+                                           Map<String, IOException> falhas)
+            throws IOException {
+        ExecutorService executor = obterExecutorBusca();
+        Semaphore emAndamento = new Semaphore(paralelismoBusca);
+        AtomicInteger processadas = new AtomicInteger();
+        Queue<Message> chegada = new ConcurrentLinkedQueue<>();
+        List<CompletableFuture<Message>> futuros = new ArrayList<>(messageIds.size());
+
+        try {
+            for (String messageId : messageIds) {
+                emAndamento.acquire();
+                futuros.add(CompletableFuture
+                        .supplyAsync(() -> buscarRegistrandoFalha(messageId, userId, formato, falhas, processadas, messageIds.size()), executor)
+                        .whenComplete((mensagem, erro) -> {
+                            emAndamento.release();
+                            if (mensagem != null) {
+                                chegada.add(mensagem);
+                            }
+                        }));
+            }
+            CompletableFuture.allOf(futuros.toArray(CompletableFuture<?>[]::new)).join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            futuros.forEach(futuro -> futuro.cancel(true));
+            throw new InterruptedIOException("Busca de mensagens interrompida");
+        }
+
+        if (!preservarOrdem) {
+            return new ArrayList<>(chegada);
+        }
+        return futuros.stream()
+                .map(CompletableFuture::join)
+                .filter(Objects::nonNull)
+                .toList();
+    }
+
+    private Message buscarRegistrandoFalha(String messageId, String userId, FormatoMensagem formato,
+                                           Map<String, IOException> falhas, AtomicInteger processadas, int total) {
+        try {
+            Message emailCompleto = obterMensagemCompleta(messageId, userId, formato);
+            int quantidade = processadas.incrementAndGet();
+            
+            if (quantidade % progressLogInterval == 0) {
+                logger.debug("Processadas {}/{} mensagens", quantidade, total);
+            }
+            return emailCompleto;
+            
+        } catch (IOException e) {
+            logger.warn("Erro ao buscar detalhes da mensagem {}: {}", messageId, e.getMessage());
+            falhas.put(messageId, e);
+            return null;
+        }
+    }
+
+    private synchronized ExecutorService obterExecutorBusca() {
+        if (executorBusca == null) {
+            AtomicInteger contador = new AtomicInteger();
+            executorBusca = Executors.newFixedThreadPool(paralelismoBusca, tarefa -> {
+                Thread thread = new Thread(tarefa, "gmail-busca-" + contador.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+        return executorBusca;
+    }
 }
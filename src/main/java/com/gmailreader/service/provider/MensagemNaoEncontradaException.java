@@ -0,0 +1,16 @@
+package com.gmailreader.service.provider;
+
+import java.io.IOException;
+
+/**
+ * A mensagem não existe mais no Gmail (HTTP 404), por exemplo porque foi apagada entre
+ * a leitura do histórico e a busca dos detalhes. Não adianta tentar de novo.
+ */
+public class MensagemNaoEncontradaException extends IOException {
+
+    public static final int STATUS_NAO_ENCONTRADA = 404;
+
+    public MensagemNaoEncontradaException(String messageId, Throwable causa) {
+        super("Mensagem não encontrada: " + messageId, causa);
+    }
+}
@@ -0,0 +1,101 @@
+package com.gmailreader.service.provider;
+
+import com.gmailreader.service.pagination.PaginaMensagens;
+import com.google.api.services.gmail.model.Message;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+
+/**
+ * Percorre a listagem página a página: só busca a próxima página de IDs, e os detalhes
+ * das suas mensagens, quando as mensagens da página anterior já foram consumidas.
+ * Falhas de comunicação são propagadas como {@link UncheckedIOException}; falhas ao buscar
+ * mensagens individuais são entregues a {@code aoFalharBusca} e a listagem continua.
+ */
+class MensagensPaginadasIterator implements Iterator<Message> {
+
+    private static final Logger logger = LoggerFactory.getLogger(MensagensPaginadasIterator.class);
+
+    @FunctionalInterface
+    interface BuscaPagina {
+        PaginaMensagens buscar(String pageToken) throws IOException;
+    }
+
+    @FunctionalInterface
+    interface BuscaDetalhes {
+        ResultadoBuscaMensagens buscar(List<String> messageIds) throws IOException;
+    }
+
+    private final BuscaPagina buscaPagina;
+    private final BuscaDetalhes buscaDetalhes;
+    private final BiConsumer<String, IOException> aoFalharBusca;
+
+    private Iterator<Message> paginaAtual = Collections.emptyIterator();
+    private String proximoToken;
+    private boolean ultimaPaginaLida;
+    private int paginasLidas;
+    private int mensagensEntregues;
+
+    MensagensPaginadasIterator(BuscaPagina buscaPagina, BuscaDetalhes buscaDetalhes,
+                               BiConsumer<String, IOException> aoFalharBusca) {
+        this.buscaPagina = buscaPagina;
+        this.buscaDetalhes = buscaDetalhes;
+        this.aoFalharBusca = aoFalharBusca;
+    }
+
+    @Override
+    public boolean hasNext() {
+        while (!paginaAtual.hasNext()) {
+            if (ultimaPaginaLida) {
+                return false;
+            }
+            paginaAtual = carregarProximaPagina().iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public Message next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        mensagensEntregues++;
+        return paginaAtual.next();
+    }
+
+    private List<Message> carregarProximaPagina() {
+        try {
+            PaginaMensagens pagina = buscaPagina.buscar(proximoToken);
+            proximoToken = pagina.getProximoToken();
+            ultimaPaginaLida = !pagina.temProxima();
+            paginasLidas++;
+
+            if (pagina.getMessageIds().isEmpty()) {
+                return List.of();
+            }
+
+            ResultadoBuscaMensagens resultado = buscaDetalhes.buscar(pagina.getMessageIds());
+            if (resultado.temFalhas()) {
+                logger.warn("{} mensagens da página {} não puderam ser recuperadas: {}",
+                        resultado.getFalhas().size(), paginasLidas, resultado.getFalhas().keySet());
+                resultado.getFalhas().forEach(aoFalharBusca);
+            }
+            if (ultimaPaginaLida) {
+                logger.info("Listagem em fluxo concluída: {} páginas, {} emails",
+                        paginasLidas, mensagensEntregues + resultado.getMensagens().size());
+            }
+            return resultado.getMensagens();
+
+        } catch (IOException e) {
+            logger.error("Erro ao listar emails do Gmail na página {}: {}", paginasLidas + 1, e.getMessage(), e);
+            throw new UncheckedIOException(new IOException("Falha na comunicação com Gmail API", e));
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.gmailreader.service.provider;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.UncheckedIOException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * Mantém em cache a disponibilidade do provedor, atualizada pelo resultado das chamadas
+ * reais. Um sucesso vale pelo TTL configurado; a verificação ativa só é feita quando não há
+ * resultado recente. Depois de falhas consecutivas o circuito abre e o provedor é dado como
+ * indisponível sem chamada alguma, até que a espera termine e uma chamada real seja liberada
+ * para testá-lo.
+ */
+@Component
+public class ProviderHealthMonitor {
+
+    private static final Logger logger = LoggerFactory.getLogger(ProviderHealthMonitor.class);
+
+    @Value("${gmail.provider.saude.ttl-ms:60000}")
+    private long ttlMs = 60000;
+
+    @Value("${gmail.provider.saude.falhas-para-abrir:3}")
+    private int falhasParaAbrir = 3;
+
+    @Value("${gmail.provider.saude.espera-aberto-ms:30000}")
+    private long esperaAbertoMs = 30000;
+
+    private final LongSupplier relogio;
+
+    private long ultimoSucesso = -1;
+    private volatile int falhasConsecutivas;
+    private long abertoAte;
+
+    public ProviderHealthMonitor() {
+        this(System::currentTimeMillis);
+    }
+
+    ProviderHealthMonitor(LongSupplier relogio) {
+        this.relogio = relogio;
+    }
+
+    /**
+     * Informa se o provedor está disponível, usando {@code verificacaoAtiva} apenas quando o
+     * estado em cache expirou. Com o circuito aberto e a espera vencida, reserva para quem
+     * chamou a única chamada de teste; use só antes de uma chamada real ao provedor.
+     */
+    public boolean estaDisponivel(BooleanSupplier verificacaoAtiva) {
+        return avaliar(verificacaoAtiva, true);
+    }
+
+    /**
+     * Como {@link #estaDisponivel}, mas sem reservar a chamada de teste do circuito aberto:
+     * para quem só informa o estado e não chamará o provedor em seguida.
+     */
+    public boolean consultarDisponibilidade(BooleanSupplier verificacaoAtiva) {
+        return avaliar(verificacaoAtiva, false);
+    }
+
+    private boolean avaliar(BooleanSupplier verificacaoAtiva, boolean reservarTeste) {
+        synchronized (this) {
+            long agora = relogio.getAsLong();
+            if (circuitoAberto()) {
+                if (!reservarTeste || agora < abertoAte) {
+                    return false;
+                }
+                abertoAte = agora + esperaAbertoMs;
+                logger.info("Liberando chamada de teste ao provedor após {} falhas consecutivas", falhasConsecutivas);
+                return true;
+            }
+            if (ultimoSucesso >= 0 && agora - ultimoSucesso < ttlMs) {
+                return true;
+            }
+        }
+
+        boolean disponivel = verificacaoAtiva.getAsBoolean();
+        if (disponivel) {
+            registrarSucesso();
+        } else {
+            registrarFalha(null);
+        }
+        return disponivel;
+    }
+
+    public synchronized void registrarSucesso() {
+        if (circuitoAberto()) {
+            logger.info("Provedor voltou a responder; circuito fechado");
+        }
+        falhasConsecutivas = 0;
+        ultimoSucesso = relogio.getAsLong();
+    }
+
+    public synchronized void registrarFalha(Throwable erro) {
+        falhasConsecutivas++;
+        ultimoSucesso = -1;
+        if (falhasConsecutivas >= falhasParaAbrir) {
+            abertoAte = relogio.getAsLong() + esperaAbertoMs;
+            logger.warn("Provedor indisponível após {} falhas consecutivas; novas chamadas suspensas por {} ms: {}",
+                    falhasConsecutivas, esperaAbertoMs, erro != null ? erro.getMessage() : "verificação falhou");
+        }
+    }
+
+    /**
+     * Envolve o fluxo de mensagens para registrar as falhas de comunicação lançadas durante o
+     * consumo. O sucesso é registrado no primeiro avanço e de novo só quando houver falhas
+     * pendentes, sem tomar o monitor a cada mensagem.
+     */
+    public <T> Stream<T> monitorar(Stream<T> fluxo) {
+        Spliterator<T> origem = fluxo.spliterator();
+        Spliterator<T> monitorado = new Spliterators.AbstractSpliterator<>(origem.estimateSize(),
+                origem.characteristics() & Spliterator.ORDERED) {
+            private boolean sucessoRegistrado;
+
+            @Override
+            public boolean tryAdvance(Consumer<? super T> acao) {
+                boolean avancou;
+                try {
+                    avancou = origem.tryAdvance(acao);
+                } catch (UncheckedIOException e) {
+                    registrarFalha(e.getCause());
+                    throw e;
+                }
+                if (!sucessoRegistrado || falhasConsecutivas > 0) {
+                    registrarSucesso();
+                    sucessoRegistrado = true;
+                }
+                return avancou;
+            }
+        };
+        return StreamSupport.stream(monitorado, false).onClose(fluxo::close);
+    }
+
+    private boolean circuitoAberto() {
+        return falhasConsecutivas >= falhasParaAbrir;
+    }
+}
@@ -0,0 +1,24 @@
+package com.gmailreader.service.provider;
+
+import com.google.api.services.gmail.model.Message;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.ToString;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+@Getter
+@AllArgsConstructor
+@ToString(exclude = "mensagens")
+public class ResultadoBuscaMensagens {
+
+    private final List<Message> mensagens;
+    private final Map<String, IOException> falhas;
+    private final long duracaoMs;
+
+    public boolean temFalhas() {
+        return !falhas.isEmpty();
+    }
+}
@@ -0,0 +1,72 @@
+package com.gmailreader.config;
+
+import com.gmailreader.service.PubSubMessageProcessor;
+import com.google.api.gax.batching.FlowControlSettings;
+import com.google.api.gax.batching.FlowController.LimitExceededBehavior;
+import com.google.cloud.pubsub.v1.Subscriber;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("PubSubMessageReceiver")
+class PubSubMessageReceiverTest {
+
+    @Mock
+    private PubSubMessageProcessor messageProcessor;
+
+    @Mock
+    private PubSubCredentialsManager credentialsManager;
+
+    private PubSubMessageReceiver receiver;
+
+    @BeforeEach
+    void setUp() {
+        receiver = new PubSubMessageReceiver(messageProcessor, credentialsManager);
+        ReflectionTestUtils.setField(receiver, "projectId", "projeto-teste");
+        ReflectionTestUtils.setField(receiver, "subscriptionId", "assinatura-teste");
+        ReflectionTestUtils.setField(receiver, "hostEmulador", "localhost:8085");
+    }
+
+    @AfterEach
+    void tearDown() {
+        receiver.encerrar();
+    }
+
+    @Test
+    @DisplayName("Deve aplicar controle de fluxo configurado ao subscriber")
+    void deveAplicarControleDeFluxo() {
+        ReflectionTestUtils.setField(receiver, "maxMensagensPendentes", 50L);
+        ReflectionTestUtils.setField(receiver, "maxMbPendentes", 2L);
+
+        Subscriber subscriber = receiver.construirSubscriber();
+
+        FlowControlSettings controle = subscriber.getFlowControlSettings();
+        assertEquals(50L, controle.getMaxOutstandingElementCount());
+        assertEquals(2L * 1024 * 1024, controle.getMaxOutstandingRequestBytes());
+        assertEquals(LimitExceededBehavior.Block, controle.getLimitExceededBehavior());
+        assertEquals("projects/projeto-teste/subscriptions/assinatura-teste", subscriber.getSubscriptionNameString());
+    }
+
+    @Test
+    @DisplayName("Deve usar o emulador sem carregar credenciais")
+    void deveUsarEmuladorSemCredenciais() {
+        receiver.construirSubscriber();
+
+        verifyNoInteractions(credentialsManager);
+    }
+
+    @Test
+    @DisplayName("Deve encerrar sem erro quando o subscriber não foi iniciado")
+    void deveEncerrarSemSubscriberIniciado() {
+        assertDoesNotThrow(() -> receiver.encerrar());
+    }
+}
@@ -0,0 +1,57 @@
+package com.gmailreader.repository;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gmailreader.constants.GmailConstants;
+import com.gmailreader.service.StorageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("DeadLetterFileRepository")
+class DeadLetterFileRepositoryTest {
+
+    @TempDir
+    Path pasta;
+
+    @Mock
+    private StorageService storageService;
+
+    private DeadLetterFileRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        when(storageService.obterLocalizacaoArmazenamento()).thenReturn(pasta.toString());
+        repository = new DeadLetterFileRepository(storageService);
+    }
+
+    @Test
+    @DisplayName("Deve acrescentar uma linha JSON por mensagem descartada")
+    void deveAcrescentarLinhaPorMensagem() throws Exception {
+        repository.registrar("m1", 5, "Falha na comunicação com Gmail API", "{\"historyId\":\"10\"}");
+        repository.registrar("m2", 3, "Erro", "não é JSON");
+
+        List<String> linhas = Files.readAllLines(pasta.resolve(GmailConstants.Storage.DEAD_LETTER_FILE),
+                StandardCharsets.UTF_8);
+        assertEquals(2, linhas.size());
+
+        JsonNode primeira = new ObjectMapper().readTree(linhas.get(0));
+        assertEquals("m1", primeira.get("messageId").asText());
+        assertEquals(5, primeira.get("tentativas").asInt());
+        assertEquals("{\"historyId\":\"10\"}", primeira.get("conteudo").asText());
+        assertEquals("não é JSON", new ObjectMapper().readTree(linhas.get(1)).get("conteudo").asText());
+    }
+}
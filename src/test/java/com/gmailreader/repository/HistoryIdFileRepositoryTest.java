@@ -0,0 +1,61 @@
+package com.gmailreader.repository;
+
+import com.gmailreader.service.StorageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("HistoryIdFileRepository")
+class HistoryIdFileRepositoryTest {
+
+    @TempDir
+    Path pasta;
+
+    @Mock
+    private StorageService storageService;
+
+    private HistoryIdFileRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        when(storageService.obterLocalizacaoArmazenamento()).thenReturn(pasta.toString());
+        repository = new HistoryIdFileRepository(storageService);
+    }
+
+    @Test
+    @DisplayName("Deve retornar vazio quando não há historyId salvo")
+    void deveRetornarVazioSemArquivo() {
+        assertEquals(Optional.empty(), repository.obterUltimoHistoryId());
+    }
+
+    @Test
+    @DisplayName("Deve salvar e sobrescrever o historyId")
+    void deveSalvarESobrescreverHistoryId() throws Exception {
+        repository.salvarHistoryId(new BigInteger("100"));
+        repository.salvarHistoryId(new BigInteger("987654321987654321"));
+
+        assertEquals(Optional.of(new BigInteger("987654321987654321")), repository.obterUltimoHistoryId());
+        assertFalse(Files.exists(pasta.resolve("ultimo_history_id.txt.tmp")));
+    }
+
+    @Test
+    @DisplayName("Deve ignorar conteúdo inválido")
+    void deveIgnorarConteudoInvalido() throws Exception {
+        Files.writeString(pasta.resolve("ultimo_history_id.txt"), "abc");
+
+        assertEquals(Optional.empty(), repository.obterUltimoHistoryId());
+    }
+}
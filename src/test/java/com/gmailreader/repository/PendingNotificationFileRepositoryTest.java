@@ -0,0 +1,57 @@
+package com.gmailreader.repository;
+
+import com.gmailreader.service.StorageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("PendingNotificationFileRepository")
+class PendingNotificationFileRepositoryTest {
+
+    @TempDir
+    Path pasta;
+
+    @Mock
+    private StorageService storageService;
+
+    private PendingNotificationFileRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        when(storageService.obterLocalizacaoArmazenamento()).thenReturn(pasta.toString());
+        repository = new PendingNotificationFileRepository(storageService);
+    }
+
+    @Test
+    @DisplayName("Deve salvar e recarregar os historyIds pendentes por caixa")
+    void deveSalvarERecarregarPendentes() throws Exception {
+        repository.salvar(Map.of("a@example.com", BigInteger.valueOf(10), "me", BigInteger.valueOf(20)));
+
+        assertEquals(Map.of("a@example.com", BigInteger.valueOf(10), "me", BigInteger.valueOf(20)), repository.carregar());
+
+        repository.salvar(Map.of());
+
+        assertTrue(repository.carregar().isEmpty());
+    }
+
+    @Test
+    @DisplayName("Deve ignorar linhas inválidas")
+    void deveIgnorarLinhasInvalidas() throws Exception {
+        Files.writeString(pasta.resolve("notificacoes_pendentes.txt"), "me=abc\nsem-separador\nb@example.com=7\n");
+
+        assertEquals(Map.of("b@example.com", BigInteger.valueOf(7)), repository.carregar());
+    }
+}
@@ -12,10 +12,13 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.io.File;
 import java.io.FileWriter;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -85,6 +88,19 @@ class ProcessedEmailFileRepositoryTest {
         assertTrue(repository.emailJaProcessado("msg789"));
     }
 
+    @Test
+    @DisplayName("Deve registrar email sem aguardar e concluir o futuro quando o ID está em disco")
+    void deveRegistrarEmailSemAguardar() throws Exception {
+        repository.inicializarIndice();
+
+        repository.registrarComoProcessado("msg321").get(5, TimeUnit.SECONDS);
+
+        assertTrue(repository.emailJaProcessado("msg321"));
+        assertTrue(Files.readString(tempDir.resolve("emails_processados.json")).contains("msg321"));
+        assertTrue(repository.registrarComoProcessado("msg321").isDone());
+        fileWriter.encerrar();
+    }
+
     @Test
     @DisplayName("Não deve duplicar email já processado")
     void naoDeveDuplicarEmailJaProcessado() {
@@ -159,6 +175,33 @@ class ProcessedEmailFileRepositoryTest {
         assertTrue(repository.emailJaProcessado("msg-valid-2"));
     }
 
+    @Test
+    @DisplayName("Não deve varrer arquivos diários por padrão")
+    void naoDeveVarrerArquivosDiariosPorPadrao() throws Exception {
+        File arquivoDiario = new File(tempDir.toFile(), "emails-2025-09-24.json");
+        try (FileWriter writer = new FileWriter(arquivoDiario)) {
+            writer.write("{\"id\":\"msg-diario\",\"assunto\":\"teste\"}\n");
+        }
+
+        repository.inicializarIndice();
+
+        assertFalse(repository.emailJaProcessado("msg-diario"));
+    }
+
+    @Test
+    @DisplayName("Deve varrer arquivos diários quando configurado")
+    void deveVarrerArquivosDiariosQuandoConfigurado() throws Exception {
+        ReflectionTestUtils.setField(repository, "incluirArquivosDiarios", true);
+        File arquivoDiario = new File(tempDir.toFile(), "emails-2025-09-24.json");
+        try (FileWriter writer = new FileWriter(arquivoDiario)) {
+            writer.write("{\"id\":\"msg-diario\",\"assunto\":\"teste\"}\n");
+        }
+
+        repository.inicializarIndice();
+
+        assertTrue(repository.emailJaProcessado("msg-diario"));
+    }
+
     @Test
     @DisplayName("Deve funcionar quando pasta não existe")
     void deveFuncionarQuandoPastaNaoExiste() {
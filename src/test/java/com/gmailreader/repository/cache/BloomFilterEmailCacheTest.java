@@ -0,0 +1,100 @@
+package com.gmailreader.repository.cache;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("BloomFilterEmailCache")
+class BloomFilterEmailCacheTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private InMemoryEmailCache delegate;
+    private BloomFilterEmailCache emailCache;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        delegate = new InMemoryEmailCache();
+        emailCache = new BloomFilterEmailCache(delegate, 10_000, 0.01, meterRegistry);
+    }
+
+    private double contagem(String resultado) {
+        return meterRegistry.counter("gmail.cache.filtro.consultas", "resultado", resultado).count();
+    }
+
+    @Test
+    @DisplayName("Deve responder email novo sem consultar o cache principal")
+    void deveResponderEmailNovoPeloFiltro() {
+        emailCache.carregar(Set.of("199977f240916f7a"));
+
+        assertFalse(emailCache.contem("19997ba5d72f415c"));
+        assertTrue(emailCache.contem("199977f240916f7a"));
+
+        assertEquals(1.0, contagem("novo"));
+        assertEquals(1.0, contagem("processado"));
+        assertEquals(0.5, emailCache.obterTaxaDescarte());
+    }
+
+    @Test
+    @DisplayName("Não deve gerar falsos negativos para IDs adicionados")
+    void naoDeveGerarFalsosNegativos() {
+        emailCache.carregar(Set.of());
+        Set<String> ids = new HashSet<>();
+        for (int i = 0; i < 5_000; i++) {
+            String id = i % 2 == 0 ? String.format("%016x", i * 31L + 7) : "msg-" + i;
+            ids.add(id);
+            emailCache.adicionar(id);
+        }
+
+        for (String id : ids) {
+            assertTrue(emailCache.contem(id));
+        }
+        assertEquals(0.0, contagem("novo"));
+    }
+
+    @Test
+    @DisplayName("Deve manter falsos positivos próximos da taxa configurada")
+    void deveManterFalsosPositivosProximosDaTaxa() {
+        Set<String> ids = new HashSet<>();
+        for (long i = 0; i < 10_000; i++) {
+            ids.add(String.format("%016x", i * 0x9E3779B97F4A7C15L));
+        }
+        emailCache.carregar(ids);
+
+        int falsosPositivos = 0;
+        for (long i = 0; i < 10_000; i++) {
+            if (emailCache.contem(String.format("%016x", (i + 1) * 0xC2B2AE3D27D4EB4FL))) {
+                falsosPositivos++;
+            }
+        }
+
+        assertEquals(0, falsosPositivos);
+        assertTrue(contagem("falso_positivo") < 300);
+    }
+
+    @Test
+    @DisplayName("Deve popular o filtro a partir de cache já carregado")
+    void devePopularFiltroAPartirDeCacheJaCarregado() {
+        delegate.carregar(Set.of("199977f240916f7a", "msg-especial"));
+
+        assertTrue(emailCache.estaCarregado());
+        assertTrue(emailCache.contem("199977f240916f7a"));
+        assertTrue(emailCache.contem("msg-especial"));
+        assertFalse(emailCache.contem("outro-id"));
+    }
+
+    @Test
+    @DisplayName("Deve repassar consultas ao cache enquanto não estiver carregado")
+    void deveRepassarConsultasEnquantoNaoCarregado() {
+        delegate.adicionar("msg1");
+
+        assertTrue(emailCache.contem("msg1"));
+        assertEquals(0.0, contagem("novo") + contagem("processado"));
+    }
+}
@@ -0,0 +1,126 @@
+package com.gmailreader.repository.cache;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("CompactEmailCache")
+class CompactEmailCacheTest {
+
+    private CompactEmailCache emailCache;
+
+    @BeforeEach
+    void setUp() {
+        emailCache = new CompactEmailCache();
+    }
+
+    @Test
+    @DisplayName("Deve adicionar e encontrar IDs hexadecimais do Gmail")
+    void deveAdicionarEEncontrarIdsHexadecimais() {
+        assertTrue(emailCache.adicionar("199977f240916f7a"));
+        assertFalse(emailCache.adicionar("199977f240916f7a"));
+
+        assertTrue(emailCache.contem("199977f240916f7a"));
+        assertFalse(emailCache.contem("199977f240916f7b"));
+        assertEquals(1, emailCache.tamanho());
+    }
+
+    @Test
+    @DisplayName("Deve usar conjunto alternativo para IDs fora do formato hexadecimal")
+    void deveUsarConjuntoAlternativoParaIdsNaoHexadecimais() {
+        assertTrue(emailCache.adicionar("msg-123_test@domain.com"));
+        assertTrue(emailCache.adicionar("199977F240916F7A"));
+        assertTrue(emailCache.adicionar("abc"));
+
+        assertTrue(emailCache.contem("msg-123_test@domain.com"));
+        assertTrue(emailCache.contem("199977F240916F7A"));
+        assertFalse(emailCache.contem("199977f240916f7a"));
+        assertEquals(3, emailCache.tamanho());
+    }
+
+    @Test
+    @DisplayName("Deve tratar ID com valor zero")
+    void deveTratarIdComValorZero() {
+        assertFalse(emailCache.contem("0000000000000000"));
+        assertTrue(emailCache.adicionar("0000000000000000"));
+        assertFalse(emailCache.adicionar("0000000000000000"));
+
+        assertTrue(emailCache.contem("0000000000000000"));
+        assertEquals(1, emailCache.tamanho());
+    }
+
+    @Test
+    @DisplayName("Deve manter todos os IDs após redimensionamentos")
+    void deveManterTodosOsIdsAposRedimensionamentos() {
+        Set<String> ids = new HashSet<>();
+        for (long i = 1; i <= 200_000; i++) {
+            ids.add(String.format("%016x", i * 0x9E3779B97F4A7C15L));
+        }
+
+        emailCache.carregar(ids);
+
+        assertTrue(emailCache.estaCarregado());
+        assertEquals(ids.size(), emailCache.tamanho());
+        for (String id : ids) {
+            assertTrue(emailCache.contem(id));
+        }
+        assertFalse(emailCache.contem("ffffffffffffffff"));
+    }
+
+    @Test
+    @DisplayName("Deve ignorar segunda carga e permitir nova carga após limpar")
+    void deveIgnorarSegundaCargaEPermitirNovaCargaAposLimpar() {
+        emailCache.carregar(Set.of("199977f240916f7a"));
+        emailCache.carregar(Set.of("19997ba5d72f415c"));
+
+        assertTrue(emailCache.contem("199977f240916f7a"));
+        assertFalse(emailCache.contem("19997ba5d72f415c"));
+
+        emailCache.limpar();
+
+        assertFalse(emailCache.estaCarregado());
+        assertEquals(0, emailCache.tamanho());
+        emailCache.carregar(Set.of("19997ba5d72f415c"));
+        assertTrue(emailCache.contem("19997ba5d72f415c"));
+    }
+
+    @Test
+    @DisplayName("Deve ser thread-safe para inserções concorrentes")
+    void deveSerThreadSafeParaInsercoesConcorrentes() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> futuros = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                futuros.add(executor.submit(() -> {
+                    int adicionados = 0;
+                    for (long i = 1; i <= 20_000; i++) {
+                        if (emailCache.adicionar(String.format("%016x", i))) {
+                            adicionados++;
+                        }
+                    }
+                    return adicionados;
+                }));
+            }
+
+            int total = 0;
+            for (Future<Integer> futuro : futuros) {
+                total += futuro.get();
+            }
+
+            assertEquals(20_000, total);
+            assertEquals(20_000, emailCache.tamanho());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,190 @@
+package com.gmailreader.repository.cache;
+
+import com.gmailreader.service.StorageService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("MappedFileEmailCache")
+class MappedFileEmailCacheTest {
+
+    @Mock
+    private StorageService storageService;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        when(storageService.obterLocalizacaoArmazenamento()).thenReturn(tempDir.toString());
+    }
+
+    private MappedFileEmailCache abrirCache() {
+        MappedFileEmailCache cache = new MappedFileEmailCache(storageService);
+        cache.abrir();
+        return cache;
+    }
+
+    private void escreverJson(String conteudo) throws Exception {
+        Files.writeString(tempDir.resolve("emails_processados.json"), conteudo, StandardCharsets.UTF_8);
+    }
+
+    @Test
+    @DisplayName("Não deve estar carregado quando o arquivo mapeado não existe")
+    void naoDeveEstarCarregadoQuandoArquivoNaoExiste() {
+        MappedFileEmailCache cache = abrirCache();
+
+        assertFalse(cache.estaCarregado());
+        assertFalse(cache.contem("199977f240916f7a"));
+    }
+
+    @Test
+    @DisplayName("Deve reabrir índice sem recarregar após fechamento limpo")
+    void deveReabrirIndiceAposFechamentoLimpo() throws Exception {
+        MappedFileEmailCache cache = abrirCache();
+        cache.carregar(Set.of("199977f240916f7a"));
+        assertTrue(cache.adicionar("19997ba5d72f415c"));
+        escreverJson("{\"id\":\"199977f240916f7a\"}\n{\"id\":\"19997ba5d72f415c\"}\n");
+        cache.fechar();
+
+        MappedFileEmailCache reaberto = abrirCache();
+
+        assertTrue(reaberto.estaCarregado());
+        assertEquals(2, reaberto.tamanho());
+        assertTrue(reaberto.contem("199977f240916f7a"));
+        assertTrue(reaberto.contem("19997ba5d72f415c"));
+        assertFalse(reaberto.contem("199976f39f973f8d"));
+    }
+
+    @Test
+    @DisplayName("Deve exigir reconstrução quando o índice não foi fechado corretamente")
+    void deveExigirReconstrucaoQuandoNaoFoiFechado() throws Exception {
+        MappedFileEmailCache cache = abrirCache();
+        cache.carregar(Set.of("199977f240916f7a"));
+        escreverJson("{\"id\":\"199977f240916f7a\"}\n");
+        // queda entre a entrada no índice e a gravação da linha no JSON
+        cache.adicionar("19997ba5d72f415c");
+
+        MappedFileEmailCache reaberto = abrirCache();
+
+        assertFalse(reaberto.estaCarregado());
+        reaberto.carregar(Set.of("199977f240916f7a"));
+        assertFalse(reaberto.contem("19997ba5d72f415c"));
+    }
+
+    @Test
+    @DisplayName("Deve exigir reconstrução quando o JSON mudou após o fechamento")
+    void deveExigirReconstrucaoQuandoJsonMudou() throws Exception {
+        MappedFileEmailCache cache = abrirCache();
+        cache.carregar(Set.of("199977f240916f7a"));
+        escreverJson("{\"id\":\"199977f240916f7a\"}\n");
+        cache.fechar();
+        escreverJson("{\"id\":\"199977f240916f7a\"}\n{\"id\":\"19997ba5d72f415c\"}\n");
+
+        MappedFileEmailCache reaberto = abrirCache();
+
+        assertFalse(reaberto.estaCarregado());
+    }
+
+    @Test
+    @DisplayName("Deve exigir reconstrução quando o cabeçalho está corrompido")
+    void deveExigirReconstrucaoQuandoCabecalhoCorrompido() throws Exception {
+        MappedFileEmailCache cache = abrirCache();
+        cache.carregar(Set.of("199977f240916f7a"));
+        cache.fechar();
+
+        try (RandomAccessFile arquivo = new RandomAccessFile(tempDir.resolve("emails_processados.idx").toFile(), "rw")) {
+            arquivo.writeInt(0xDEADBEEF);
+        }
+
+        MappedFileEmailCache reaberto = abrirCache();
+
+        assertFalse(reaberto.estaCarregado());
+        reaberto.carregar(Set.of("19997ba5d72f415c"));
+        assertTrue(reaberto.estaCarregado());
+        assertTrue(reaberto.contem("19997ba5d72f415c"));
+    }
+
+    @Test
+    @DisplayName("Deve exigir reconstrução quando há IDs fora do formato hexadecimal")
+    void deveExigirReconstrucaoComIdsNaoHexadecimais() {
+        MappedFileEmailCache cache = abrirCache();
+        cache.carregar(Set.of("199977f240916f7a"));
+        assertTrue(cache.adicionar("msg-123_test@domain.com"));
+        assertTrue(cache.contem("msg-123_test@domain.com"));
+        cache.fechar();
+
+        MappedFileEmailCache reaberto = abrirCache();
+
+        assertFalse(reaberto.estaCarregado());
+    }
+
+    @Test
+    @DisplayName("Deve preservar IDs ao expandir o arquivo mapeado")
+    void devePreservarIdsAoExpandir() {
+        MappedFileEmailCache cache = abrirCache();
+        cache.carregar(Set.of());
+
+        Set<String> ids = new HashSet<>();
+        for (long i = 1; i <= 100_000; i++) {
+            String id = String.format("%016x", i * 0x9E3779B97F4A7C15L);
+            ids.add(id);
+            assertTrue(cache.adicionar(id));
+        }
+
+        assertEquals(ids.size(), cache.tamanho());
+        for (String id : ids) {
+            assertTrue(cache.contem(id));
+        }
+        assertFalse(Files.exists(tempDir.resolve("emails_processados.idx.tmp")));
+    }
+
+    @Test
+    @DisplayName("Deve responder leituras concorrentes enquanto a tabela cresce")
+    void deveResponderLeiturasConcorrentesDuranteCrescimento() throws Exception {
+        MappedFileEmailCache cache = abrirCache();
+        cache.carregar(Set.of());
+        String primeiro = String.format("%016x", 0x9E3779B97F4A7C15L);
+        cache.adicionar(primeiro);
+
+        AtomicBoolean escrevendo = new AtomicBoolean(true);
+        AtomicReference<Throwable> erro = new AtomicReference<>();
+        Thread leitor = new Thread(() -> {
+            try {
+                while (escrevendo.get()) {
+                    if (!cache.contem(primeiro)) {
+                        throw new AssertionError("ID perdido durante o crescimento");
+                    }
+                }
+            } catch (Throwable e) {
+                erro.set(e);
+            }
+        });
+        leitor.start();
+
+        for (long i = 2; i <= 200_000; i++) {
+            cache.adicionar(String.format("%016x", i * 0x9E3779B97F4A7C15L));
+        }
+        escrevendo.set(false);
+        leitor.join(10_000);
+
+        assertNull(erro.get());
+    }
+}
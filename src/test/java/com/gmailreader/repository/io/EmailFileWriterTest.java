@@ -0,0 +1,146 @@
+package com.gmailreader.repository.io;
+
+import org.json.JSONObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("EmailFileWriter")
+class EmailFileWriterTest {
+
+    private static final String ARQUIVO = "emails_processados.json";
+
+    private EmailFileWriter fileWriter;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        fileWriter = new EmailFileWriter();
+    }
+
+    @AfterEach
+    void tearDown() {
+        fileWriter.encerrar();
+    }
+
+    private List<String> lerIds() throws Exception {
+        List<String> ids = new ArrayList<>();
+        for (String linha : Files.readAllLines(tempDir.resolve(ARQUIVO), StandardCharsets.UTF_8)) {
+            ids.add(new JSONObject(linha).getString("id"));
+        }
+        return ids;
+    }
+
+    @Test
+    @DisplayName("Deve gravar o ID antes de retornar")
+    void deveGravarIdAntesDeRetornar() throws Exception {
+        fileWriter.salvarEmailId(tempDir.toString(), ARQUIVO, "199977f240916f7a");
+        fileWriter.salvarEmailId(tempDir.toString(), ARQUIVO, "19997ba5d72f415c");
+
+        assertEquals(List.of("199977f240916f7a", "19997ba5d72f415c"), lerIds());
+    }
+
+    @Test
+    @DisplayName("Deve criar a pasta e escapar IDs com caracteres especiais")
+    void deveCriarPastaEEscaparIds() throws Exception {
+        Path pasta = tempDir.resolve("sub");
+
+        fileWriter.salvarEmailId(pasta.toString(), ARQUIVO, "id \"com\" aspas\\barra");
+
+        String linha = Files.readString(pasta.resolve(ARQUIVO), StandardCharsets.UTF_8);
+        assertEquals("id \"com\" aspas\\barra", new JSONObject(linha.trim()).getString("id"));
+    }
+
+    @Test
+    @DisplayName("Deve agrupar gravações concorrentes sem perder IDs")
+    void deveAgruparGravacoesConcorrentes() throws Exception {
+        ReflectionTestUtils.setField(fileWriter, "tamanhoLote", 64);
+        ReflectionTestUtils.setField(fileWriter, "politicaSincronizacao", EmailFileWriter.PoliticaSincronizacao.LOTE);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            List<Future<?>> futuros = new ArrayList<>();
+            for (int t = 0; t < 8; t++) {
+                int thread = t;
+                futuros.add(executor.submit(() -> {
+                    for (int i = 0; i < 500; i++) {
+                        fileWriter.salvarEmailId(tempDir.toString(), ARQUIVO, String.format("%08x%08x", thread, i));
+                    }
+                }));
+            }
+            for (Future<?> futuro : futuros) {
+                futuro.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<String> ids = lerIds();
+        assertEquals(4000, ids.size());
+        assertEquals(4000, new HashSet<>(ids).size());
+    }
+
+    @Test
+    @DisplayName("Deve completar o futuro somente após gravar o lote")
+    void deveCompletarFuturoAposGravarLote() throws Exception {
+        ReflectionTestUtils.setField(fileWriter, "intervaloMs", 50L);
+
+        List<CompletableFuture<Void>> futuros = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            futuros.add(fileWriter.agendarEmailId(tempDir.toString(), ARQUIVO, "id-" + i));
+        }
+        CompletableFuture.allOf(futuros.toArray(new CompletableFuture[0])).get(5, TimeUnit.SECONDS);
+
+        assertEquals(10, lerIds().size());
+    }
+
+    @Test
+    @DisplayName("Deve gravar pendências ao encerrar e recusar novos IDs")
+    void deveGravarPendenciasAoEncerrar() throws Exception {
+        ReflectionTestUtils.setField(fileWriter, "intervaloMs", 200L);
+        Set<String> esperados = new HashSet<>();
+        for (int i = 0; i < 5; i++) {
+            esperados.add("id-" + i);
+            fileWriter.agendarEmailId(tempDir.toString(), ARQUIVO, "id-" + i);
+        }
+
+        fileWriter.encerrar();
+
+        assertEquals(esperados, new HashSet<>(lerIds()));
+        CompletableFuture<Void> recusado = fileWriter.agendarEmailId(tempDir.toString(), ARQUIVO, "tardio");
+        assertTrue(recusado.isCompletedExceptionally());
+    }
+
+    @Test
+    @DisplayName("Deve retomar a gravação com uma nova thread quando a escritora termina")
+    void deveRetomarGravacaoQuandoEscritoraTermina() throws Exception {
+        fileWriter.salvarEmailId(tempDir.toString(), ARQUIVO, "id-1");
+        Thread escritora = (Thread) ReflectionTestUtils.getField(fileWriter, "escritor");
+
+        escritora.interrupt();
+        escritora.join(5_000);
+
+        fileWriter.agendarEmailId(tempDir.toString(), ARQUIVO, "id-2").get(5, TimeUnit.SECONDS);
+        assertEquals(List.of("id-1", "id-2"), lerIds());
+    }
+}
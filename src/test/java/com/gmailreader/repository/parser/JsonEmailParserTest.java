@@ -0,0 +1,141 @@
+package com.gmailreader.repository.parser;
+
+import com.gmailreader.repository.io.EmailFileReader;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("JsonEmailParser")
+class JsonEmailParserTest {
+
+    private JsonEmailParser jsonParser;
+    private EmailFileReader fileReader;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        jsonParser = new JsonEmailParser();
+        fileReader = new EmailFileReader();
+    }
+
+    private String extrair(String linha) {
+        byte[] dados = linha.getBytes(StandardCharsets.UTF_8);
+        return jsonParser.extrairId(dados, 0, dados.length);
+    }
+
+    private File criarArquivo(String nome, String conteudo) throws Exception {
+        File arquivo = new File(tempDir.toFile(), nome);
+        try (FileWriter writer = new FileWriter(arquivo, StandardCharsets.UTF_8)) {
+            writer.write(conteudo);
+        }
+        return arquivo;
+    }
+
+    @Test
+    @DisplayName("Deve extrair ID de linha simples")
+    void deveExtrairIdDeLinhaSimples() {
+        assertEquals("199977f240916f7a", extrair("{\"id\":\"199977f240916f7a\"}"));
+    }
+
+    @Test
+    @DisplayName("Deve extrair ID que não é o primeiro campo")
+    void deveExtrairIdQueNaoEhOPrimeiroCampo() {
+        String linha = "{ \"assunto\" : \"teste \\\"id\\\"\", \"meta\": {\"id\": \"interno\"}, \"lista\": [1, {\"a\": 2}],"
+                + " \"temAnexo\": false, \"id\" : \"msg-externo\" }";
+
+        assertEquals("msg-externo", extrair(linha));
+    }
+
+    @Test
+    @DisplayName("Deve decodificar escapes no valor do ID")
+    void deveDecodificarEscapesNoValorDoId() {
+        assertEquals("msg\"1", extrair("{\"id\":\"msg\\\"1\"}"));
+    }
+
+    @Test
+    @DisplayName("Deve retornar null para linhas sem ID ou inválidas")
+    void deveRetornarNullParaLinhasSemIdOuInvalidas() {
+        assertNull(extrair("invalid json line"));
+        assertNull(extrair("{\"outro\":\"valor\"}"));
+        assertNull(extrair("{\"id\":123}"));
+        assertNull(extrair("{\"id\":\"sem-fim"));
+    }
+
+    @Test
+    @DisplayName("Deve carregar IDs em streaming de múltiplos arquivos")
+    void deveCarregarIdsEmStreamingDeMultiplosArquivos() throws Exception {
+        File arquivo1 = criarArquivo("a.json", "{\"id\":\"msg1\"}\n\n   \n{\"id\":\"msg2\"}\r\n");
+        File arquivo2 = criarArquivo("b.json", "{\"id\":\"msg3\",\"corpo\":\"Olá ç\"}\ninvalida\n{\"id\":\"msg1\"}");
+
+        ResultadoCargaIndice resultado = jsonParser.extrairIdsEmStreaming(
+                List.of(arquivo1, arquivo2), fileReader::percorrerLinhas);
+
+        assertEquals(3, resultado.getIds().size());
+        assertTrue(resultado.getIds().containsAll(List.of("msg1", "msg2", "msg3")));
+        assertEquals(2, resultado.getArquivosLidos());
+        assertEquals(1, resultado.getLinhasInvalidas());
+        assertEquals(arquivo1.length() + arquivo2.length(), resultado.getBytesLidos());
+    }
+
+    @Test
+    @DisplayName("Deve ler linhas maiores que o buffer de leitura")
+    void deveLerLinhasMaioresQueOBuffer() throws Exception {
+        String corpoGrande = "x".repeat(200 * 1024);
+        File arquivo = criarArquivo("grande.json",
+                "{\"id\":\"msg1\",\"corpo\":\"" + corpoGrande + "\"}\n{\"id\":\"msg2\"}\n");
+
+        ResultadoCargaIndice resultado = jsonParser.extrairIdsEmStreaming(
+                List.of(arquivo), fileReader::percorrerLinhas);
+
+        assertEquals(2, resultado.getIds().size());
+        assertTrue(resultado.getIds().contains("msg1"));
+        assertTrue(resultado.getIds().contains("msg2"));
+    }
+
+    @Test
+    @DisplayName("Deve carregar em paralelo os mesmos IDs da carga sequencial")
+    void deveCarregarEmParaleloOsMesmosIdsDaCargaSequencial() throws Exception {
+        StringBuilder conteudo = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            conteudo.append("{\"id\":\"msg-").append(i).append("\",\"corpo\":\"")
+                    .append("y".repeat(i % 37)).append("\"}\n");
+        }
+        File arquivo1 = criarArquivo("emails-1.json", conteudo.toString());
+        File arquivo2 = criarArquivo("emails-2.json", "{\"id\":\"outro-1\"}\n{\"id\":\"outro-2\"}");
+
+        ResultadoCargaIndice sequencial = jsonParser.extrairIdsEmStreaming(
+                List.of(arquivo1, arquivo2), fileReader::percorrerLinhas);
+        ResultadoCargaIndice paralelo = jsonParser.extrairIdsEmParalelo(
+                List.of(arquivo1, arquivo2), fileReader::percorrerLinhas, 4, 97);
+
+        assertEquals(502, paralelo.getIds().size());
+        assertEquals(sequencial.getIds(), paralelo.getIds());
+        assertEquals(0, paralelo.getLinhasInvalidas());
+    }
+
+    @Test
+    @DisplayName("Deve ler segmento respeitando limites de linha")
+    void deveLerSegmentoRespeitandoLimitesDeLinha() throws Exception {
+        File arquivo = criarArquivo("seg.json", "{\"id\":\"a\"}\n{\"id\":\"b\"}\n{\"id\":\"c\"}\n");
+        List<String> primeiro = new ArrayList<>();
+        List<String> segundo = new ArrayList<>();
+
+        fileReader.percorrerLinhas(arquivo, 0, 13, (dados, inicio, fim) -> primeiro.add(jsonParser.extrairId(dados, inicio, fim)));
+        fileReader.percorrerLinhas(arquivo, 13, Long.MAX_VALUE, (dados, inicio, fim) -> segundo.add(jsonParser.extrairId(dados, inicio, fim)));
+
+        assertEquals(List.of("a", "b"), primeiro);
+        assertEquals(List.of("c"), segundo);
+    }
+}
@@ -0,0 +1,153 @@
+package com.gmailreader.service;
+
+import com.gmailreader.service.provider.MensagemNaoEncontradaException;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("DeferredReadMarker")
+class DeferredReadMarkerTest {
+
+    @Mock
+    private GmailModifierService gmailModifierService;
+
+    private SimpleMeterRegistry meterRegistry;
+    private DeferredReadMarker deferredReadMarker;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        deferredReadMarker = new DeferredReadMarker(gmailModifierService,
+                new StaticListableBeanFactory(Map.of("meterRegistry", meterRegistry)).getBeanProvider(MeterRegistry.class));
+        ReflectionTestUtils.setField(deferredReadMarker, "adiada", true);
+        ReflectionTestUtils.setField(deferredReadMarker, "tamanhoLote", 1000);
+        ReflectionTestUtils.setField(deferredReadMarker, "tentativas", 2);
+    }
+
+    private double contador(String nome, String resultado) {
+        return resultado == null
+                ? meterRegistry.get(nome).counter().count()
+                : meterRegistry.get(nome).tag("resultado", resultado).counter().count();
+    }
+
+    @Test
+    @DisplayName("Deve funcionar sem MeterRegistry no contexto")
+    void deveFuncionarSemMeterRegistry() throws Exception {
+        DeferredReadMarker semRegistro = new DeferredReadMarker(gmailModifierService,
+                new StaticListableBeanFactory().getBeanProvider(MeterRegistry.class));
+        ReflectionTestUtils.setField(semRegistro, "adiada", true);
+        ReflectionTestUtils.setField(semRegistro, "tamanhoLote", 1000);
+
+        semRegistro.agendar("msg1");
+        semRegistro.descarregar();
+
+        verify(gmailModifierService).marcarComoLidosEmMassa(List.of("msg1"));
+    }
+
+    @Test
+    @DisplayName("Deve acumular IDs até descarregar")
+    void deveAcumularIdsAteDescarregar() throws Exception {
+        deferredReadMarker.agendar("msg1");
+        deferredReadMarker.agendar("msg2");
+
+        verifyNoInteractions(gmailModifierService);
+        assertEquals(2, deferredReadMarker.quantidadePendente());
+        assertEquals(2, meterRegistry.get("gmail.leitura.pendentes").gauge().value());
+
+        deferredReadMarker.descarregar();
+
+        verify(gmailModifierService).marcarComoLidosEmMassa(List.of("msg1", "msg2"));
+        assertEquals(0, deferredReadMarker.quantidadePendente());
+        assertEquals(2, contador("gmail.leitura.ids.marcados", null));
+        assertEquals(1, contador("gmail.leitura.lotes", "sucesso"));
+    }
+
+    @Test
+    @DisplayName("Deve enviar automaticamente quando o lote enche")
+    void deveEnviarQuandoLoteEnche() throws Exception {
+        ReflectionTestUtils.setField(deferredReadMarker, "tamanhoLote", 2);
+
+        deferredReadMarker.agendar("msg1");
+        deferredReadMarker.agendar("msg2");
+        deferredReadMarker.agendar("msg3");
+
+        verify(gmailModifierService).marcarComoLidosEmMassa(List.of("msg1", "msg2"));
+        assertEquals(1, deferredReadMarker.quantidadePendente());
+    }
+
+    @Test
+    @DisplayName("Deve limitar cada chamada a 1000 IDs")
+    void deveLimitarCadaChamadaA1000Ids() throws Exception {
+        ReflectionTestUtils.setField(deferredReadMarker, "tamanhoLote", 5000);
+        List<List<String>> chamadas = new ArrayList<>();
+        doAnswer(invocacao -> chamadas.add(new ArrayList<>(invocacao.<List<String>>getArgument(0))))
+                .when(gmailModifierService).marcarComoLidosEmMassa(anyList());
+
+        for (int i = 0; i < 2500; i++) {
+            deferredReadMarker.agendar("msg" + i);
+        }
+        deferredReadMarker.descarregar();
+
+        assertEquals(List.of(1000, 1000, 500), chamadas.stream().map(List::size).toList());
+    }
+
+    @Test
+    @DisplayName("Deve tentar novamente e manter IDs quando o envio falha")
+    void deveTentarNovamenteEManterIdsQuandoEnvioFalha() throws Exception {
+        doThrow(new IOException("503")).when(gmailModifierService).marcarComoLidosEmMassa(anyList());
+        when(gmailModifierService.marcarComoLidos(anyList())).thenThrow(new IOException("503"));
+
+        deferredReadMarker.agendar("msg1");
+        deferredReadMarker.descarregar();
+
+        verify(gmailModifierService, times(2)).marcarComoLidosEmMassa(List.of("msg1"));
+        verify(gmailModifierService).marcarComoLidos(List.of("msg1"));
+        assertEquals(1, deferredReadMarker.quantidadePendente());
+        assertEquals(1, contador("gmail.leitura.lotes", "falha"));
+
+        reset(gmailModifierService);
+        deferredReadMarker.agendar("msg2");
+        deferredReadMarker.descarregar();
+
+        ArgumentCaptor<List<String>> captor = ArgumentCaptor.forClass(List.class);
+        verify(gmailModifierService).marcarComoLidosEmMassa(captor.capture());
+        assertEquals(List.of("msg1", "msg2"), captor.getValue());
+        assertEquals(0, deferredReadMarker.quantidadePendente());
+    }
+
+    @Test
+    @DisplayName("Deve reenviar individualmente o lote recusado e manter só os IDs que falharam")
+    void deveReenviarIndividualmenteLoteRecusado() throws Exception {
+        doThrow(new IOException("400")).when(gmailModifierService).marcarComoLidosEmMassa(anyList());
+        when(gmailModifierService.marcarComoLidos(List.of("msg1", "msg2", "msg3"))).thenReturn(Map.of(
+                "msg2", new MensagemNaoEncontradaException("msg2", null),
+                "msg3", new IOException("503")));
+
+        deferredReadMarker.agendar("msg1");
+        deferredReadMarker.agendar("msg2");
+        deferredReadMarker.agendar("msg3");
+        deferredReadMarker.descarregar();
+
+        assertEquals(1, deferredReadMarker.quantidadePendente());
+        assertEquals(1, contador("gmail.leitura.ids.marcados", null));
+        assertEquals(1, contador("gmail.leitura.lotes", "falha"));
+    }
+}
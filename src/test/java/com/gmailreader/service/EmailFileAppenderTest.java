@@ -0,0 +1,236 @@
+package com.gmailreader.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("EmailFileAppender")
+class EmailFileAppenderTest {
+
+    private EmailFileAppender fileAppender;
+
+    @TempDir
+    Path tempDir;
+
+    @BeforeEach
+    void setUp() {
+        fileAppender = new EmailFileAppender();
+    }
+
+    @AfterEach
+    void tearDown() {
+        fileAppender.encerrar();
+    }
+
+    @Test
+    @DisplayName("Deve gravar cada email imediatamente sem intervalo de lote")
+    void deveGravarImediatamenteSemIntervalo() throws Exception {
+        File arquivo = tempDir.resolve("emails-2024-10-02.json").toFile();
+
+        fileAppender.anexar(arquivo, "{\"id\":\"001\",\"assunto\":\"Olá, ação\"}");
+
+        String conteudo = Files.readString(arquivo.toPath(), StandardCharsets.UTF_8);
+        assertEquals("{\"id\":\"001\",\"assunto\":\"Olá, ação\"}" + System.lineSeparator(), conteudo);
+    }
+
+    @Test
+    @DisplayName("Deve acumular emails no buffer até descarregar")
+    void deveAcumularEmailsAteDescarregar() throws Exception {
+        ReflectionTestUtils.setField(fileAppender, "intervaloMs", 60_000L);
+        File arquivo = tempDir.resolve("emails-2024-10-02.json").toFile();
+
+        fileAppender.anexar(arquivo, "{\"id\":\"001\"}");
+        fileAppender.anexar(arquivo, "{\"id\":\"002\"}");
+        assertEquals(0, Files.size(arquivo.toPath()));
+
+        fileAppender.descarregar();
+
+        assertEquals(2, Files.readString(arquivo.toPath()).lines().count());
+    }
+
+    @Test
+    @DisplayName("Deve gravar emails maiores que o buffer")
+    void deveGravarEmailsMaioresQueBuffer() throws Exception {
+        ReflectionTestUtils.setField(fileAppender, "tamanhoBufferKb", 4);
+        File arquivo = tempDir.resolve("emails-2024-10-02.json").toFile();
+        String corpo = "é".repeat(10_000);
+
+        fileAppender.anexar(arquivo, corpo);
+
+        assertEquals(corpo + System.lineSeparator(), Files.readString(arquivo.toPath(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Deve gravar conteúdo em fluxo maior que o buffer")
+    void deveGravarConteudoEmFluxoMaiorQueBuffer() throws Exception {
+        ReflectionTestUtils.setField(fileAppender, "tamanhoBufferKb", 4);
+        File arquivo = tempDir.resolve("emails-2024-10-02.json").toFile();
+        byte[] corpo = "ação ".repeat(5_000).getBytes(StandardCharsets.UTF_8);
+
+        fileAppender.anexar(arquivo, saida -> {
+            saida.write('[');
+            saida.write(corpo, 0, corpo.length);
+            saida.write(']');
+        });
+
+        assertEquals("[" + "ação ".repeat(5_000) + "]" + System.lineSeparator(),
+                Files.readString(arquivo.toPath(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Deve descartar os bytes parciais quando a escrita em fluxo falha")
+    void deveDescartarBytesParciaisQuandoEscritaFalha() throws Exception {
+        ReflectionTestUtils.setField(fileAppender, "intervaloMs", 60_000L);
+        File arquivo = tempDir.resolve("emails-2024-10-02.json").toFile();
+
+        fileAppender.anexar(arquivo, "{\"id\":\"001\"}");
+        assertThrows(IOException.class, () -> fileAppender.anexar(arquivo, saida -> {
+            saida.write("{\"id\":".getBytes(StandardCharsets.UTF_8));
+            throw new IOException("Falha na serialização");
+        }));
+        fileAppender.descarregar();
+
+        assertEquals("{\"id\":\"001\"}" + System.lineSeparator(),
+                Files.readString(arquivo.toPath(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Deve remover do arquivo o email maior que o buffer cuja escrita em fluxo falhou")
+    void deveRemoverEmailIncompletoMaiorQueBuffer() throws Exception {
+        ReflectionTestUtils.setField(fileAppender, "tamanhoBufferKb", 4);
+        ReflectionTestUtils.setField(fileAppender, "intervaloMs", 60_000L);
+        File arquivo = tempDir.resolve("emails-2024-10-02.json").toFile();
+        byte[] trecho = "x".repeat(10_000).getBytes(StandardCharsets.UTF_8);
+
+        fileAppender.anexar(arquivo, "{\"id\":\"001\"}");
+        assertThrows(IOException.class, () -> fileAppender.anexar(arquivo, saida -> {
+            saida.write(trecho);
+            throw new IOException("Falha na serialização");
+        }));
+        assertTrue(Files.size(arquivo.toPath()) < trecho.length);
+        fileAppender.anexar(arquivo, "{\"id\":\"003\"}");
+        fileAppender.descarregar();
+
+        assertEquals("{\"id\":\"001\"}" + System.lineSeparator() + "{\"id\":\"003\"}" + System.lineSeparator(),
+                Files.readString(arquivo.toPath(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    @DisplayName("Deve manter o lote no buffer quando a descarga falha e gravá-lo na próxima")
+    void deveManterLoteQuandoDescargaFalha() throws Exception {
+        ReflectionTestUtils.setField(fileAppender, "intervaloMs", 60_000L);
+        File arquivo = tempDir.resolve("emails-2024-10-02.json").toFile();
+        List<String> registrados = new ArrayList<>();
+
+        fileAppender.anexar(arquivo, "{\"id\":\"001\"}");
+        CompletableFuture<Void> registro = fileAppender.aposDescarga(() -> registrar(registrados, "001"));
+        ((FileChannel) ReflectionTestUtils.getField(fileAppender, "canal")).close();
+
+        assertThrows(IOException.class, () -> fileAppender.descarregar());
+        assertEquals(List.of(), registrados);
+
+        fileAppender.anexar(arquivo, "{\"id\":\"002\"}");
+        fileAppender.descarregar();
+
+        assertEquals("{\"id\":\"001\"}" + System.lineSeparator() + "{\"id\":\"002\"}" + System.lineSeparator(),
+                Files.readString(arquivo.toPath(), StandardCharsets.UTF_8));
+        assertEquals(List.of("001"), registrados);
+        assertTrue(registro.isDone());
+    }
+
+    @Test
+    @DisplayName("Deve executar na hora a ação posterior quando não há linhas pendentes")
+    void deveExecutarAcaoNaHoraSemPendencias() throws Exception {
+        File arquivo = tempDir.resolve("emails-2024-10-02.json").toFile();
+        List<String> registrados = new ArrayList<>();
+
+        fileAppender.anexar(arquivo, "{\"id\":\"001\"}");
+        fileAppender.aposDescarga(() -> registrar(registrados, "001"));
+
+        assertEquals(List.of("001"), registrados);
+    }
+
+    @Test
+    @DisplayName("Deve executar as ações liberadas fora do lock e repassar a falha delas")
+    void deveExecutarAcoesForaDoLockERepassarFalha() throws Exception {
+        ReflectionTestUtils.setField(fileAppender, "intervaloMs", 60_000L);
+        File arquivo = tempDir.resolve("emails-2024-10-02.json").toFile();
+        CompletableFuture<Void> gravacaoLenta = new CompletableFuture<>();
+        List<Boolean> lockLivre = new ArrayList<>();
+
+        fileAppender.anexar(arquivo, "{\"id\":\"001\"}");
+        CompletableFuture<Void> lento = fileAppender.aposDescarga(() -> {
+            lockLivre.add(!Thread.holdsLock(fileAppender));
+            return gravacaoLenta;
+        });
+        CompletableFuture<Void> falho = fileAppender.aposDescarga(
+                () -> CompletableFuture.failedFuture(new IOException("Disco cheio")));
+
+        fileAppender.descarregar();
+
+        assertEquals(List.of(true), lockLivre);
+        assertFalse(lento.isDone());
+        ExecutionException erro = assertThrows(ExecutionException.class, falho::get);
+        assertEquals("Disco cheio", erro.getCause().getMessage());
+
+        gravacaoLenta.complete(null);
+        assertTrue(lento.isDone());
+    }
+
+    @Test
+    @DisplayName("Deve falhar as ações pendentes quando o gravador é encerrado sem gravá-las")
+    void deveFalharAcoesPendentesNoEncerramento() throws Exception {
+        ReflectionTestUtils.setField(fileAppender, "intervaloMs", 60_000L);
+        File arquivo = tempDir.resolve("emails-2024-10-02.json").toFile();
+
+        fileAppender.anexar(arquivo, "{\"id\":\"001\"}");
+        CompletableFuture<Void> registro = fileAppender.aposDescarga(() -> CompletableFuture.completedFuture(null));
+        ((FileChannel) ReflectionTestUtils.getField(fileAppender, "canal")).close();
+        Files.delete(arquivo.toPath());
+        Files.createDirectory(arquivo.toPath());
+
+        fileAppender.encerrar();
+
+        assertTrue(registro.isCompletedExceptionally());
+    }
+
+    private static CompletableFuture<Void> registrar(List<String> registrados, String id) {
+        registrados.add(id);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @Test
+    @DisplayName("Deve descarregar pendências ao trocar de arquivo e ao encerrar")
+    void deveDescarregarAoTrocarDeArquivoEAoEncerrar() throws Exception {
+        ReflectionTestUtils.setField(fileAppender, "intervaloMs", 60_000L);
+        File primeiro = tempDir.resolve("emails-2024-10-02.json").toFile();
+        File segundo = tempDir.resolve("emails-2024-10-03.json").toFile();
+
+        fileAppender.anexar(primeiro, "{\"id\":\"001\"}");
+        fileAppender.anexar(segundo, "{\"id\":\"002\"}");
+
+        assertTrue(Files.readString(primeiro.toPath()).contains("001"));
+        assertEquals(0, Files.size(segundo.toPath()));
+
+        fileAppender.encerrar();
+
+        assertTrue(Files.readString(segundo.toPath()).contains("002"));
+        assertThrows(IllegalStateException.class, () -> fileAppender.anexar(segundo, "{\"id\":\"003\"}"));
+    }
+}
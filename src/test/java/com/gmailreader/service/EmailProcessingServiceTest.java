@@ -1,20 +1,34 @@
 package com.gmailreader.service;
 
 import com.gmailreader.exception.GmailReaderException;
+import com.gmailreader.repository.ProcessedEmailFileRepository;
 import com.gmailreader.service.processing.ProcessingContext;
 import com.gmailreader.service.processing.ProcessingStep;
+import com.gmailreader.service.processing.RelatorioProcessamento;
+import com.gmailreader.service.provider.MensagemNaoEncontradaException;
+import com.gmailreader.service.provider.ResultadoBuscaMensagens;
 import com.google.api.services.gmail.model.Message;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
 import java.util.Arrays;
-import java.util.Collections;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -30,11 +44,21 @@ class EmailProcessingServiceTest {
     @Mock
     private ProcessingStep processingChain;
 
+    @Mock
+    private DeferredReadMarker deferredReadMarker;
+
+    @Mock
+    private ProcessedEmailFileRepository processedEmailRepository;
+
+    @Mock
+    private StorageService storageService;
+
     private EmailProcessingService emailProcessingService;
 
     @BeforeEach
     void setUp() {
-        emailProcessingService = new EmailProcessingService(gmailReaderService, processingChain);
+        emailProcessingService = new EmailProcessingService(gmailReaderService, processingChain, deferredReadMarker,
+                processedEmailRepository, storageService);
     }
 
     @Test
@@ -46,14 +70,103 @@ class EmailProcessingServiceTest {
                 new Message().setId("msg3")
         );
 
-        when(gmailReaderService.listarEmails()).thenReturn(messages);
+        when(gmailReaderService.listarEmailsEmFluxo(any(), any())).thenAnswer(invocacao -> messages.stream());
 
         emailProcessingService.processarEmails();
 
-        verify(gmailReaderService).listarEmails();
+        verify(gmailReaderService).listarEmailsEmFluxo(any(), any());
         verify(processingChain, times(3)).processar(any(Message.class), any(ProcessingContext.class));
     }
 
+    @Test
+    @DisplayName("Deve filtrar IDs já processados na listagem e contar os ignorados")
+    void deveFiltrarIdsJaProcessadosNaListagem() throws Exception {
+        ArgumentCaptor<Predicate<String>> filtro = ArgumentCaptor.forClass(Predicate.class);
+        when(processedEmailRepository.emailJaProcessado("msg1")).thenReturn(true);
+        when(processedEmailRepository.emailJaProcessado("msg2")).thenReturn(false);
+        when(gmailReaderService.listarEmailsEmFluxo(filtro.capture(), any())).thenAnswer(invocacao ->
+                Stream.of("msg1", "msg2").filter(filtro.getValue()).map(id -> new Message().setId(id)));
+
+        RelatorioProcessamento relatorio = emailProcessingService.processarEmails();
+
+        assertEquals(1, relatorio.getTotalEmails());
+        assertEquals(1, relatorio.getEmailsProcessados());
+        assertEquals(1, relatorio.getEmailsIgnorados());
+        verify(processingChain).processar(argThat(msg -> msg.getId().equals("msg2")), any(ProcessingContext.class));
+        verify(processingChain, never()).processar(argThat(msg -> msg.getId().equals("msg1")), any(ProcessingContext.class));
+    }
+
+    @Test
+    @DisplayName("Deve registrar no relatório as falhas de busca da listagem completa")
+    void deveRegistrarFalhasDeBuscaDaListagem() throws Exception {
+        when(gmailReaderService.listarEmailsEmFluxo(any(), any())).thenAnswer(invocacao -> {
+            BiConsumer<String, IOException> aoFalharBusca = invocacao.getArgument(1);
+            aoFalharBusca.accept("msg2", new IOException("503"));
+            aoFalharBusca.accept("msg3", new MensagemNaoEncontradaException("msg3", null));
+            return Stream.of(new Message().setId("msg1"));
+        });
+
+        RelatorioProcessamento relatorio = emailProcessingService.processarEmails();
+
+        assertEquals(1, relatorio.getEmailsProcessados());
+        assertEquals(1, relatorio.getEmailsIgnorados());
+        assertEquals(Map.of("msg2", "503"), relatorio.getFalhas());
+    }
+
+    @Test
+    @DisplayName("Deve descarregar o armazenamento e contar como falha o email que não foi registrado")
+    void deveContarComoFalhaEmailNaoRegistrado() throws Exception {
+        when(gmailReaderService.listarEmailsEmFluxo(any(), any())).thenAnswer(invocacao ->
+                Stream.of(new Message().setId("msg1"), new Message().setId("msg2")));
+        doAnswer(invocacao -> {
+            Message email = invocacao.getArgument(0);
+            ProcessingContext context = invocacao.getArgument(1);
+            if (email.getId().equals("msg2")) {
+                context.definirRegistroProcessado(CompletableFuture.failedFuture(new IOException("Disco cheio")));
+            }
+            return null;
+        }).when(processingChain).processar(any(Message.class), any(ProcessingContext.class));
+
+        RelatorioProcessamento relatorio = emailProcessingService.processarEmails();
+
+        verify(storageService).descarregar();
+        assertEquals(2, relatorio.getTotalEmails());
+        assertEquals(1, relatorio.getEmailsProcessados());
+        assertEquals(Map.of("msg2", "Disco cheio"), relatorio.getFalhas());
+    }
+
+    @Test
+    @DisplayName("Deve processar por ID apenas os pendentes e registrar falhas de busca")
+    void deveProcessarPorIdApenasPendentes() throws Exception {
+        when(processedEmailRepository.emailJaProcessado("msg1")).thenReturn(true);
+        when(processedEmailRepository.emailJaProcessado("msg2")).thenReturn(false);
+        when(processedEmailRepository.emailJaProcessado("msg3")).thenReturn(false);
+        when(gmailReaderService.obterEmails(List.of("msg2", "msg3"))).thenReturn(new ResultadoBuscaMensagens(
+                List.of(new Message().setId("msg2")), Map.of("msg3", new IOException("404")), 5));
+
+        RelatorioProcessamento relatorio = emailProcessingService.processarEmailsPorId(List.of("msg1", "msg2", "msg3"));
+
+        assertEquals(2, relatorio.getTotalEmails());
+        assertEquals(1, relatorio.getEmailsProcessados());
+        assertEquals(1, relatorio.getEmailsIgnorados());
+        assertEquals(Map.of("msg3", "404"), relatorio.getFalhas());
+        verify(gmailReaderService, never()).listarEmailsEmFluxo(any(), any());
+    }
+
+    @Test
+    @DisplayName("Deve contar como ignorada a mensagem que não existe mais no Gmail")
+    void deveIgnorarMensagemNaoEncontrada() throws Exception {
+        when(processedEmailRepository.emailJaProcessado(any())).thenReturn(false);
+        when(gmailReaderService.obterEmails(List.of("msg1", "msg2"))).thenReturn(new ResultadoBuscaMensagens(
+                List.of(), Map.of("msg1", new MensagemNaoEncontradaException("msg1", null),
+                        "msg2", new IOException("503")), 5));
+
+        RelatorioProcessamento relatorio = emailProcessingService.processarEmailsPorId(List.of("msg1", "msg2"));
+
+        assertEquals(1, relatorio.getEmailsIgnorados());
+        assertEquals(Map.of("msg2", "503"), relatorio.getFalhas());
+    }
+
     @Test
     @DisplayName("Deve processar email único")
     void deveProcessarEmailUnico() throws Exception {
@@ -67,7 +180,7 @@ class EmailProcessingServiceTest {
     @Test
     @DisplayName("Deve lançar exceção quando Gmail Reader Service falha")
     void deveLancarExcecaoQuandoGmailReaderServiceFalha() throws Exception {
-        when(gmailReaderService.listarEmails()).thenThrow(new IOException("Erro de conexão"));
+        when(gmailReaderService.listarEmailsEmFluxo(any(), any())).thenThrow(new IOException("Erro de conexão"));
 
         GmailReaderException exception = assertThrows(GmailReaderException.class,
                 () -> emailProcessingService.processarEmails());
@@ -89,14 +202,32 @@ class EmailProcessingServiceTest {
         assertTrue(exception.getMessage().contains("msg456"));
     }
 
+    @Test
+    @DisplayName("Deve processar emails já recebidos antes de falha na página seguinte")
+    void deveProcessarEmailsRecebidosAntesDeFalhaNaPaginaSeguinte() throws Exception {
+        Stream<Message> fluxo = Stream.concat(
+                Stream.of(new Message().setId("msg1")),
+                Stream.<Message>of(new Message().setId("msg2")).peek(msg -> {
+                    throw new UncheckedIOException(new IOException("Erro na página 2"));
+                }));
+        when(gmailReaderService.listarEmailsEmFluxo(any(), any())).thenReturn(fluxo);
+
+        GmailReaderException exception = assertThrows(GmailReaderException.class,
+                () -> emailProcessingService.processarEmails());
+
+        assertEquals("Falha na comunicação com Gmail API", exception.getMessage());
+        assertEquals("Erro na página 2", exception.getCause().getMessage());
+        verify(processingChain).processar(argThat(msg -> msg.getId().equals("msg1")), any(ProcessingContext.class));
+    }
+
     @Test
     @DisplayName("Deve processar lista vazia sem erros")
     void deveProcessarListaVaziaSemErros() throws Exception {
-        when(gmailReaderService.listarEmails()).thenReturn(Collections.emptyList());
+        when(gmailReaderService.listarEmailsEmFluxo(any(), any())).thenAnswer(invocacao -> Stream.empty());
 
         assertDoesNotThrow(() -> emailProcessingService.processarEmails());
 
-        verify(gmailReaderService).listarEmails();
+        verify(gmailReaderService).listarEmailsEmFluxo(any(), any());
         verify(processingChain, never()).processar(any(), any());
     }
 
@@ -108,7 +239,7 @@ class EmailProcessingServiceTest {
                 new Message().setId("msg2")
         );
 
-        when(gmailReaderService.listarEmails()).thenReturn(messages);
+        when(gmailReaderService.listarEmailsEmFluxo(any(), any())).thenAnswer(invocacao -> messages.stream());
 
         emailProcessingService.processarEmails();
 
@@ -120,7 +251,7 @@ class EmailProcessingServiceTest {
     @DisplayName("Deve relançar GmailReaderException sem encapsular")
     void deveRelancarGmailReaderExceptionSemEncapsular() throws Exception {
         GmailReaderException originalException = new GmailReaderException("Erro original");
-        when(gmailReaderService.listarEmails()).thenThrow(originalException);
+        when(gmailReaderService.listarEmailsEmFluxo(any(), any())).thenThrow(originalException);
 
         GmailReaderException exception = assertThrows(GmailReaderException.class,
                 () -> emailProcessingService.processarEmails());
@@ -132,7 +263,7 @@ class EmailProcessingServiceTest {
     @Test
     @DisplayName("Deve encapsular exceções genéricas")
     void deveEncapsularExcecoesGenericas() throws Exception {
-        when(gmailReaderService.listarEmails()).thenThrow(new RuntimeException("Erro inesperado"));
+        when(gmailReaderService.listarEmailsEmFluxo(any(), any())).thenThrow(new RuntimeException("Erro inesperado"));
 
         GmailReaderException exception = assertThrows(GmailReaderException.class,
                 () -> emailProcessingService.processarEmails());
@@ -164,10 +295,114 @@ class EmailProcessingServiceTest {
                 new Message().setId("msg5")
         );
 
-        when(gmailReaderService.listarEmails()).thenReturn(messages);
+        when(gmailReaderService.listarEmailsEmFluxo(any(), any())).thenAnswer(invocacao -> messages.stream());
 
         emailProcessingService.processarEmails();
 
         verify(processingChain, times(5)).processar(any(Message.class), any(ProcessingContext.class));
     }
+
+    @Test
+    @DisplayName("Deve descarregar marcações adiadas ao fim da execução")
+    void deveDescarregarMarcacoesAdiadasAoFimDaExecucao() throws Exception {
+        when(gmailReaderService.listarEmailsEmFluxo(any(), any())).thenAnswer(invocacao -> Stream.of(new Message().setId("msg1")));
+        when(deferredReadMarker.estaAtiva()).thenReturn(true);
+
+        emailProcessingService.processarEmails();
+
+        verify(processingChain).processar(any(Message.class), any(ProcessingContext.class));
+        verify(deferredReadMarker).descarregar();
+    }
+
+    @Test
+    @DisplayName("Deve descarregar marcações adiadas mesmo quando a execução falha")
+    void deveDescarregarMarcacoesAdiadasMesmoQuandoExecucaoFalha() throws Exception {
+        when(gmailReaderService.listarEmailsEmFluxo(any(), any())).thenThrow(new IOException("Erro de conexão"));
+        when(deferredReadMarker.estaAtiva()).thenReturn(true);
+
+        assertThrows(GmailReaderException.class, () -> emailProcessingService.processarEmails());
+
+        verify(deferredReadMarker).descarregar();
+    }
+
+    @Test
+    @DisplayName("Deve registrar falhas no relatório sem abortar o processamento paralelo")
+    void deveRegistrarFalhasNoRelatorioSemAbortarProcessamentoParalelo() throws Exception {
+        ReflectionTestUtils.setField(emailProcessingService, "paralelismo", 4);
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            messages.add(new Message().setId("msg" + i));
+        }
+
+        when(gmailReaderService.listarEmailsEmFluxo(any(), any())).thenAnswer(invocacao -> messages.stream());
+        doAnswer(invocacao -> {
+            if ("msg7".equals(invocacao.<Message>getArgument(0).getId())) {
+                throw new RuntimeException("Erro no step");
+            }
+            return null;
+        }).when(processingChain).processar(any(Message.class), any(ProcessingContext.class));
+
+        try {
+            RelatorioProcessamento relatorio = emailProcessingService.processarEmails();
+
+            assertEquals(50, relatorio.getTotalEmails());
+            assertEquals(49, relatorio.getEmailsProcessados());
+            assertEquals(Map.of("msg7", "Erro no step"), relatorio.getFalhas());
+            verify(processingChain, times(50)).processar(any(Message.class), any(ProcessingContext.class));
+        } finally {
+            emailProcessingService.encerrar();
+        }
+    }
+
+    @Test
+    @DisplayName("Deve processar em paralelo com fila menor que a quantidade de emails")
+    void deveProcessarEmParaleloComFilaPequena() throws Exception {
+        ReflectionTestUtils.setField(emailProcessingService, "paralelismo", 2);
+        ReflectionTestUtils.setField(emailProcessingService, "capacidadeFila", 1);
+        List<Message> messages = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            messages.add(new Message().setId("msg" + i));
+        }
+        Set<String> processados = ConcurrentHashMap.newKeySet();
+
+        when(gmailReaderService.listarEmailsEmFluxo(any(), any())).thenAnswer(invocacao -> messages.stream());
+        doAnswer(invocacao -> processados.add(invocacao.<Message>getArgument(0).getId()))
+                .when(processingChain).processar(any(Message.class), any(ProcessingContext.class));
+
+        try {
+            RelatorioProcessamento relatorio = emailProcessingService.processarEmails();
+
+            assertEquals(20, relatorio.getEmailsProcessados());
+            assertFalse(relatorio.temFalhas());
+            assertEquals(20, processados.size());
+        } finally {
+            emailProcessingService.encerrar();
+        }
+    }
+
+    @Test
+    @DisplayName("Deve aguardar todos os estágios e registrar falhas no modo em estágios")
+    void deveAguardarEstagiosERegistrarFalhas() throws Exception {
+        ReflectionTestUtils.setField(emailProcessingService, "estagiosHabilitados", true);
+        List<Message> messages = List.of(new Message().setId("msg1"), new Message().setId("msg2"));
+
+        when(gmailReaderService.listarEmailsEmFluxo(any(), any())).thenAnswer(invocacao -> messages.stream());
+        doAnswer(invocacao -> {
+            ProcessingContext context = invocacao.getArgument(1);
+            context.iniciarEtapa();
+            CompletableFuture.runAsync(() -> {
+                if ("msg2".equals(context.getEmailId())) {
+                    context.registrarFalha(new IllegalStateException("Falha no estágio"));
+                }
+                context.concluirEtapa();
+            });
+            return null;
+        }).when(processingChain).processar(any(Message.class), any(ProcessingContext.class));
+
+        RelatorioProcessamento relatorio = emailProcessingService.processarEmails();
+
+        assertEquals(2, relatorio.getTotalEmails());
+        assertEquals(1, relatorio.getEmailsProcessados());
+        assertEquals(Map.of("msg2", "Falha no estágio"), relatorio.getFalhas());
+    }
 }
@@ -9,7 +9,10 @@ import com.google.api.services.gmail.model.MessagePartHeader;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Base64;
 import java.util.Collections;
@@ -103,6 +106,30 @@ class EmailToJsonServiceTest {
         assertEquals("Texto do email em texto plano", jsonNode.get("corpo").asText());
     }
 
+    @Test
+    @DisplayName("Deve extrair corpo e anexos de partes aninhadas")
+    void deveExtrairCorpoEAnexosDePartesAninhadas() throws Exception {
+        Message message = criarMessageComPartesMultiplas();
+        MessagePart alternativa = message.getPayload();
+        alternativa.setMimeType("multipart/alternative");
+
+        MessagePart anexo = new MessagePart();
+        anexo.setFilename("fatura.pdf");
+        anexo.setMimeType("application/pdf");
+
+        MessagePart mista = new MessagePart();
+        mista.setMimeType("multipart/mixed");
+        mista.setHeaders(alternativa.getHeaders());
+        mista.setParts(Arrays.asList(alternativa, anexo));
+        message.setPayload(mista);
+
+        JsonNode jsonNode = objectMapper.readTree(emailToJsonService.converter(message));
+
+        assertEquals("Texto do email em texto plano", jsonNode.get("corpo").asText());
+        assertTrue(jsonNode.get("temAnexo").asBoolean());
+        assertEquals("fatura.pdf (application/pdf)", jsonNode.get("anexos").get(0).asText());
+    }
+
     @Test
     @DisplayName("Deve formatar data corretamente")
     void deveFormatarDataCorretamente() throws Exception {
@@ -140,6 +167,38 @@ class EmailToJsonServiceTest {
         assertEquals("", jsonNode.get("data").asText());
     }
 
+    @Test
+    @DisplayName("Deve interpretar datas RFC 2822 com comentário, dia de um dígito e fuso do remetente")
+    void deveInterpretarDatasRfc2822() throws Exception {
+        String comComentario = emailToJsonService.converter(
+                criarMessageComDataCustomizada("Tue, 5 Mar 2024 08:01:02 -0300 (BRT)"));
+        String semDiaDaSemana = emailToJsonService.converter(
+                criarMessageComDataCustomizada("5 Mar 2024 08:01:02 GMT"));
+
+        assertEquals("05-03-2024 08:01:02hs", objectMapper.readTree(comComentario).get("data").asText());
+        assertEquals("05-03-2024 08:01:02hs", objectMapper.readTree(semDiaDaSemana).get("data").asText());
+    }
+
+    @Test
+    @DisplayName("Deve converter a data para o fuso configurado")
+    void deveConverterDataParaFusoConfigurado() throws Exception {
+        ReflectionTestUtils.setField(emailToJsonService, "fusoHorario", "America/Sao_Paulo");
+        emailToJsonService.configurar();
+
+        String json = emailToJsonService.converter(criarMessageComDataCustomizada("Mon, 01 Jan 2024 10:30:00 +0000"));
+
+        assertEquals("01-01-2024 07:30:00hs", objectMapper.readTree(json).get("data").asText());
+    }
+
+    @Test
+    @DisplayName("Deve normalizar quebras de linha numa passada")
+    void deveNormalizarQuebrasDeLinha() {
+        assertEquals("a b c d", EmailToJsonService.normalizarQuebrasDeLinha("a\r\nb\rc\nd"));
+        assertEquals("a  b", EmailToJsonService.normalizarQuebrasDeLinha("\n a\n\nb \r\n"));
+        assertEquals("sem quebras", EmailToJsonService.normalizarQuebrasDeLinha("  sem quebras "));
+        assertEquals("", EmailToJsonService.normalizarQuebrasDeLinha("\r\n"));
+    }
+
     @Test
     @DisplayName("Deve limpar quebras de linha do corpo")
     void deveLimparQuebrasDeLinhaDoCorpo() throws Exception {
@@ -244,6 +303,38 @@ class EmailToJsonServiceTest {
         return message;
     }
 
+    @Test
+    @DisplayName("Deve incluir cabeçalhos extras configurados e omitir o campo quando não há nenhum")
+    void deveIncluirCabecalhosExtrasConfigurados() throws Exception {
+        Message message = criarMessageCompleta();
+        message.getPayload().setHeaders(List.of(
+                criarHeader("Received", "by mx.google.com"),
+                criarHeader("from", "teste@gmail.com"),
+                criarHeader("Message-ID", "<abc@mail.gmail.com>"),
+                criarHeader("Subject", "Assunto de Teste")));
+
+        assertFalse(objectMapper.readTree(emailToJsonService.converter(message)).has("cabecalhos"));
+
+        ReflectionTestUtils.setField(emailToJsonService, "cabecalhosExtras", List.of("Message-ID", " Cc ", "from"));
+        emailToJsonService.configurar();
+
+        JsonNode jsonNode = objectMapper.readTree(emailToJsonService.converter(message));
+        assertEquals("teste@gmail.com", jsonNode.get("remetente").asText());
+        assertEquals("<abc@mail.gmail.com>", jsonNode.get("cabecalhos").get("Message-ID").asText());
+        assertEquals(1, jsonNode.get("cabecalhos").size());
+    }
+
+    @Test
+    @DisplayName("Deve escrever em fluxo o mesmo JSON da conversão para texto")
+    void deveEscreverEmFluxoOMesmoJson() throws Exception {
+        Message message = criarMessageCompleta();
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+
+        emailToJsonService.escrever(emailToJsonService.converterParaDto(message), saida);
+
+        assertEquals(emailToJsonService.converter(message), saida.toString(StandardCharsets.UTF_8));
+    }
+
     private MessagePartHeader criarHeader(String nome, String valor) {
         MessagePartHeader header = new MessagePartHeader();
         header.setName(nome);
@@ -1,6 +1,7 @@
 package com.gmailreader.service;
 
 import com.gmailreader.exception.GmailReaderException;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.DisplayName;
@@ -13,8 +14,14 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 @DisplayName("FileStorageService")
@@ -26,6 +33,7 @@ class FileStorageServiceTest {
     @Mock
     private DirectoryManagerService directoryManagerService;
 
+    private EmailFileAppender fileAppender;
     private FileStorageService fileStorageService;
 
     @TempDir
@@ -34,10 +42,16 @@ class FileStorageServiceTest {
     @BeforeEach
     void setUp() {
         MockitoAnnotations.openMocks(this);
-        fileStorageService = new FileStorageService(emailFileNamingService, directoryManagerService);
+        fileAppender = new EmailFileAppender();
+        fileStorageService = new FileStorageService(emailFileNamingService, directoryManagerService, fileAppender);
         ReflectionTestUtils.setField(fileStorageService, "pastaDestino", "emails");
     }
 
+    @AfterEach
+    void tearDown() {
+        fileAppender.encerrar();
+    }
+
     @Test
     @DisplayName("Deve salvar email com sucesso")
     void deveSalvarEmailComSucesso() throws IOException {
@@ -45,7 +59,7 @@ class FileStorageServiceTest {
         String nomeArquivo = "emails-2024-10-02.json";
         File arquivo = tempDir.resolve(nomeArquivo).toFile();
 
-        when(emailFileNamingService.gerarNomeArquivo()).thenReturn(nomeArquivo);
+        when(emailFileNamingService.gerarNomeArquivo(any(LocalDate.class))).thenReturn(nomeArquivo);
         when(directoryManagerService.criarCaminhoArquivo("emails", nomeArquivo))
                 .thenReturn(arquivo);
 
@@ -55,7 +69,7 @@ class FileStorageServiceTest {
         String conteudoSalvo = Files.readString(arquivo.toPath());
         assertTrue(conteudoSalvo.contains(conteudo), "Conteúdo deve estar no arquivo");
 
-        verify(emailFileNamingService).gerarNomeArquivo();
+        verify(emailFileNamingService).gerarNomeArquivo(any(LocalDate.class));
         verify(directoryManagerService).criarCaminhoArquivo("emails", nomeArquivo);
     }
 
@@ -117,7 +131,7 @@ class FileStorageServiceTest {
 
         Files.writeString(arquivo.toPath(), conteudoExistente + System.lineSeparator());
 
-        when(emailFileNamingService.gerarNomeArquivo()).thenReturn(nomeArquivo);
+        when(emailFileNamingService.gerarNomeArquivo(any(LocalDate.class))).thenReturn(nomeArquivo);
         when(directoryManagerService.criarCaminhoArquivo("emails", nomeArquivo))
                 .thenReturn(arquivo);
 
@@ -134,7 +148,7 @@ class FileStorageServiceTest {
         String conteudo = "{\"id\":\"123\",\"subject\":\"Teste\"}";
         String nomeArquivo = "emails-2024-10-02.json";
 
-        when(emailFileNamingService.gerarNomeArquivo()).thenReturn(nomeArquivo);
+        when(emailFileNamingService.gerarNomeArquivo(any(LocalDate.class))).thenReturn(nomeArquivo);
         when(directoryManagerService.criarCaminhoArquivo("emails", nomeArquivo))
                 .thenThrow(new IOException("Erro de I/O simulado"));
 
@@ -156,7 +170,7 @@ class FileStorageServiceTest {
         String nomeArquivo = "emails-2024-10-02.json";
         File arquivo = tempDir.resolve(nomeArquivo).toFile();
 
-        when(emailFileNamingService.gerarNomeArquivo()).thenReturn(nomeArquivo);
+        when(emailFileNamingService.gerarNomeArquivo(any(LocalDate.class))).thenReturn(nomeArquivo);
         when(directoryManagerService.criarCaminhoArquivo("emails", nomeArquivo))
                 .thenReturn(arquivo);
 
@@ -171,6 +185,23 @@ class FileStorageServiceTest {
         assertEquals(2, linhas, "Deve ter 2 linhas (uma para cada email)");
     }
 
+    @Test
+    @DisplayName("Deve salvar email escrito em fluxo na mesma linha do arquivo do dia")
+    void deveSalvarEmailEscritoEmFluxo() throws IOException {
+        String nomeArquivo = "emails-2024-10-02.json";
+        File arquivo = tempDir.resolve(nomeArquivo).toFile();
+
+        when(emailFileNamingService.gerarNomeArquivo(any(LocalDate.class))).thenReturn(nomeArquivo);
+        when(directoryManagerService.criarCaminhoArquivo("emails", nomeArquivo))
+                .thenReturn(arquivo);
+
+        fileStorageService.salvarEmail("{\"id\":\"001\"}");
+        fileStorageService.salvarEmailEmFluxo(saida -> saida.write("{\"id\":\"002\"}".getBytes()));
+
+        assertEquals(List.of("{\"id\":\"001\"}", "{\"id\":\"002\"}"),
+                Files.readString(arquivo.toPath()).lines().toList());
+    }
+
     @Test
     @DisplayName("Deve validar conteúdo JSON válido")
     void deveValidarConteudoJsonValido() throws IOException {
@@ -178,7 +209,7 @@ class FileStorageServiceTest {
         String nomeArquivo = "emails-2024-10-02.json";
         File arquivo = tempDir.resolve(nomeArquivo).toFile();
 
-        when(emailFileNamingService.gerarNomeArquivo()).thenReturn(nomeArquivo);
+        when(emailFileNamingService.gerarNomeArquivo(any(LocalDate.class))).thenReturn(nomeArquivo);
         when(directoryManagerService.criarCaminhoArquivo("emails", nomeArquivo))
                 .thenReturn(arquivo);
 
@@ -189,4 +220,48 @@ class FileStorageServiceTest {
         assertTrue(conteudoSalvo.contains("456"), "Deve conter ID do email");
         assertTrue(conteudoSalvo.contains("Email JSON"), "Deve conter subject");
     }
+
+    @Test
+    @DisplayName("Deve resolver o arquivo do dia apenas uma vez")
+    void deveResolverArquivoDoDiaApenasUmaVez() throws IOException {
+        String nomeArquivo = "emails-2024-10-02.json";
+        File arquivo = tempDir.resolve(nomeArquivo).toFile();
+
+        when(emailFileNamingService.gerarNomeArquivo(any(LocalDate.class))).thenReturn(nomeArquivo);
+        when(directoryManagerService.criarCaminhoArquivo("emails", nomeArquivo)).thenReturn(arquivo);
+
+        for (int i = 0; i < 5; i++) {
+            fileStorageService.salvarEmail("{\"id\":\"00" + i + "\"}");
+        }
+
+        assertEquals(5, Files.readString(arquivo.toPath()).lines().count());
+        verify(emailFileNamingService, times(1)).gerarNomeArquivo(any(LocalDate.class));
+        verify(directoryManagerService, times(1)).criarCaminhoArquivo("emails", nomeArquivo);
+    }
+
+    @Test
+    @DisplayName("Deve trocar de arquivo na virada do dia")
+    void deveTrocarDeArquivoNaViradaDoDia() throws IOException {
+        LocalDate primeiroDia = LocalDate.of(2024, 10, 2);
+        LocalDate segundoDia = LocalDate.of(2024, 10, 3);
+        File primeiroArquivo = tempDir.resolve("emails-2024-10-02.json").toFile();
+        File segundoArquivo = tempDir.resolve("emails-2024-10-03.json").toFile();
+
+        when(emailFileNamingService.gerarNomeArquivo(primeiroDia)).thenReturn(primeiroArquivo.getName());
+        when(emailFileNamingService.gerarNomeArquivo(segundoDia)).thenReturn(segundoArquivo.getName());
+        when(directoryManagerService.criarCaminhoArquivo("emails", primeiroArquivo.getName())).thenReturn(primeiroArquivo);
+        when(directoryManagerService.criarCaminhoArquivo("emails", segundoArquivo.getName())).thenReturn(segundoArquivo);
+
+        ReflectionTestUtils.setField(fileStorageService, "relogio",
+                Clock.fixed(Instant.parse("2024-10-02T23:59:59Z"), ZoneOffset.UTC));
+        fileStorageService.salvarEmail("{\"id\":\"001\"}");
+
+        ReflectionTestUtils.setField(fileStorageService, "relogio",
+                Clock.fixed(Instant.parse("2024-10-03T00:00:01Z"), ZoneOffset.UTC));
+        fileStorageService.salvarEmail("{\"id\":\"002\"}");
+
+        assertTrue(Files.readString(primeiroArquivo.toPath()).contains("001"));
+        assertFalse(Files.readString(primeiroArquivo.toPath()).contains("002"));
+        assertTrue(Files.readString(segundoArquivo.toPath()).contains("002"));
+    }
 }
@@ -1,22 +1,30 @@
 package com.gmailreader.service;
 
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.client.http.HttpResponseException;
 import com.google.api.services.gmail.Gmail;
 import com.google.api.services.gmail.model.History;
+import com.google.api.services.gmail.model.HistoryMessageAdded;
 import com.google.api.services.gmail.model.ListHistoryResponse;
+import com.google.api.services.gmail.model.Message;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.io.IOException;
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -255,6 +263,122 @@ class GmailHistoryServiceTest {
         assertFalse(temAlteracoes, "Deve retornar false quando ocorre erro");
     }
 
+    @Test
+    @DisplayName("Deve entregar cada página do histórico com mensagens adicionadas e último historyId")
+    void deveEntregarCadaPaginaDoHistorico() throws Exception {
+        configurarMocksParaPaginacao();
+        ListHistoryResponse pagina1 = new ListHistoryResponse()
+                .setHistory(List.of(historico(110, "msg1", "msg2"), historico(120, "msg2")))
+                .setNextPageToken("pagina2");
+        ListHistoryResponse pagina2 = new ListHistoryResponse()
+                .setHistory(List.of(historico(130, "msg3")))
+                .setHistoryId(new BigInteger("150"));
+        when(historyList.execute()).thenReturn(pagina1, pagina2);
+        List<PaginaHistorico> paginas = new ArrayList<>();
+
+        GmailHistoryService.ResultadoPercurso resultado = gmailHistoryService.percorrerMensagensAdicionadas(
+                new BigInteger("100"), paginas::add);
+
+        assertEquals(GmailHistoryService.ResultadoPercurso.CONCLUIDO, resultado);
+        assertEquals(2, paginas.size());
+        assertEquals(List.of("msg1", "msg2"), paginas.get(0).getMessageIdsAdicionados());
+        assertEquals(new BigInteger("120"), paginas.get(0).getUltimoHistoryId());
+        assertFalse(paginas.get(0).isUltima());
+        assertEquals(List.of("msg3"), paginas.get(1).getMessageIdsAdicionados());
+        assertEquals(new BigInteger("150"), paginas.get(1).getUltimoHistoryId());
+        assertTrue(paginas.get(1).isUltima());
+        verify(historyList, times(2)).setHistoryTypes(List.of("messageAdded"));
+        verify(historyList, times(2)).setLabelId("INBOX");
+        verify(historyList, times(2)).setMaxResults(500L);
+        verify(historyList).setPageToken("pagina2");
+    }
+
+    @Test
+    @DisplayName("Deve parar o percurso quando o consumidor interrompe")
+    void devePararPercursoQuandoConsumidorInterrompe() throws Exception {
+        configurarMocksParaPaginacao();
+        when(historyList.execute()).thenReturn(new ListHistoryResponse()
+                .setHistory(List.of(historico(110, "msg1"))).setNextPageToken("pagina2"));
+
+        GmailHistoryService.ResultadoPercurso resultado = gmailHistoryService.percorrerMensagensAdicionadas(
+                BigInteger.ONE, pagina -> false);
+
+        assertEquals(GmailHistoryService.ResultadoPercurso.INTERROMPIDO, resultado);
+        verify(historyList, times(1)).execute();
+    }
+
+    @Test
+    @DisplayName("Deve marcar histórico como expirado quando Gmail responde 404")
+    void deveMarcarHistoricoComoExpiradoQuandoGmailResponde404() throws Exception {
+        configurarMocksParaPaginacao();
+        when(historyList.execute()).thenThrow(erroHttp(404));
+
+        GmailHistoryService.ResultadoPercurso resultado = gmailHistoryService.percorrerMensagensAdicionadas(
+                BigInteger.ONE, pagina -> true);
+
+        assertEquals(GmailHistoryService.ResultadoPercurso.EXPIRADO, resultado);
+    }
+
+    @Test
+    @DisplayName("Deve aguardar e repetir a página quando Gmail limita a taxa")
+    void deveAguardarERepetirPaginaQuandoGmailLimitaTaxa() throws Exception {
+        ReflectionTestUtils.setField(gmailHistoryService, "esperaInicialMs", 1L);
+        configurarMocksParaPaginacao();
+        when(historyList.execute())
+                .thenThrow(erroHttp(429))
+                .thenReturn(new ListHistoryResponse().setHistory(List.of(historico(110, "msg1"))));
+        List<PaginaHistorico> paginas = new ArrayList<>();
+
+        gmailHistoryService.percorrerMensagensAdicionadas(BigInteger.ONE, paginas::add);
+
+        assertEquals(1, paginas.size());
+        verify(historyList, times(2)).execute();
+    }
+
+    @Test
+    @DisplayName("Deve propagar IOException do histórico que não seja 404")
+    void devePropagarIOExceptionDoHistorico() throws Exception {
+        configurarMocksParaPaginacao();
+        when(historyList.execute()).thenThrow(new IOException("Erro de conexão"));
+
+        assertThrows(IOException.class, () -> gmailHistoryService.percorrerMensagensAdicionadas(
+                BigInteger.ONE, pagina -> true));
+    }
+
+    @Test
+    @DisplayName("Deve juntar todas as páginas ao buscar o histórico")
+    void deveJuntarTodasAsPaginasAoBuscarHistorico() throws Exception {
+        configurarMocksParaPaginacao();
+        when(historyList.execute()).thenReturn(
+                new ListHistoryResponse().setHistory(List.of(historico(110))).setNextPageToken("pagina2"),
+                new ListHistoryResponse().setHistory(List.of(historico(120), historico(130))));
+
+        List<History> result = gmailHistoryService.buscarHistorico(BigInteger.ONE);
+
+        assertEquals(3, result.size());
+        verify(historyList, never()).setHistoryTypes(anyList());
+    }
+
+    private void configurarMocksParaPaginacao() throws IOException {
+        when(gmailServiceManager.getGmailService()).thenReturn(gmailService);
+        when(gmailService.users()).thenReturn(users);
+        when(users.history()).thenReturn(history);
+        when(history.list("me")).thenReturn(historyList);
+        when(historyList.setStartHistoryId(any())).thenReturn(historyList);
+    }
+
+    private History historico(long id, String... messageIds) {
+        List<HistoryMessageAdded> adicionadas = new ArrayList<>();
+        for (String messageId : messageIds) {
+            adicionadas.add(new HistoryMessageAdded().setMessage(new Message().setId(messageId)));
+        }
+        return new History().setId(BigInteger.valueOf(id)).setMessagesAdded(adicionadas);
+    }
+
+    private GoogleJsonResponseException erroHttp(int status) {
+        return new GoogleJsonResponseException(new HttpResponseException.Builder(status, "erro", new HttpHeaders()), null);
+    }
+
     private void configurarMocksParaBuscaHistorico(List<History> historyList) throws Exception {
         when(gmailServiceManager.getGmailService()).thenReturn(gmailService);
         when(gmailService.users()).thenReturn(users);
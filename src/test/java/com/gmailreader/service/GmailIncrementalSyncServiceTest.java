@@ -0,0 +1,233 @@
+package com.gmailreader.service;
+
+import com.gmailreader.exception.GmailReaderException;
+import com.gmailreader.repository.HistoryIdFileRepository;
+import com.gmailreader.repository.ProcessedEmailFileRepository;
+import com.gmailreader.service.processing.MarkAsProcessedStep;
+import com.gmailreader.service.processing.ProcessingContext;
+import com.gmailreader.service.processing.ProcessingStep;
+import com.gmailreader.service.processing.RelatorioProcessamento;
+import com.gmailreader.service.provider.MensagemNaoEncontradaException;
+import com.gmailreader.service.provider.ResultadoBuscaMensagens;
+import com.google.api.services.gmail.model.Message;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("GmailIncrementalSyncService")
+class GmailIncrementalSyncServiceTest {
+
+    private static final RelatorioProcessamento SUCESSO = new RelatorioProcessamento(2, 2, 0, Map.of(), 10);
+
+    @Mock
+    private GmailHistoryService gmailHistoryService;
+
+    @Mock
+    private EmailProcessingService emailProcessingService;
+
+    @Mock
+    private HistoryIdFileRepository historyIdRepository;
+
+    private GmailIncrementalSyncService syncService;
+
+    @BeforeEach
+    void setUp() {
+        syncService = new GmailIncrementalSyncService(gmailHistoryService, emailProcessingService, historyIdRepository);
+    }
+
+    @Test
+    @DisplayName("Deve processar cada página de mensagens adicionadas e avançar o checkpoint por página")
+    void deveProcessarCadaPaginaEAvancarCheckpoint() throws Exception {
+        when(historyIdRepository.obterUltimoHistoryId()).thenReturn(Optional.of(BigInteger.valueOf(100)));
+        simularPaginas(
+                new PaginaHistorico(List.of(), List.of("msg1", "msg2"), BigInteger.valueOf(110), false),
+                new PaginaHistorico(List.of(), List.of(), BigInteger.valueOf(130), true));
+        when(emailProcessingService.processarEmailsPorId(List.of("msg1", "msg2"))).thenReturn(SUCESSO);
+
+        RelatorioProcessamento relatorio = syncService.sincronizar(BigInteger.valueOf(120));
+
+        assertEquals(2, relatorio.getEmailsProcessados());
+        InOrder ordem = inOrder(emailProcessingService, historyIdRepository);
+        ordem.verify(emailProcessingService).processarEmailsPorId(List.of("msg1", "msg2"));
+        ordem.verify(historyIdRepository).salvarHistoryId(BigInteger.valueOf(110));
+        ordem.verify(historyIdRepository).salvarHistoryId(BigInteger.valueOf(130));
+        verify(emailProcessingService, never()).processarEmails();
+    }
+
+    @Test
+    @DisplayName("Deve fazer varredura completa quando não há historyId salvo")
+    void deveFazerVarreduraCompletaSemHistoryIdSalvo() {
+        when(historyIdRepository.obterUltimoHistoryId()).thenReturn(Optional.empty());
+        when(emailProcessingService.processarEmails()).thenReturn(SUCESSO);
+
+        syncService.sincronizar(BigInteger.valueOf(120));
+
+        verifyNoInteractions(gmailHistoryService);
+        verify(historyIdRepository).salvarHistoryId(BigInteger.valueOf(120));
+    }
+
+    @Test
+    @DisplayName("Deve fazer varredura completa quando o histórico expirou")
+    void deveFazerVarreduraCompletaQuandoHistoricoExpirou() throws Exception {
+        when(historyIdRepository.obterUltimoHistoryId()).thenReturn(Optional.of(BigInteger.ONE));
+        when(gmailHistoryService.percorrerMensagensAdicionadas(eq(BigInteger.ONE), any()))
+                .thenReturn(GmailHistoryService.ResultadoPercurso.EXPIRADO);
+        when(emailProcessingService.processarEmails()).thenReturn(SUCESSO);
+
+        syncService.sincronizar(BigInteger.valueOf(500));
+
+        verify(emailProcessingService, never()).processarEmailsPorId(any());
+        verify(historyIdRepository).salvarHistoryId(BigInteger.valueOf(500));
+    }
+
+    @Test
+    @DisplayName("Deve interromper e manter o checkpoint quando há falhas no processamento")
+    void deveInterromperEManterCheckpointQuandoHaFalhas() throws Exception {
+        when(historyIdRepository.obterUltimoHistoryId()).thenReturn(Optional.of(BigInteger.valueOf(100)));
+        simularPaginas(
+                new PaginaHistorico(List.of(), List.of("msg1"), BigInteger.valueOf(110), false),
+                new PaginaHistorico(List.of(), List.of("msg2"), BigInteger.valueOf(130), true));
+        when(emailProcessingService.processarEmailsPorId(List.of("msg1")))
+                .thenReturn(new RelatorioProcessamento(1, 0, 0, Map.of("msg1", "erro"), 5));
+
+        RelatorioProcessamento relatorio = syncService.sincronizar(BigInteger.valueOf(120));
+
+        assertEquals(Map.of("msg1", "erro"), relatorio.getFalhas());
+        verify(emailProcessingService, never()).processarEmailsPorId(List.of("msg2"));
+        verify(historyIdRepository, never()).salvarHistoryId(any());
+    }
+
+    @Test
+    @DisplayName("Deve avançar o checkpoint quando uma mensagem adicionada foi apagada antes da busca")
+    void deveAvancarCheckpointQuandoMensagemFoiApagada() throws Exception {
+        GmailReaderService gmailReaderService = mock(GmailReaderService.class);
+        ProcessingStep processingChain = mock(ProcessingStep.class);
+        EmailProcessingService processamentoReal = new EmailProcessingService(gmailReaderService, processingChain,
+                mock(DeferredReadMarker.class), mock(ProcessedEmailFileRepository.class), mock(StorageService.class));
+        syncService = new GmailIncrementalSyncService(gmailHistoryService, processamentoReal, historyIdRepository);
+
+        when(historyIdRepository.obterUltimoHistoryId()).thenReturn(Optional.of(BigInteger.valueOf(100)));
+        simularPaginas(new PaginaHistorico(List.of(), List.of("msg1", "msg2"), BigInteger.valueOf(110), true));
+        when(gmailReaderService.obterEmails(List.of("msg1", "msg2"))).thenReturn(new ResultadoBuscaMensagens(
+                List.of(new Message().setId("msg1")),
+                Map.of("msg2", new MensagemNaoEncontradaException("msg2", null)), 5));
+
+        RelatorioProcessamento relatorio = syncService.sincronizar(BigInteger.valueOf(120));
+
+        assertFalse(relatorio.temFalhas());
+        assertEquals(1, relatorio.getEmailsProcessados());
+        assertEquals(1, relatorio.getEmailsIgnorados());
+        verify(historyIdRepository).salvarHistoryId(BigInteger.valueOf(110));
+    }
+
+    @Test
+    @DisplayName("Deve avançar o checkpoint só depois que os emails em lote estão gravados e registrados")
+    void deveAvancarCheckpointSoAposGravacaoEmLote(@TempDir Path tempDir) throws Exception {
+        EmailFileAppender fileAppender = new EmailFileAppender();
+        ReflectionTestUtils.setField(fileAppender, "intervaloMs", 60_000L);
+        FileStorageService armazenamento = new FileStorageService(new EmailFileNamingService(),
+                new DirectoryManagerService(), fileAppender);
+        ReflectionTestUtils.setField(armazenamento, "pastaDestino", tempDir.toString());
+        ProcessedEmailFileRepository processedEmailRepository = mock(ProcessedEmailFileRepository.class);
+        MarkAsProcessedStep marcarComoProcessado = new MarkAsProcessedStep(processedEmailRepository, armazenamento);
+        GmailReaderService gmailReaderService = mock(GmailReaderService.class);
+        ProcessingStep processingChain = mock(ProcessingStep.class);
+        EmailProcessingService processamentoReal = new EmailProcessingService(gmailReaderService, processingChain,
+                mock(DeferredReadMarker.class), processedEmailRepository, armazenamento);
+        syncService = new GmailIncrementalSyncService(gmailHistoryService, processamentoReal, historyIdRepository);
+
+        List<String> registrados = new ArrayList<>();
+        when(processedEmailRepository.registrarComoProcessado("msg1")).thenAnswer(invocacao -> {
+            registrados.add("msg1");
+            return CompletableFuture.completedFuture(null);
+        });
+        doAnswer(invocacao -> {
+            Message email = invocacao.getArgument(0);
+            armazenamento.salvarEmail("{\"id\":\"" + email.getId() + "\"}");
+            marcarComoProcessado.processar(email, invocacao.getArgument(1));
+            return null;
+        }).when(processingChain).processar(any(Message.class), any(ProcessingContext.class));
+        List<String> gravadosNoCheckpoint = new ArrayList<>();
+        doAnswer(invocacao -> {
+            try (Stream<Path> arquivos = Files.list(tempDir)) {
+                for (Path arquivo : arquivos.toList()) {
+                    gravadosNoCheckpoint.add(Files.readString(arquivo).trim());
+                }
+            }
+            gravadosNoCheckpoint.addAll(registrados);
+            return null;
+        }).when(historyIdRepository).salvarHistoryId(BigInteger.valueOf(110));
+        when(historyIdRepository.obterUltimoHistoryId()).thenReturn(Optional.of(BigInteger.valueOf(100)));
+        simularPaginas(new PaginaHistorico(List.of(), List.of("msg1"), BigInteger.valueOf(110), true));
+        when(gmailReaderService.obterEmails(List.of("msg1"))).thenReturn(new ResultadoBuscaMensagens(
+                List.of(new Message().setId("msg1")), Map.of(), 5));
+
+        try {
+            RelatorioProcessamento relatorio = syncService.sincronizar(BigInteger.valueOf(120));
+
+            assertEquals(1, relatorio.getEmailsProcessados());
+            assertEquals(List.of("{\"id\":\"msg1\"}", "msg1"), gravadosNoCheckpoint);
+        } finally {
+            fileAppender.encerrar();
+        }
+    }
+
+    @Test
+    @DisplayName("Deve consultar o histórico mesmo quando a notificação é anterior ao checkpoint")
+    void deveConsultarHistoricoMesmoComNotificacaoAnterior() throws Exception {
+        when(historyIdRepository.obterUltimoHistoryId()).thenReturn(Optional.of(BigInteger.valueOf(100)));
+        simularPaginas(new PaginaHistorico(List.of(), List.of(), BigInteger.valueOf(140), true));
+
+        RelatorioProcessamento relatorio = syncService.sincronizar(BigInteger.valueOf(90));
+
+        assertEquals(0, relatorio.getTotalEmails());
+        verify(historyIdRepository).salvarHistoryId(BigInteger.valueOf(140));
+        verifyNoInteractions(emailProcessingService);
+    }
+
+    @Test
+    @DisplayName("Deve lançar GmailReaderException quando a busca do histórico falha")
+    void deveLancarExcecaoQuandoBuscaDoHistoricoFalha() throws Exception {
+        when(historyIdRepository.obterUltimoHistoryId()).thenReturn(Optional.of(BigInteger.valueOf(100)));
+        when(gmailHistoryService.percorrerMensagensAdicionadas(eq(BigInteger.valueOf(100)), any()))
+                .thenThrow(new IOException("Erro de conexão"));
+
+        assertThrows(GmailReaderException.class, () -> syncService.sincronizar(BigInteger.valueOf(120)));
+        verify(historyIdRepository, never()).salvarHistoryId(any());
+    }
+
+    private void simularPaginas(PaginaHistorico... paginas) throws IOException {
+        when(gmailHistoryService.percorrerMensagensAdicionadas(any(), any())).thenAnswer(invocacao -> {
+            GmailHistoryService.ConsumidorPaginaHistorico consumidor = invocacao.getArgument(1);
+            for (PaginaHistorico pagina : paginas) {
+                if (!consumidor.consumir(pagina)) {
+                    return GmailHistoryService.ResultadoPercurso.INTERROMPIDO;
+                }
+            }
+            return GmailHistoryService.ResultadoPercurso.CONCLUIDO;
+        });
+    }
+}
@@ -1,6 +1,8 @@
 package com.gmailreader.service;
 
+import com.gmailreader.service.batch.GmailBatchClient;
 import com.google.api.services.gmail.Gmail;
+import com.google.api.services.gmail.model.BatchModifyMessagesRequest;
 import com.google.api.services.gmail.model.Message;
 import com.google.api.services.gmail.model.ModifyMessageRequest;
 import org.junit.jupiter.api.BeforeEach;
@@ -11,6 +13,8 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -24,6 +28,9 @@ class GmailModifierServiceTest {
     @Mock
     private Gmail gmailService;
 
+    @Mock
+    private GmailBatchClient batchClient;
+
     @Mock
     private Gmail.Users users;
 
@@ -33,11 +40,14 @@ class GmailModifierServiceTest {
     @Mock
     private Gmail.Users.Messages.Modify modify;
 
+    @Mock
+    private Gmail.Users.Messages.BatchModify batchModify;
+
     private GmailModifierService gmailModifierService;
 
     @BeforeEach
     void setUp() {
-        gmailModifierService = new GmailModifierService(gmailService);
+        gmailModifierService = new GmailModifierService(gmailService, batchClient);
     }
 
     @Test
@@ -210,4 +220,40 @@ class GmailModifierServiceTest {
 
         verify(messages).modify(eq("me"), eq(messageId), any(ModifyMessageRequest.class));
     }
+
+    @Test
+    @DisplayName("Deve marcar vários emails como lidos em lote")
+    void deveMarcarVariosEmailsComoLidosEmLote() throws Exception {
+        List<String> messageIds = List.of("msg1", "msg2");
+        Map<String, IOException> falhas = Map.of("msg2", new IOException("404"));
+
+        when(batchClient.modificarMensagens(eq(messageIds), eq("me"), any(ModifyMessageRequest.class))).thenReturn(falhas);
+
+        Map<String, IOException> resultado = gmailModifierService.marcarComoLidos(messageIds);
+
+        assertSame(falhas, resultado);
+        verify(batchClient).modificarMensagens(eq(messageIds), eq("me"), argThat(request ->
+            request.getRemoveLabelIds() != null &&
+            request.getRemoveLabelIds().contains("UNREAD")
+        ));
+        verifyNoInteractions(gmailService);
+    }
+
+    @Test
+    @DisplayName("Deve marcar emails como lidos com uma única chamada batchModify")
+    void deveMarcarEmailsComoLidosComBatchModify() throws Exception {
+        List<String> messageIds = List.of("msg1", "msg2", "msg3");
+
+        when(gmailService.users()).thenReturn(users);
+        when(users.messages()).thenReturn(messages);
+        when(messages.batchModify(eq("me"), any(BatchModifyMessagesRequest.class))).thenReturn(batchModify);
+
+        gmailModifierService.marcarComoLidosEmMassa(messageIds);
+
+        verify(messages).batchModify(eq("me"), argThat(request ->
+            request.getIds().equals(messageIds) &&
+            request.getRemoveLabelIds().contains("UNREAD")
+        ));
+        verify(batchModify).execute();
+    }
 }
@@ -2,6 +2,8 @@ package com.gmailreader.service;
 
 import com.gmailreader.service.provider.EmailProvider;
 import com.gmailreader.service.provider.EmailSearchCriteria;
+import com.gmailreader.service.provider.MensagemNaoEncontradaException;
+import com.gmailreader.service.provider.ProviderHealthMonitor;
 import com.google.api.services.gmail.model.Message;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -14,7 +16,9 @@ import org.springframework.test.util.ReflectionTestUtils;
 import java.io.IOException;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -31,7 +35,7 @@ class GmailReaderServiceTest {
 
     @BeforeEach
     void setUp() {
-        gmailReaderService = new GmailReaderService(emailProvider);
+        gmailReaderService = new GmailReaderService(emailProvider, new ProviderHealthMonitor());
         ReflectionTestUtils.setField(gmailReaderService, "userId", "me");
         ReflectionTestUtils.setField(gmailReaderService, "defaultLabels", Collections.singletonList("INBOX"));
         ReflectionTestUtils.setField(gmailReaderService, "maxResults", null);
@@ -203,4 +207,42 @@ class GmailReaderServiceTest {
 
         assertTrue(result.isEmpty());
     }
+
+    @Test
+    @DisplayName("Deve reutilizar a disponibilidade em cache entre listagens")
+    void deveReutilizarDisponibilidadeEmCache() throws Exception {
+        when(emailProvider.isDisponivel()).thenReturn(true);
+        when(emailProvider.listarEmails(any(EmailSearchCriteria.class))).thenReturn(Collections.emptyList());
+        when(emailProvider.getNomeProvedor()).thenReturn("Gmail");
+
+        gmailReaderService.listarEmails();
+        gmailReaderService.listarEmails();
+        gmailReaderService.obterInfoProvedor();
+
+        verify(emailProvider, times(1)).isDisponivel();
+        verify(emailProvider, times(2)).listarEmails(any(EmailSearchCriteria.class));
+    }
+
+    @Test
+    @DisplayName("Deve contar para a saúde do provedor as falhas de mensagens do fluxo, exceto mensagem apagada")
+    void deveContarFalhasDeMensagensDoFluxo() throws Exception {
+        when(emailProvider.isDisponivel()).thenReturn(true);
+        when(emailProvider.getNomeProvedor()).thenReturn("Gmail");
+        List<String> entregues = new ArrayList<>();
+        when(emailProvider.listarEmailsEmFluxo(any(EmailSearchCriteria.class))).thenAnswer(invocation -> {
+            EmailSearchCriteria criteria = invocation.getArgument(0);
+            criteria.getAoFalharBusca().accept("a", new IOException("503"));
+            criteria.getAoFalharBusca().accept("b", new MensagemNaoEncontradaException("b", null));
+            criteria.getAoFalharBusca().accept("c", new IOException("503"));
+            criteria.getAoFalharBusca().accept("d", new MensagemNaoEncontradaException("d", null));
+            criteria.getAoFalharBusca().accept("e", new IOException("503"));
+            return Stream.empty();
+        });
+
+        gmailReaderService.listarEmailsEmFluxo(id -> true, (id, erro) -> entregues.add(id));
+
+        assertEquals(List.of("a", "b", "c", "d", "e"), entregues);
+        assertEquals("Provedor: Gmail (indisponível)", gmailReaderService.obterInfoProvedor());
+        verify(emailProvider, times(1)).isDisponivel();
+    }
 }
@@ -1,5 +1,7 @@
 package com.gmailreader.service;
 
+import com.gmailreader.exception.GmailReaderException;
+import com.gmailreader.service.processing.RelatorioProcessamento;
 import com.google.api.services.gmail.model.History;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -7,11 +9,13 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigInteger;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -29,6 +33,9 @@ class GmailWatchServiceTest {
     @Mock
     private GmailHistoryService gmailHistoryService;
 
+    @Mock
+    private GmailIncrementalSyncService incrementalSyncService;
+
     private GmailWatchService gmailWatchService;
 
     @BeforeEach
@@ -36,7 +43,8 @@ class GmailWatchServiceTest {
         gmailWatchService = new GmailWatchService(
                 emailProcessingService,
                 gmailWatchManager,
-                gmailHistoryService
+                gmailHistoryService,
+                incrementalSyncService
         );
     }
 
@@ -47,6 +55,18 @@ class GmailWatchServiceTest {
         verify(gmailWatchManager).iniciarWatch();
     }
 
+    @Test
+    @DisplayName("Deve delegar para a sincronização incremental quando habilitada")
+    void deveDelegarParaSincronizacaoIncrementalQuandoHabilitada() {
+        ReflectionTestUtils.setField(gmailWatchService, "sincronizacaoIncremental", true);
+        BigInteger historyId = BigInteger.valueOf(12345);
+
+        gmailWatchService.processarEmailsDoHistorico(historyId);
+
+        verify(incrementalSyncService).sincronizar(historyId);
+        verifyNoInteractions(gmailHistoryService, emailProcessingService);
+    }
+
     @Test
     @DisplayName("Deve processar emails quando há histórico")
     void deveProcessarEmailsQuandoHaHistorico() {
@@ -167,4 +187,35 @@ class GmailWatchServiceTest {
         verify(gmailHistoryService).buscarHistorico(historyId);
         verify(emailProcessingService).processarEmails();
     }
+
+    @Test
+    @DisplayName("Deve lançar exceção quando a sincronização termina com emails com falha")
+    void deveLancarExcecaoQuandoSincronizacaoTemFalhas() {
+        ReflectionTestUtils.setField(gmailWatchService, "sincronizacaoIncremental", true);
+        BigInteger historyId = BigInteger.valueOf(500);
+        when(incrementalSyncService.sincronizar(historyId))
+                .thenReturn(new RelatorioProcessamento(1, 0, 0, Map.of("msg1", "Erro"), 10));
+
+        assertThrows(GmailReaderException.class, () -> gmailWatchService.sincronizarHistorico(historyId));
+    }
+
+    @Test
+    @DisplayName("Deve propagar falha da sincronização")
+    void devePropagarFalhaDaSincronizacao() {
+        BigInteger historyId = BigInteger.valueOf(600);
+        when(gmailHistoryService.buscarHistorico(historyId)).thenReturn(Collections.emptyList());
+        when(emailProcessingService.processarEmails()).thenThrow(new GmailReaderException("Falha na comunicação com Gmail API"));
+
+        assertThrows(GmailReaderException.class, () -> gmailWatchService.sincronizarHistorico(historyId));
+    }
+
+    @Test
+    @DisplayName("Deve concluir a sincronização quando todos os emails foram processados")
+    void deveConcluirSincronizacaoSemFalhas() {
+        BigInteger historyId = BigInteger.valueOf(700);
+        when(gmailHistoryService.buscarHistorico(historyId)).thenReturn(Collections.emptyList());
+        when(emailProcessingService.processarEmails()).thenReturn(new RelatorioProcessamento(2, 2, 0, Map.of(), 10));
+
+        assertDoesNotThrow(() -> gmailWatchService.sincronizarHistorico(historyId));
+    }
 }
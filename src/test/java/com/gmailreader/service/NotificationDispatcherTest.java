@@ -0,0 +1,178 @@
+package com.gmailreader.service;
+
+import com.gmailreader.exception.GmailReaderException;
+import com.gmailreader.repository.DeadLetterFileRepository;
+import com.gmailreader.repository.PendingNotificationFileRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@DisplayName("NotificationDispatcher")
+class NotificationDispatcherTest {
+
+    @Mock
+    private GmailWatchService gmailWatchService;
+
+    @Mock
+    private PendingNotificationFileRepository pendingRepository;
+
+    @Mock
+    private DeadLetterFileRepository deadLetterRepository;
+
+    private NotificationDispatcher dispatcher;
+
+    @BeforeEach
+    void setUp() {
+        dispatcher = new NotificationDispatcher(gmailWatchService, pendingRepository, deadLetterRepository);
+        ReflectionTestUtils.setField(dispatcher, "habilitado", true);
+        ReflectionTestUtils.setField(dispatcher, "janelaMs", 200L);
+        ReflectionTestUtils.setField(dispatcher, "esperaInicialMs", 50L);
+        when(pendingRepository.carregar()).thenReturn(Map.of());
+        dispatcher.iniciar();
+    }
+
+    @AfterEach
+    void tearDown() {
+        dispatcher.encerrar();
+    }
+
+    @Test
+    @DisplayName("Deve agrupar notificações da janela numa sincronização a partir do menor historyId")
+    void deveAgruparNotificacoesDaJanela() throws Exception {
+        CountDownLatch sincronizou = new CountDownLatch(1);
+        doAnswer(invocacao -> {
+            sincronizou.countDown();
+            return null;
+        }).when(gmailWatchService).sincronizarHistorico(any());
+
+        dispatcher.enfileirar("me", BigInteger.valueOf(300));
+        dispatcher.enfileirar("me", BigInteger.valueOf(100));
+        dispatcher.enfileirar("me", BigInteger.valueOf(200));
+
+        assertTrue(sincronizou.await(5, TimeUnit.SECONDS));
+        dispatcher.encerrar();
+
+        verify(gmailWatchService, times(1)).sincronizarHistorico(any());
+        verify(gmailWatchService).sincronizarHistorico(BigInteger.valueOf(100));
+        verify(pendingRepository).salvar(Map.of("me", BigInteger.valueOf(300)));
+        verify(pendingRepository).salvar(Map.of("me", BigInteger.valueOf(100)));
+        verify(pendingRepository).salvar(Map.of());
+        assertEquals(0, dispatcher.quantidadePendente());
+    }
+
+    @Test
+    @DisplayName("Deve agendar nova sincronização para notificação recebida durante a execução")
+    void deveAgendarNovaSincronizacaoDuranteExecucao() throws Exception {
+        CountDownLatch emExecucao = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        CountDownLatch segunda = new CountDownLatch(1);
+        AtomicInteger simultaneas = new AtomicInteger();
+        AtomicInteger maximoSimultaneas = new AtomicInteger();
+        doAnswer(invocacao -> {
+            maximoSimultaneas.accumulateAndGet(simultaneas.incrementAndGet(), Math::max);
+            if (BigInteger.valueOf(100).equals(invocacao.getArgument(0))) {
+                emExecucao.countDown();
+                liberar.await(5, TimeUnit.SECONDS);
+            } else {
+                segunda.countDown();
+            }
+            simultaneas.decrementAndGet();
+            return null;
+        }).when(gmailWatchService).sincronizarHistorico(any());
+
+        dispatcher.enfileirar("me", BigInteger.valueOf(100));
+        assertTrue(emExecucao.await(5, TimeUnit.SECONDS));
+
+        dispatcher.enfileirar("me", BigInteger.valueOf(150));
+        verify(pendingRepository, times(2)).salvar(Map.of("me", BigInteger.valueOf(100)));
+        liberar.countDown();
+
+        assertTrue(segunda.await(5, TimeUnit.SECONDS));
+        verify(gmailWatchService).sincronizarHistorico(BigInteger.valueOf(150));
+        assertEquals(1, maximoSimultaneas.get());
+    }
+
+    @Test
+    @DisplayName("Deve propagar falha de gravação sem manter a notificação pendente")
+    void devePropagarFalhaDeGravacao() throws Exception {
+        doThrow(new IOException("Disco cheio")).when(pendingRepository).salvar(any());
+
+        assertThrows(IOException.class, () -> dispatcher.enfileirar("me", BigInteger.TEN));
+
+        assertEquals(0, dispatcher.quantidadePendente());
+    }
+
+    @Test
+    @DisplayName("Deve retomar sincronizações pendentes gravadas antes do reinício")
+    void deveRetomarPendentesAoIniciar() throws Exception {
+        dispatcher.encerrar();
+        CountDownLatch sincronizou = new CountDownLatch(1);
+        doAnswer(invocacao -> {
+            sincronizou.countDown();
+            return null;
+        }).when(gmailWatchService).sincronizarHistorico(BigInteger.valueOf(42));
+        when(pendingRepository.carregar()).thenReturn(Map.of("me", BigInteger.valueOf(42)));
+
+        dispatcher.iniciar();
+
+        assertTrue(sincronizou.await(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    @DisplayName("Deve devolver a notificação à fila quando a sincronização falha")
+    void deveDevolverNotificacaoQuandoSincronizacaoFalha() throws Exception {
+        CountDownLatch novaTentativa = new CountDownLatch(1);
+        AtomicInteger chamadas = new AtomicInteger();
+        doAnswer(invocacao -> {
+            if (chamadas.incrementAndGet() == 1) {
+                throw new GmailReaderException("Falha na comunicação com Gmail API");
+            }
+            novaTentativa.countDown();
+            return null;
+        }).when(gmailWatchService).sincronizarHistorico(BigInteger.valueOf(70));
+
+        dispatcher.enfileirar("me", BigInteger.valueOf(70));
+
+        assertTrue(novaTentativa.await(5, TimeUnit.SECONDS));
+        verify(pendingRepository, atLeast(2)).salvar(Map.of("me", BigInteger.valueOf(70)));
+    }
+
+    @Test
+    @DisplayName("Deve gravar a sincronização no arquivo de descartadas após esgotar as tentativas")
+    void deveDescartarAposEsgotarTentativas() throws Exception {
+        ReflectionTestUtils.setField(dispatcher, "maxTentativas", 3);
+        CountDownLatch descartou = new CountDownLatch(1);
+        doThrow(new GmailReaderException("Mensagem não encontrada")).when(gmailWatchService).sincronizarHistorico(any());
+        doAnswer(invocacao -> {
+            descartou.countDown();
+            return null;
+        }).when(deadLetterRepository).registrar(any(), anyInt(), any(), any());
+
+        dispatcher.enfileirar("me@gmail.com", BigInteger.valueOf(70));
+
+        assertTrue(descartou.await(5, TimeUnit.SECONDS));
+        dispatcher.encerrar();
+        verify(gmailWatchService, times(3)).sincronizarHistorico(BigInteger.valueOf(70));
+        verify(deadLetterRepository).registrar(null, 3, "Mensagem não encontrada",
+                "{\"emailAddress\":\"me@gmail.com\",\"historyId\":70}");
+        assertEquals(0, dispatcher.quantidadePendente());
+    }
+}
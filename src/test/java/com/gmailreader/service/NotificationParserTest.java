@@ -162,4 +162,13 @@ class NotificationParserTest {
 
         assertNull(historyId, "HistoryId deve ser null para valor não numérico");
     }
+
+    @Test
+    @DisplayName("Deve extrair emailAddress da notificação")
+    void deveExtrairEmailAddress() {
+        assertEquals("test@gmail.com",
+                notificationParser.extrairEmailAddress("{\"historyId\":\"1\",\"emailAddress\":\"test@gmail.com\"}"));
+        assertNull(notificationParser.extrairEmailAddress("{\"historyId\":\"1\"}"));
+        assertNull(notificationParser.extrairEmailAddress("JSON inválido"));
+    }
 }
@@ -1,15 +1,19 @@
 package com.gmailreader.service;
 
+import com.gmailreader.repository.DeadLetterFileRepository;
 import com.google.cloud.pubsub.v1.AckReplyConsumer;
 import com.google.protobuf.ByteString;
 import com.google.pubsub.v1.PubsubMessage;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
+import java.io.IOException;
 import java.math.BigInteger;
 
 import static org.mockito.Mockito.*;
@@ -24,6 +28,12 @@ class PubSubMessageProcessorTest {
     @Mock
     private GmailWatchService gmailWatchService;
 
+    @Mock
+    private NotificationDispatcher notificationDispatcher;
+
+    @Mock
+    private DeadLetterFileRepository deadLetterRepository;
+
     @Mock
     private AckReplyConsumer ackReplyConsumer;
 
@@ -31,7 +41,15 @@ class PubSubMessageProcessorTest {
 
     @BeforeEach
     void setUp() {
-        pubSubMessageProcessor = new PubSubMessageProcessor(notificationParser, gmailWatchService);
+        pubSubMessageProcessor = new PubSubMessageProcessor(notificationParser, gmailWatchService,
+                notificationDispatcher, deadLetterRepository);
+        ReflectionTestUtils.setField(pubSubMessageProcessor, "maxTentativas", 3);
+        ReflectionTestUtils.setField(pubSubMessageProcessor, "esperaInicialMs", 0L);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pubSubMessageProcessor.encerrar();
     }
 
     @Test
@@ -49,10 +67,43 @@ class PubSubMessageProcessorTest {
 
 
         verify(notificationParser).extrairHistoryId(jsonNotification);
-        verify(gmailWatchService).processarEmailsDoHistorico(historyId);
+        verify(gmailWatchService).sincronizarHistorico(historyId);
+        verify(ackReplyConsumer).ack();
+    }
+
+    @Test
+    @DisplayName("Deve enfileirar notificação e enviar ack quando o agrupamento está habilitado")
+    void deveEnfileirarNotificacaoQuandoAgrupamentoHabilitado() throws Exception {
+        String jsonNotification = "{\"emailAddress\":\"user@example.com\",\"historyId\":\"12345\"}";
+        BigInteger historyId = new BigInteger("12345");
+
+        when(notificationParser.extrairHistoryId(jsonNotification)).thenReturn(historyId);
+        when(notificationParser.extrairEmailAddress(jsonNotification)).thenReturn("user@example.com");
+        when(notificationDispatcher.estaHabilitado()).thenReturn(true);
+
+        pubSubMessageProcessor.processarMensagem(criarPubsubMessage(jsonNotification), ackReplyConsumer);
+
+        verify(notificationDispatcher).enfileirar("user@example.com", historyId);
+        verify(gmailWatchService, never()).sincronizarHistorico(any());
         verify(ackReplyConsumer).ack();
     }
 
+    @Test
+    @DisplayName("Deve enviar nack quando a notificação não pôde ser enfileirada")
+    void deveEnviarNackQuandoNaoPodeEnfileirar() throws Exception {
+        String jsonNotification = "{\"historyId\":\"12345\"}";
+        BigInteger historyId = new BigInteger("12345");
+
+        when(notificationParser.extrairHistoryId(jsonNotification)).thenReturn(historyId);
+        when(notificationDispatcher.estaHabilitado()).thenReturn(true);
+        doThrow(new IOException("Disco cheio")).when(notificationDispatcher).enfileirar(null, historyId);
+
+        pubSubMessageProcessor.processarMensagem(criarPubsubMessage(jsonNotification), ackReplyConsumer);
+
+        verify(ackReplyConsumer).nack();
+        verify(ackReplyConsumer, never()).ack();
+    }
+
     @Test
     @DisplayName("Deve processar mensagem sem historyId e enviar ack")
     void deveProcessarMensagemSemHistoryIdEEnviarAck() {
@@ -65,13 +116,13 @@ class PubSubMessageProcessorTest {
         pubSubMessageProcessor.processarMensagem(message, ackReplyConsumer);
 
         verify(notificationParser).extrairHistoryId(jsonNotification);
-        verify(gmailWatchService, never()).processarEmailsDoHistorico(any());
+        verify(gmailWatchService, never()).sincronizarHistorico(any());
         verify(ackReplyConsumer).ack();
     }
 
     @Test
-    @DisplayName("Deve enviar ack mesmo quando ocorre exceção no processamento")
-    void deveEnviarAckMesmoQuandoOcorreExcecaoNoProcessamento() {
+    @DisplayName("Deve enviar nack quando ocorre exceção no processamento")
+    void deveEnviarNackQuandoOcorreExcecaoNoProcessamento() {
 
         String jsonNotification = "{\"historyId\":\"12345\"}";
         PubsubMessage message = criarPubsubMessage(jsonNotification);
@@ -79,18 +130,19 @@ class PubSubMessageProcessorTest {
 
         when(notificationParser.extrairHistoryId(jsonNotification)).thenReturn(historyId);
         doThrow(new RuntimeException("Erro no processamento"))
-                .when(gmailWatchService).processarEmailsDoHistorico(historyId);
+                .when(gmailWatchService).sincronizarHistorico(historyId);
 
         pubSubMessageProcessor.processarMensagem(message, ackReplyConsumer);
 
         verify(notificationParser).extrairHistoryId(jsonNotification);
-        verify(gmailWatchService).processarEmailsDoHistorico(historyId);
-        verify(ackReplyConsumer).ack();
+        verify(gmailWatchService).sincronizarHistorico(historyId);
+        verify(ackReplyConsumer).nack();
+        verify(ackReplyConsumer, never()).ack();
     }
 
     @Test
-    @DisplayName("Deve enviar ack quando parser lança exceção")
-    void deveEnviarAckQuandoParserLancaExcecao() {
+    @DisplayName("Deve enviar nack quando parser lança exceção")
+    void deveEnviarNackQuandoParserLancaExcecao() {
 
         String jsonNotification = "JSON inválido";
         PubsubMessage message = criarPubsubMessage(jsonNotification);
@@ -101,8 +153,82 @@ class PubSubMessageProcessorTest {
         pubSubMessageProcessor.processarMensagem(message, ackReplyConsumer);
 
         verify(notificationParser).extrairHistoryId(jsonNotification);
-        verify(gmailWatchService, never()).processarEmailsDoHistorico(any());
+        verify(gmailWatchService, never()).sincronizarHistorico(any());
+        verify(ackReplyConsumer).nack();
+    }
+
+    @Test
+    @DisplayName("Deve aguardar a espera configurada antes de enviar nack")
+    void deveAguardarEsperaAntesDoNack() {
+        ReflectionTestUtils.setField(pubSubMessageProcessor, "esperaInicialMs", 200L);
+        String jsonNotification = "{\"historyId\":\"12345\"}";
+        BigInteger historyId = new BigInteger("12345");
+
+        when(notificationParser.extrairHistoryId(jsonNotification)).thenReturn(historyId);
+        doThrow(new RuntimeException("503")).when(gmailWatchService).sincronizarHistorico(historyId);
+
+        pubSubMessageProcessor.processarMensagem(criarPubsubMessage(jsonNotification, "m1"), ackReplyConsumer);
+
+        verify(ackReplyConsumer, never()).nack();
+        verify(ackReplyConsumer, timeout(5000)).nack();
+    }
+
+    @Test
+    @DisplayName("Deve gravar no arquivo de descartadas e enviar ack após esgotar as tentativas")
+    void deveDescartarAposEsgotarTentativas() throws Exception {
+        String jsonNotification = "{\"historyId\":\"12345\"}";
+        BigInteger historyId = new BigInteger("12345");
+
+        when(notificationParser.extrairHistoryId(jsonNotification)).thenReturn(historyId);
+        doThrow(new RuntimeException("Erro no processamento"))
+                .when(gmailWatchService).sincronizarHistorico(historyId);
+
+        for (int i = 0; i < 3; i++) {
+            pubSubMessageProcessor.processarMensagem(criarPubsubMessage(jsonNotification, "m1"), ackReplyConsumer);
+        }
+
+        verify(ackReplyConsumer, times(2)).nack();
         verify(ackReplyConsumer).ack();
+        verify(deadLetterRepository).registrar("m1", 3, "Erro no processamento", jsonNotification);
+    }
+
+    @Test
+    @DisplayName("Deve esquecer a contagem de tentativas expirada")
+    void deveEsquecerContagemExpirada() throws Exception {
+        ReflectionTestUtils.setField(pubSubMessageProcessor, "expiracaoMs", 0L);
+        String jsonNotification = "{\"historyId\":\"12345\"}";
+        BigInteger historyId = new BigInteger("12345");
+
+        when(notificationParser.extrairHistoryId(jsonNotification)).thenReturn(historyId);
+        doThrow(new RuntimeException("Erro no processamento"))
+                .when(gmailWatchService).sincronizarHistorico(historyId);
+
+        for (int i = 0; i < 3; i++) {
+            pubSubMessageProcessor.processarMensagem(criarPubsubMessage(jsonNotification, "m1"), ackReplyConsumer);
+        }
+
+        verify(ackReplyConsumer, times(3)).nack();
+        verify(ackReplyConsumer, never()).ack();
+        verifyNoInteractions(deadLetterRepository);
+    }
+
+    @Test
+    @DisplayName("Deve enviar nack quando não consegue gravar no arquivo de descartadas")
+    void deveEnviarNackQuandoNaoGravaDescartada() throws Exception {
+        ReflectionTestUtils.setField(pubSubMessageProcessor, "maxTentativas", 1);
+        String jsonNotification = "{\"historyId\":\"12345\"}";
+        BigInteger historyId = new BigInteger("12345");
+
+        when(notificationParser.extrairHistoryId(jsonNotification)).thenReturn(historyId);
+        doThrow(new RuntimeException("Erro no processamento"))
+                .when(gmailWatchService).sincronizarHistorico(historyId);
+        doThrow(new IOException("Disco cheio")).when(deadLetterRepository)
+                .registrar(anyString(), anyInt(), anyString(), anyString());
+
+        pubSubMessageProcessor.processarMensagem(criarPubsubMessage(jsonNotification, "m1"), ackReplyConsumer);
+
+        verify(ackReplyConsumer).nack();
+        verify(ackReplyConsumer, never()).ack();
     }
 
     @Test
@@ -118,7 +244,7 @@ class PubSubMessageProcessorTest {
         pubSubMessageProcessor.processarMensagem(message, ackReplyConsumer);
 
         verify(notificationParser).extrairHistoryId(jsonNotification);
-        verify(gmailWatchService).processarEmailsDoHistorico(historyId);
+        verify(gmailWatchService).sincronizarHistorico(historyId);
         verify(ackReplyConsumer).ack();
     }
 
@@ -134,7 +260,7 @@ class PubSubMessageProcessorTest {
         pubSubMessageProcessor.processarMensagem(message, ackReplyConsumer);
 
         verify(notificationParser).extrairHistoryId(jsonNotification);
-        verify(gmailWatchService, never()).processarEmailsDoHistorico(any());
+        verify(gmailWatchService, never()).sincronizarHistorico(any());
         verify(ackReplyConsumer).ack();
     }
 
@@ -162,9 +288,9 @@ class PubSubMessageProcessorTest {
         pubSubMessageProcessor.processarMensagem(message2, ackReplyConsumer);
         pubSubMessageProcessor.processarMensagem(message3, ackReplyConsumer);
 
-        verify(gmailWatchService).processarEmailsDoHistorico(historyId1);
-        verify(gmailWatchService).processarEmailsDoHistorico(historyId2);
-        verify(gmailWatchService).processarEmailsDoHistorico(historyId3);
+        verify(gmailWatchService).sincronizarHistorico(historyId1);
+        verify(gmailWatchService).sincronizarHistorico(historyId2);
+        verify(gmailWatchService).sincronizarHistorico(historyId3);
         verify(ackReplyConsumer, times(3)).ack();
     }
 
@@ -181,7 +307,7 @@ class PubSubMessageProcessorTest {
         pubSubMessageProcessor.processarMensagem(message, ackReplyConsumer);
 
         verify(notificationParser).extrairHistoryId(jsonComplexo);
-        verify(gmailWatchService).processarEmailsDoHistorico(historyId);
+        verify(gmailWatchService).sincronizarHistorico(historyId);
         verify(ackReplyConsumer).ack();
     }
 
@@ -214,7 +340,7 @@ class PubSubMessageProcessorTest {
         pubSubMessageProcessor.processarMensagem(message, ackReplyConsumer);
 
         verify(notificationParser).extrairHistoryId(jsonNotification);
-        verify(gmailWatchService).processarEmailsDoHistorico(historyId);
+        verify(gmailWatchService).sincronizarHistorico(historyId);
         verify(ackReplyConsumer).ack();
     }
 
@@ -223,4 +349,11 @@ class PubSubMessageProcessorTest {
                 .setData(ByteString.copyFromUtf8(data))
                 .build();
     }
+
+    private PubsubMessage criarPubsubMessage(String data, String messageId) {
+        return PubsubMessage.newBuilder()
+                .setData(ByteString.copyFromUtf8(data))
+                .setMessageId(messageId)
+                .build();
+    }
 }
@@ -0,0 +1,152 @@
+package com.gmailreader.service.batch;
+
+import com.gmailreader.service.provider.MensagemNaoEncontradaException;
+import com.gmailreader.service.provider.ResultadoBuscaMensagens;
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.api.client.json.gson.GsonFactory;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import com.google.api.services.gmail.Gmail;
+import com.google.api.services.gmail.model.Message;
+import com.google.api.services.gmail.model.ModifyMessageRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("GmailBatchClient")
+class GmailBatchClientTest {
+
+    private static final String FRONTEIRA = "batch_teste";
+
+    private TransporteDeLotes transporte;
+    private GmailBatchClient batchClient;
+
+    @BeforeEach
+    void setUp() {
+        transporte = new TransporteDeLotes();
+        Gmail gmail = new Gmail.Builder(transporte, GsonFactory.getDefaultInstance(), null)
+                .setApplicationName("gmailreader-teste")
+                .build();
+        batchClient = new GmailBatchClient(gmail);
+        ReflectionTestUtils.setField(batchClient, "tamanhoLote", 50);
+    }
+
+    @Test
+    @DisplayName("Deve buscar mensagens em uma única requisição de lote")
+    void deveBuscarMensagensEmUmaUnicaRequisicao() throws Exception {
+        transporte.responder(
+                parteSucesso("{\"id\":\"msg1\",\"snippet\":\"primeira\"}"),
+                parteSucesso("{\"id\":\"msg2\",\"snippet\":\"segunda\"}"));
+
+        ResultadoBuscaMensagens resultado = batchClient.obterMensagens(List.of("msg1", "msg2"), "me");
+
+        assertEquals(1, transporte.requisicoes.size());
+        assertEquals(List.of("msg1", "msg2"), resultado.getMensagens().stream().map(Message::getId).toList());
+        assertEquals("primeira", resultado.getMensagens().get(0).getSnippet());
+        assertFalse(resultado.temFalhas());
+    }
+
+    @Test
+    @DisplayName("Deve registrar falha apenas da mensagem que falhou no lote")
+    void deveRegistrarFalhaApenasDaMensagemQueFalhou() throws Exception {
+        transporte.responder(
+                parteSucesso("{\"id\":\"msg1\"}"),
+                parteFalha(404, "Requested entity was not found."),
+                parteSucesso("{\"id\":\"msg3\"}"));
+
+        ResultadoBuscaMensagens resultado = batchClient.obterMensagens(List.of("msg1", "msg2", "msg3"), "me");
+
+        assertEquals(List.of("msg1", "msg3"), resultado.getMensagens().stream().map(Message::getId).toList());
+        assertEquals(1, resultado.getFalhas().size());
+        assertInstanceOf(MensagemNaoEncontradaException.class, resultado.getFalhas().get("msg2"));
+        assertTrue(resultado.getFalhas().get("msg2").getCause().getMessage().contains("404"));
+    }
+
+    @Test
+    @DisplayName("Deve dividir as chamadas conforme o tamanho do lote")
+    void deveDividirChamadasConformeTamanhoDoLote() throws Exception {
+        ReflectionTestUtils.setField(batchClient, "tamanhoLote", 2);
+        transporte.responder(parteSucesso("{\"id\":\"msg1\"}"), parteSucesso("{\"id\":\"msg2\"}"));
+        transporte.responder(parteSucesso("{\"id\":\"msg3\"}"));
+
+        Map<String, IOException> falhas = batchClient.modificarMensagens(List.of("msg1", "msg2", "msg3"), "me",
+                new ModifyMessageRequest().setRemoveLabelIds(List.of("UNREAD")));
+
+        assertTrue(falhas.isEmpty());
+        assertEquals(2, transporte.requisicoes.size());
+        assertTrue(transporte.requisicoes.get(0).getContentAsString().contains("/messages/msg2/modify"));
+        assertTrue(transporte.requisicoes.get(1).getContentAsString().contains("UNREAD"));
+    }
+
+    @Test
+    @DisplayName("Deve marcar como falha as mensagens de um lote que não pôde ser enviado")
+    void deveMarcarFalhaQuandoLoteInteiroFalha() throws Exception {
+        ReflectionTestUtils.setField(batchClient, "tamanhoLote", 1);
+        transporte.falharProximaRequisicao();
+        transporte.responder(parteSucesso("{\"id\":\"msg2\"}"));
+
+        ResultadoBuscaMensagens resultado = batchClient.obterMensagens(List.of("msg1", "msg2"), "me");
+
+        assertEquals(List.of("msg2"), resultado.getMensagens().stream().map(Message::getId).toList());
+        assertEquals(List.of("msg1"), new ArrayList<>(resultado.getFalhas().keySet()));
+    }
+
+    private static String parteSucesso(String json) {
+        return "HTTP/1.1 200 OK\r\nContent-Type: application/json; charset=UTF-8\r\n\r\n" + json + "\r\n";
+    }
+
+    private static String parteFalha(int codigo, String mensagem) {
+        String json = String.format("{\"error\":{\"code\":%d,\"message\":\"%s\",\"errors\":[{\"message\":\"%s\",\"reason\":\"notFound\"}]}}",
+                codigo, mensagem, mensagem);
+        return "HTTP/1.1 " + codigo + " Not Found\r\nContent-Type: application/json; charset=UTF-8\r\n\r\n" + json + "\r\n";
+    }
+
+    private static final class TransporteDeLotes extends MockHttpTransport {
+
+        private final Deque<MockLowLevelHttpResponse> respostas = new ArrayDeque<>();
+        private final List<MockLowLevelHttpRequest> requisicoes = new ArrayList<>();
+
+        void responder(String... partes) {
+            StringBuilder corpo = new StringBuilder();
+            for (int i = 0; i < partes.length; i++) {
+                corpo.append("--").append(FRONTEIRA).append("\r\n")
+                        .append("Content-Type: application/http\r\n")
+                        .append("Content-ID: <response-").append(i + 1).append(">\r\n\r\n")
+                        .append(partes[i]);
+            }
+            corpo.append("--").append(FRONTEIRA).append("--\r\n");
+
+            respostas.add(new MockLowLevelHttpResponse()
+                    .setContentType("multipart/mixed; boundary=" + FRONTEIRA)
+                    .setContent(corpo.toString()));
+        }
+
+        void falharProximaRequisicao() {
+            respostas.add(new MockLowLevelHttpResponse().setStatusCode(503).setReasonPhrase("Service Unavailable"));
+        }
+
+        @Override
+        public LowLevelHttpRequest buildRequest(String method, String url) {
+            MockLowLevelHttpRequest requisicao = new MockLowLevelHttpRequest(url) {
+                @Override
+                public LowLevelHttpResponse execute() throws IOException {
+                    return respostas.removeFirst();
+                }
+            };
+            requisicoes.add(requisicao);
+            return requisicao;
+        }
+    }
+}
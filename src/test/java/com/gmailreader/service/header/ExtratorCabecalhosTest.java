@@ -0,0 +1,51 @@
+package com.gmailreader.service.header;
+
+import com.google.api.services.gmail.model.MessagePartHeader;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ExtratorCabecalhos")
+class ExtratorCabecalhosTest {
+
+    private final ExtratorCabecalhos extrator = new ExtratorCabecalhos(List.of("From", "Subject", "Date", "Message-ID"));
+
+    @Test
+    @DisplayName("Deve coletar os cabeçalhos pedidos numa passada, ignorando maiúsculas e repetições")
+    void deveColetarCabecalhosPedidos() {
+        List<MessagePartHeader> headers = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            headers.add(header("Received", "relay-" + i));
+        }
+        headers.add(header("FROM", "a@example.com"));
+        headers.add(header("Subject", "Primeiro"));
+        headers.add(header("subject", "Segundo"));
+        headers.add(header(null, "sem nome"));
+
+        CabecalhosEmail cabecalhos = extrator.extrair(headers);
+
+        assertEquals("a@example.com", cabecalhos.obter("From"));
+        assertEquals("Primeiro", cabecalhos.obter("Subject"));
+        assertEquals("", cabecalhos.obter("Date"));
+        assertEquals("", cabecalhos.obter("X-Desconhecido"));
+        assertEquals(Map.of(), cabecalhos.comoMapa(3));
+    }
+
+    @Test
+    @DisplayName("Deve devolver cabeçalhos vazios quando a mensagem não tem cabeçalhos")
+    void deveDevolverVazioSemCabecalhos() {
+        CabecalhosEmail cabecalhos = extrator.extrair(null);
+
+        assertEquals("", cabecalhos.obter("From"));
+        assertEquals(Map.of(), cabecalhos.comoMapa(0));
+    }
+
+    private MessagePartHeader header(String nome, String valor) {
+        return new MessagePartHeader().setName(nome).setValue(valor);
+    }
+}
@@ -0,0 +1,103 @@
+package com.gmailreader.service.mime;
+
+import com.google.api.services.gmail.model.MessagePart;
+import com.google.api.services.gmail.model.MessagePartBody;
+import com.google.api.services.gmail.model.MessagePartHeader;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ExtratorConteudoMime")
+class ExtratorConteudoMimeTest {
+
+    @Test
+    @DisplayName("Deve achar corpo e anexos em partes aninhadas numa única passada")
+    void deveAcharCorpoEAnexosAninhados() {
+        MessagePart alternativa = multipart("multipart/alternative",
+                texto("text/html", "<p>Olá</p>", StandardCharsets.UTF_8),
+                texto("text/plain", "Olá", StandardCharsets.UTF_8));
+        MessagePart relacionada = multipart("multipart/related", alternativa, anexo("logo.png", "image/png"));
+        MessagePart mista = multipart("multipart/mixed", relacionada, anexo("fatura.pdf", "application/pdf"));
+
+        ConteudoMime conteudo = new ExtratorConteudoMime(0).extrair(mista);
+
+        assertEquals("Olá", conteudo.getCorpo());
+        assertEquals(List.of("logo.png (image/png)", "fatura.pdf (application/pdf)"), conteudo.getAnexos());
+        assertFalse(conteudo.isTruncado());
+    }
+
+    @Test
+    @DisplayName("Deve usar o HTML quando não há texto plano e ignorar anexos de texto")
+    void deveUsarHtmlNaFaltaDeTextoPlano() {
+        MessagePart anexoTexto = texto("text/plain", "conteúdo do anexo", StandardCharsets.UTF_8);
+        anexoTexto.setFilename("notas.txt");
+        MessagePart mista = multipart("multipart/mixed",
+                multipart("multipart/alternative", texto("text/html", "<b>Oi</b>", StandardCharsets.UTF_8)),
+                anexoTexto);
+
+        ConteudoMime conteudo = new ExtratorConteudoMime(0).extrair(mista);
+
+        assertEquals("<b>Oi</b>", conteudo.getCorpo());
+        assertEquals(List.of("notas.txt (text/plain)"), conteudo.getAnexos());
+    }
+
+    @Test
+    @DisplayName("Deve decodificar no charset declarado e cortar no limite sem caractere quebrado")
+    void deveDecodificarNoCharsetECortarNoLimite() {
+        Charset latin1 = StandardCharsets.ISO_8859_1;
+        assertEquals("Ação", new ExtratorConteudoMime(0).extrair(texto("text/plain", "Ação", latin1)).getCorpo());
+
+        // "ããã" em UTF-8 ocupa 6 bytes; o limite de 5 cortaria o último caractere ao meio
+        ConteudoMime cortado = new ExtratorConteudoMime(5).extrair(texto("text/plain", "ããã", StandardCharsets.UTF_8));
+
+        assertEquals("ãã", cortado.getCorpo());
+        assertTrue(cortado.isTruncado());
+    }
+
+    @Test
+    @DisplayName("Deve interpretar o parâmetro charset do Content-Type")
+    void deveInterpretarCharset() {
+        assertEquals(StandardCharsets.ISO_8859_1, ExtratorConteudoMime.interpretarCharset("text/plain; CHARSET=\"iso-8859-1\"; format=flowed"));
+        assertEquals(StandardCharsets.UTF_8, ExtratorConteudoMime.interpretarCharset("text/plain"));
+        assertEquals(StandardCharsets.UTF_8, ExtratorConteudoMime.interpretarCharset("text/plain; charset=x-inexistente"));
+    }
+
+    private static MessagePart multipart(String mimeType, MessagePart... partes) {
+        MessagePart parte = new MessagePart();
+        parte.setMimeType(mimeType);
+        parte.setParts(List.of(partes));
+        return parte;
+    }
+
+    private static MessagePart texto(String mimeType, String conteudo, Charset charset) {
+        MessagePartHeader contentType = new MessagePartHeader();
+        contentType.setName("Content-Type");
+        contentType.setValue(mimeType + "; charset=" + charset.name());
+
+        MessagePartBody body = new MessagePartBody();
+        body.setData(Base64.getUrlEncoder().encodeToString(conteudo.getBytes(charset)));
+
+        MessagePart parte = new MessagePart();
+        parte.setMimeType(mimeType);
+        parte.setHeaders(List.of(contentType));
+        parte.setBody(body);
+        return parte;
+    }
+
+    private static MessagePart anexo(String nomeArquivo, String mimeType) {
+        MessagePartBody body = new MessagePartBody();
+        body.setAttachmentId("att-" + nomeArquivo);
+
+        MessagePart parte = new MessagePart();
+        parte.setFilename(nomeArquivo);
+        parte.setMimeType(mimeType);
+        parte.setBody(body);
+        return parte;
+    }
+}
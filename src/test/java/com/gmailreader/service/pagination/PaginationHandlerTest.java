@@ -170,6 +170,7 @@ class PaginationHandlerTest {
         paginationHandler.buscarMensagensPaginadas(gmailService, criteria);
 
         verify(listRequest).setQ("subject:test");
+        verify(listRequest).setFields("messages/id,nextPageToken");
     }
 
     @Test
@@ -320,6 +321,43 @@ class PaginationHandlerTest {
         verify(listRequest).setLabelIds(labels);
     }
 
+    @Test
+    @DisplayName("Deve buscar uma única página e devolver o próximo token")
+    void deveBuscarUmaUnicaPaginaEDevolverProximoToken() throws Exception {
+        EmailSearchCriteria criteria = EmailSearchCriteria.builder()
+                .userId("me")
+                .labelIds(Collections.singletonList("INBOX"))
+                .idsExcluidos(List.of("msg2"))
+                .build();
+
+        configurarMocks(criarResponse(List.of("msg1", "msg2"), "token2"));
+
+        PaginaMensagens pagina = paginationHandler.buscarPagina(gmailService, criteria, "token1");
+
+        assertEquals(List.of("msg1"), pagina.getMessageIds());
+        assertEquals("token2", pagina.getProximoToken());
+        assertTrue(pagina.temProxima());
+        verify(listRequest).setPageToken("token1");
+        verify(listRequest, times(1)).execute();
+    }
+
+    @Test
+    @DisplayName("Deve descartar IDs rejeitados pelo filtro do critério")
+    void deveDescartarIdsRejeitadosPeloFiltro() throws Exception {
+        EmailSearchCriteria criteria = EmailSearchCriteria.builder()
+                .userId("me")
+                .labelIds(Collections.singletonList("INBOX"))
+                .filtroIds(id -> !id.equals("msg1"))
+                .build();
+
+        configurarMocks(criarResponse(List.of("msg1", "msg2", "msg3"), null));
+
+        PaginaMensagens pagina = paginationHandler.buscarPagina(gmailService, criteria, null);
+
+        assertEquals(List.of("msg2", "msg3"), pagina.getMessageIds());
+        assertFalse(pagina.temProxima());
+    }
+
     private void configurarMocks(ListMessagesResponse response) throws IOException {
         when(gmailService.users()).thenReturn(users);
         when(users.messages()).thenReturn(messages);
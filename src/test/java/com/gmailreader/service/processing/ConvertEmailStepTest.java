@@ -1,5 +1,6 @@
 package com.gmailreader.service.processing;
 
+import com.gmailreader.dto.EmailDto;
 import com.gmailreader.service.EmailToJsonService;
 import com.google.api.services.gmail.model.Message;
 import org.junit.jupiter.api.BeforeEach;
@@ -8,6 +9,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -133,4 +135,21 @@ class ConvertEmailStepTest {
         assertDoesNotThrow(() -> convertEmailStep.processar(message, context));
         assertEquals(json, context.obterJsonConvertido());
     }
+
+    @Test
+    @DisplayName("Deve guardar o DTO no contexto quando a escrita em fluxo está ativa")
+    void deveGuardarDtoQuandoEscritaEmFluxoAtiva() throws Exception {
+        ReflectionTestUtils.setField(convertEmailStep, "escritaEmFluxo", true);
+        Message message = new Message().setId("msg123");
+        ProcessingContext context = new ProcessingContext("msg123");
+        EmailDto emailDto = new EmailDto("msg123", "", "", "", "");
+
+        when(emailToJsonService.converterParaDto(message)).thenReturn(emailDto);
+
+        convertEmailStep.processar(message, context);
+
+        assertSame(emailDto, context.obterEmailConvertido());
+        assertNull(context.obterJsonConvertido());
+        verify(emailToJsonService, never()).converter(any());
+    }
 }
@@ -0,0 +1,134 @@
+package com.gmailreader.service.processing;
+
+import com.google.api.services.gmail.model.Message;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("EstagioProcessamento")
+class EstagioProcessamentoTest {
+
+    private SimpleMeterRegistry meterRegistry;
+    private Map<String, Set<String>> threadsPorStep;
+    private ProcessingStep cadeia;
+
+    @BeforeEach
+    void setUp() {
+        meterRegistry = new SimpleMeterRegistry();
+        threadsPorStep = new ConcurrentHashMap<>();
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (cadeia instanceof EstagioProcessamento estagio) {
+            estagio.close();
+        }
+    }
+
+    private ProcessingStep criarCadeia(List<ProcessingStep> steps) {
+        cadeia = new ProcessingChainFactory().criarCadeiaEmEstagios(steps, step ->
+                new EstagioProcessamento(EstagioProcessamento.nomeDoEstagio(step), step, 2, 4, meterRegistry));
+        return cadeia;
+    }
+
+    private CompletableFuture<Void> enviar(String emailId) throws Exception {
+        ProcessingContext context = new ProcessingContext(emailId);
+        cadeia.processar(new Message().setId(emailId), context);
+        return context.conclusao();
+    }
+
+    @Test
+    @DisplayName("Deve gerar nome do estágio a partir da classe do step")
+    void deveGerarNomeDoEstagio() {
+        assertEquals("registro", EstagioProcessamento.nomeDoEstagio(new RegistroStep("x")));
+        assertEquals("check-already-processed",
+                EstagioProcessamento.nomeDoEstagio(new CheckAlreadyProcessedStep(null)));
+    }
+
+    @Test
+    @DisplayName("Deve executar cada step no pool do seu estágio e concluir o contexto")
+    void deveExecutarCadaStepNoSeuEstagio() throws Exception {
+        criarCadeia(List.of(new RegistroStep("primeiro"), new RegistroStep("segundo")));
+
+        List<CompletableFuture<Void>> conclusoes = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            conclusoes.add(enviar("msg" + i));
+        }
+        CompletableFuture.allOf(conclusoes.toArray(new CompletableFuture[0])).get(10, TimeUnit.SECONDS);
+
+        assertTrue(threadsPorStep.get("primeiro").stream().anyMatch(nome -> nome.startsWith("gmail-estagio-registro")));
+        assertTrue(threadsPorStep.get("segundo").stream().anyMatch(nome -> nome.startsWith("gmail-estagio-registro")));
+        assertEquals(60, (long) meterRegistry.get("gmail.processamento.estagio.latencia")
+                .tag("estagio", "registro").timers().stream().mapToLong(t -> t.count()).sum());
+        assertNotNull(meterRegistry.get("gmail.processamento.estagio.fila").tag("estagio", "registro").gauge());
+    }
+
+    @Test
+    @DisplayName("Deve concluir quando um step interrompe a cadeia")
+    void deveConcluirQuandoStepInterrompeCadeia() throws Exception {
+        criarCadeia(List.of(new InterrompeStep(), new RegistroStep("depois")));
+
+        enviar("msg1").get(5, TimeUnit.SECONDS);
+
+        assertNull(threadsPorStep.get("depois"));
+    }
+
+    @Test
+    @DisplayName("Deve propagar falha do step para a conclusão do contexto")
+    void devePropagarFalhaParaConclusao() {
+        criarCadeia(List.of(new RegistroStep("primeiro"), new FalhaStep()));
+
+        CompletionException erro = assertThrows(CompletionException.class, () -> enviar("msg1").join());
+
+        assertEquals("Falha simulada", erro.getCause().getMessage());
+    }
+
+    private class RegistroStep extends AbstractProcessingStep {
+
+        private final String rotulo;
+
+        RegistroStep(String rotulo) {
+            this.rotulo = rotulo;
+        }
+
+        @Override
+        protected void executarProcessamento(Message message, ProcessingContext context) {
+            threadsPorStep.computeIfAbsent(rotulo, chave -> ConcurrentHashMap.newKeySet())
+                    .add(Thread.currentThread().getName());
+        }
+    }
+
+    private static class InterrompeStep extends AbstractProcessingStep {
+
+        @Override
+        protected void executarProcessamento(Message message, ProcessingContext context) {
+            context.definirJaProcessado(true);
+        }
+
+        @Override
+        public void processar(Message message, ProcessingContext context) throws Exception {
+            executarProcessamento(message, context);
+        }
+    }
+
+    private static class FalhaStep extends AbstractProcessingStep {
+
+        @Override
+        protected void executarProcessamento(Message message, ProcessingContext context) {
+            throw new IllegalStateException("Falha simulada");
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package com.gmailreader.service.processing;
 
 import com.gmailreader.repository.ProcessedEmailFileRepository;
+import com.gmailreader.service.StorageService;
 import com.google.api.services.gmail.model.Message;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
@@ -9,7 +10,12 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -19,6 +25,9 @@ class MarkAsProcessedStepTest {
     @Mock
     private ProcessedEmailFileRepository processedEmailRepository;
 
+    @Mock
+    private StorageService storageService;
+
     @Mock
     private ProcessingStep nextStep;
 
@@ -26,7 +35,11 @@ class MarkAsProcessedStepTest {
 
     @BeforeEach
     void setUp() {
-        markAsProcessedStep = new MarkAsProcessedStep(processedEmailRepository);
+        markAsProcessedStep = new MarkAsProcessedStep(processedEmailRepository, storageService);
+        lenient().when(storageService.aposGravacao(any()))
+                .thenAnswer(invocacao -> invocacao.<Supplier<CompletableFuture<Void>>>getArgument(0).get());
+        lenient().when(processedEmailRepository.registrarComoProcessado(any()))
+                .thenReturn(CompletableFuture.completedFuture(null));
     }
 
     @Test
@@ -37,7 +50,21 @@ class MarkAsProcessedStepTest {
 
         markAsProcessedStep.processar(message, context);
 
-        verify(processedEmailRepository).marcarComoProcessado("msg123");
+        verify(processedEmailRepository).registrarComoProcessado("msg123");
+    }
+
+    @Test
+    @DisplayName("Deve adiar o registro até a gravação do email no arquivo")
+    void deveAdiarRegistroAteGravacao() throws Exception {
+        CompletableFuture<Void> gravacao = new CompletableFuture<>();
+        doReturn(gravacao).when(storageService).aposGravacao(any());
+        Message message = new Message().setId("msg123");
+        ProcessingContext context = new ProcessingContext("msg123");
+
+        markAsProcessedStep.processar(message, context);
+
+        verify(processedEmailRepository, never()).registrarComoProcessado(any());
+        assertSame(gravacao, context.registroProcessado());
     }
 
     @Test
@@ -49,20 +76,22 @@ class MarkAsProcessedStepTest {
         markAsProcessedStep.setNext(nextStep);
         markAsProcessedStep.processar(message, context);
 
-        verify(processedEmailRepository).marcarComoProcessado("msg456");
+        verify(processedEmailRepository).registrarComoProcessado("msg456");
         verify(nextStep).processar(message, context);
     }
 
     @Test
-    @DisplayName("Deve propagar exceção do repository")
-    void devePropagaExcecaoDoRepository() throws Exception {
+    @DisplayName("Deve expor no contexto a falha ao registrar o email")
+    void deveExporFalhaDoRepositoryNoContexto() throws Exception {
         Message message = new Message().setId("msg789");
         ProcessingContext context = new ProcessingContext("msg789");
 
-        doThrow(new RuntimeException("Erro no repository")).when(processedEmailRepository).marcarComoProcessado("msg789");
+        when(processedEmailRepository.registrarComoProcessado("msg789"))
+                .thenReturn(CompletableFuture.failedFuture(new IOException("Disco cheio")));
+
+        markAsProcessedStep.processar(message, context);
 
-        assertThrows(RuntimeException.class,
-                () -> markAsProcessedStep.processar(message, context));
+        assertTrue(context.registroProcessado().isCompletedExceptionally());
     }
 
     @Test
@@ -80,9 +109,9 @@ class MarkAsProcessedStepTest {
         markAsProcessedStep.processar(message2, context2);
         markAsProcessedStep.processar(message3, context3);
 
-        verify(processedEmailRepository).marcarComoProcessado("msg1");
-        verify(processedEmailRepository).marcarComoProcessado("msg2");
-        verify(processedEmailRepository).marcarComoProcessado("msg3");
+        verify(processedEmailRepository).registrarComoProcessado("msg1");
+        verify(processedEmailRepository).registrarComoProcessado("msg2");
+        verify(processedEmailRepository).registrarComoProcessado("msg3");
     }
 
     @Test
@@ -92,7 +121,7 @@ class MarkAsProcessedStepTest {
         ProcessingContext context = new ProcessingContext("msg999");
 
         assertDoesNotThrow(() -> markAsProcessedStep.processar(message, context));
-        verify(processedEmailRepository).marcarComoProcessado("msg999");
+        verify(processedEmailRepository).registrarComoProcessado("msg999");
     }
 
     @Test
@@ -104,7 +133,7 @@ class MarkAsProcessedStepTest {
 
         markAsProcessedStep.processar(message, context);
 
-        verify(processedEmailRepository).marcarComoProcessado(specialId);
+        verify(processedEmailRepository).registrarComoProcessado(specialId);
     }
 
     @Test
@@ -116,6 +145,6 @@ class MarkAsProcessedStepTest {
 
         markAsProcessedStep.processar(message, context);
 
-        verify(processedEmailRepository).marcarComoProcessado(longId);
+        verify(processedEmailRepository).registrarComoProcessado(longId);
     }
 }
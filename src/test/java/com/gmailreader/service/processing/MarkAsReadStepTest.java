@@ -1,5 +1,6 @@
 package com.gmailreader.service.processing;
 
+import com.gmailreader.service.DeferredReadMarker;
 import com.gmailreader.service.GmailModifierService;
 import com.google.api.services.gmail.model.Message;
 import org.junit.jupiter.api.BeforeEach;
@@ -12,6 +13,7 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import java.io.IOException;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -21,6 +23,9 @@ class MarkAsReadStepTest {
     @Mock
     private GmailModifierService gmailModifierService;
 
+    @Mock
+    private DeferredReadMarker deferredReadMarker;
+
     @Mock
     private ProcessingStep nextStep;
 
@@ -28,7 +33,7 @@ class MarkAsReadStepTest {
 
     @BeforeEach
     void setUp() {
-        markAsReadStep = new MarkAsReadStep(gmailModifierService);
+        markAsReadStep = new MarkAsReadStep(gmailModifierService, deferredReadMarker);
     }
 
     @Test
@@ -120,4 +125,19 @@ class MarkAsReadStepTest {
 
         verify(gmailModifierService).marcarComoLido(longId);
     }
+
+    @Test
+    @DisplayName("Deve agendar marcação quando o modo adiado está ativo")
+    void deveAgendarMarcacaoQuandoModoAdiadoAtivo() throws Exception {
+        Message message = new Message().setId("msg321");
+        ProcessingContext context = new ProcessingContext("msg321");
+
+        when(deferredReadMarker.estaAtiva()).thenReturn(true);
+        markAsReadStep.setNext(nextStep);
+        markAsReadStep.processar(message, context);
+
+        verify(deferredReadMarker).agendar("msg321");
+        verify(gmailModifierService, never()).marcarComoLido(anyString());
+        verify(nextStep).processar(message, context);
+    }
 }
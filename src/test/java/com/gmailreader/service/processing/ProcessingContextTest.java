@@ -185,4 +185,39 @@ class ProcessingContextTest {
         context.definirJaProcessado(false);
         assertFalse(context.jaFoiProcessado());
     }
+
+    @Test
+    @DisplayName("Deve considerar concluído o contexto que não passou por estágios")
+    void deveConsiderarConcluidoContextoSemEstagios() {
+        ProcessingContext context = new ProcessingContext("email123");
+
+        assertTrue(context.conclusao().isDone());
+    }
+
+    @Test
+    @DisplayName("Deve concluir somente após a última etapa pendente")
+    void deveConcluirSomenteAposUltimaEtapa() {
+        ProcessingContext context = new ProcessingContext("email123");
+
+        context.iniciarEtapa();
+        context.iniciarEtapa();
+        context.concluirEtapa();
+        assertFalse(context.conclusao().isDone());
+
+        context.concluirEtapa();
+        assertTrue(context.conclusao().isDone());
+        assertFalse(context.conclusao().isCompletedExceptionally());
+    }
+
+    @Test
+    @DisplayName("Deve concluir com erro quando uma etapa falha")
+    void deveConcluirComErroQuandoEtapaFalha() {
+        ProcessingContext context = new ProcessingContext("email123");
+
+        context.iniciarEtapa();
+        context.registrarFalha(new IllegalStateException("falha"));
+        context.concluirEtapa();
+
+        assertTrue(context.conclusao().isCompletedExceptionally());
+    }
 }
@@ -1,15 +1,21 @@
 package com.gmailreader.service.processing;
 
+import com.gmailreader.dto.EmailDto;
+import com.gmailreader.service.ConteudoEmail;
+import com.gmailreader.service.EmailToJsonService;
 import com.gmailreader.service.StorageService;
 import com.google.api.services.gmail.model.Message;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.DisplayName;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import static org.junit.jupiter.api.Assertions.*;
+import java.io.ByteArrayOutputStream;
+
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -19,6 +25,9 @@ class SaveEmailStepTest {
     @Mock
     private StorageService storageService;
 
+    @Mock
+    private EmailToJsonService emailToJsonService;
+
     @Mock
     private ProcessingStep nextStep;
 
@@ -26,7 +35,7 @@ class SaveEmailStepTest {
 
     @BeforeEach
     void setUp() {
-        saveEmailStep = new SaveEmailStep(storageService);
+        saveEmailStep = new SaveEmailStep(storageService, emailToJsonService);
     }
 
     @Test
@@ -143,4 +152,23 @@ class SaveEmailStepTest {
         assertDoesNotThrow(() -> saveEmailStep.processar(message, context));
         verify(storageService).salvarEmail(json);
     }
+
+    @Test
+    @DisplayName("Deve gravar o DTO convertido em fluxo no armazenamento")
+    void deveGravarDtoEmFluxo() throws Exception {
+        Message message = new Message().setId("msg123");
+        ProcessingContext context = new ProcessingContext("msg123");
+        EmailDto emailDto = new EmailDto("msg123", "", "", "", "");
+        context.definirEmailConvertido(emailDto);
+
+        saveEmailStep.processar(message, context);
+
+        ArgumentCaptor<ConteudoEmail> captor = ArgumentCaptor.forClass(ConteudoEmail.class);
+        verify(storageService).salvarEmailEmFluxo(captor.capture());
+        verify(storageService, never()).salvarEmail(anyString());
+
+        ByteArrayOutputStream saida = new ByteArrayOutputStream();
+        captor.getValue().escrever(saida);
+        verify(emailToJsonService).escrever(emailDto, saida);
+    }
 }
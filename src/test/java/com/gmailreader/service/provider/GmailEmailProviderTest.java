@@ -1,5 +1,7 @@
 package com.gmailreader.service.provider;
 
+import com.gmailreader.service.batch.GmailBatchClient;
+import com.gmailreader.service.pagination.PaginaMensagens;
 import com.gmailreader.service.pagination.PaginationHandler;
 import com.google.api.services.gmail.Gmail;
 import com.google.api.services.gmail.model.Message;
@@ -13,10 +15,17 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.test.util.ReflectionTestUtils;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -32,6 +41,9 @@ class GmailEmailProviderTest {
     @Mock
     private PaginationHandler paginationHandler;
 
+    @Mock
+    private GmailBatchClient batchClient;
+
     @Mock
     private Gmail.Users users;
 
@@ -48,7 +60,7 @@ class GmailEmailProviderTest {
 
     @BeforeEach
     void setUp() {
-        gmailEmailProvider = new GmailEmailProvider(gmailService, paginationHandler);
+        gmailEmailProvider = new GmailEmailProvider(gmailService, paginationHandler, batchClient);
         ReflectionTestUtils.setField(gmailEmailProvider, "progressLogInterval", 10);
     }
 
@@ -114,6 +126,77 @@ class GmailEmailProviderTest {
         assertEquals("Falha na comunicação com Gmail API", exception.getMessage());
     }
 
+    @Test
+    @DisplayName("Deve buscar detalhes página a página ao consumir o fluxo")
+    void deveBuscarDetalhesPaginaAPaginaAoConsumirFluxo() throws Exception {
+        EmailSearchCriteria criteria = EmailSearchCriteria.builder()
+                .userId("me")
+                .labelIds(Collections.singletonList("INBOX"))
+                .build();
+
+        when(paginationHandler.buscarPagina(gmailService, criteria, null))
+                .thenReturn(new PaginaMensagens(List.of("msg1", "msg2"), "token2"));
+        when(paginationHandler.buscarPagina(gmailService, criteria, "token2"))
+                .thenReturn(new PaginaMensagens(List.of("msg3"), null));
+        when(gmailService.users()).thenReturn(users);
+        when(users.messages()).thenReturn(messages);
+        when(messages.get(eq("me"), anyString())).thenReturn(messageGet);
+        when(messageGet.execute()).thenReturn(
+                new Message().setId("msg1"), new Message().setId("msg2"), new Message().setId("msg3"));
+
+        Iterator<Message> fluxo = gmailEmailProvider.listarEmailsEmFluxo(criteria).iterator();
+
+        verifyNoInteractions(paginationHandler);
+        assertEquals("msg1", fluxo.next().getId());
+        assertEquals("msg2", fluxo.next().getId());
+        verify(paginationHandler, never()).buscarPagina(gmailService, criteria, "token2");
+        verify(messages, never()).get("me", "msg3");
+
+        assertEquals("msg3", fluxo.next().getId());
+        assertFalse(fluxo.hasNext());
+    }
+
+    @Test
+    @DisplayName("Deve entregar ao critério as mensagens do fluxo que falharam na busca")
+    void deveEntregarFalhasDeBuscaDoFluxo() throws Exception {
+        Map<String, IOException> falhas = new HashMap<>();
+        EmailSearchCriteria criteria = EmailSearchCriteria.builder()
+                .userId("me")
+                .labelIds(Collections.singletonList("INBOX"))
+                .aoFalharBusca(falhas::put)
+                .build();
+
+        when(paginationHandler.buscarPagina(gmailService, criteria, null))
+                .thenReturn(new PaginaMensagens(List.of("msg1", "msg2"), null));
+        when(gmailService.users()).thenReturn(users);
+        when(users.messages()).thenReturn(messages);
+        when(messages.get("me", "msg1")).thenReturn(messageGet);
+        when(messages.get("me", "msg2")).thenThrow(new IOException("Erro de conexão"));
+        when(messageGet.execute()).thenReturn(new Message().setId("msg1"));
+
+        List<Message> emails = gmailEmailProvider.listarEmailsEmFluxo(criteria).toList();
+
+        assertEquals(1, emails.size());
+        assertEquals(Set.of("msg2"), falhas.keySet());
+    }
+
+    @Test
+    @DisplayName("Deve lançar UncheckedIOException quando página do fluxo falha")
+    void deveLancarUncheckedIOExceptionQuandoPaginaDoFluxoFalha() throws Exception {
+        EmailSearchCriteria criteria = EmailSearchCriteria.builder()
+                .userId("me")
+                .labelIds(Collections.singletonList("INBOX"))
+                .build();
+
+        when(paginationHandler.buscarPagina(gmailService, criteria, null))
+                .thenThrow(new IOException("Erro de conexão"));
+
+        UncheckedIOException exception = assertThrows(UncheckedIOException.class,
+                () -> gmailEmailProvider.listarEmailsEmFluxo(criteria).toList());
+
+        assertEquals("Falha na comunicação com Gmail API", exception.getCause().getMessage());
+    }
+
     @Test
     @DisplayName("Deve obter mensagem completa com sucesso")
     void deveObterMensagemCompletaComSucesso() throws Exception {
@@ -126,6 +209,22 @@ class GmailEmailProviderTest {
 
         assertNotNull(result);
         assertEquals(messageId, result.getId());
+        verify(messageGet).setFormat("full");
+        verify(messageGet).setFields(FormatoMensagem.FULL.getCampos());
+        verify(messageGet, never()).setMetadataHeaders(any());
+    }
+
+    @Test
+    @DisplayName("Deve pedir só os cabeçalhos usados no formato METADATA")
+    void devePedirSoCabecalhosNoFormatoMetadata() throws Exception {
+        String messageId = "msg123";
+        configurarMockParaObterMensagem(messageId, new Message().setId(messageId));
+
+        gmailEmailProvider.obterMensagemCompleta(messageId, "me", FormatoMensagem.METADATA);
+
+        verify(messageGet).setFormat("metadata");
+        verify(messageGet).setMetadataHeaders(List.of("From", "Subject", "Date"));
+        verify(messageGet).setFields("id,payload/headers(name,value)");
     }
 
     @Test
@@ -349,6 +448,93 @@ class GmailEmailProviderTest {
         verify(messages).get(customUserId, messageId);
     }
 
+    @Test
+    @DisplayName("Deve registrar falhas por ID na busca em lote")
+    void deveRegistrarFalhasPorIdNaBuscaEmLote() throws Exception {
+        configurarMensagensNumeradas(4, "msg3");
+
+        ResultadoBuscaMensagens resultado = gmailEmailProvider.obterMensagens(
+                Arrays.asList("msg1", "msg2", "msg3", "msg4"), "me");
+
+        assertEquals(Arrays.asList("msg1", "msg2", "msg4"),
+                resultado.getMensagens().stream().map(Message::getId).toList());
+        assertTrue(resultado.temFalhas());
+        assertEquals(1, resultado.getFalhas().size());
+        assertTrue(resultado.getFalhas().get("msg3").getMessage().contains("msg3"));
+    }
+
+    @Test
+    @DisplayName("Deve buscar mensagens em paralelo preservando a ordem")
+    void deveBuscarMensagensEmParaleloPreservandoOrdem() throws Exception {
+        ReflectionTestUtils.setField(gmailEmailProvider, "paralelismoBusca", 4);
+        List<String> messageIds = configurarMensagensNumeradas(40, "msg7");
+
+        try {
+            ResultadoBuscaMensagens resultado = gmailEmailProvider.obterMensagens(messageIds, "me");
+
+            List<String> esperados = new ArrayList<>(messageIds);
+            esperados.remove("msg7");
+            assertEquals(esperados, resultado.getMensagens().stream().map(Message::getId).toList());
+            assertEquals(List.of("msg7"), new ArrayList<>(resultado.getFalhas().keySet()));
+        } finally {
+            gmailEmailProvider.encerrar();
+        }
+    }
+
+    @Test
+    @DisplayName("Deve buscar mensagens em paralelo sem preservar a ordem")
+    void deveBuscarMensagensEmParaleloSemPreservarOrdem() throws Exception {
+        ReflectionTestUtils.setField(gmailEmailProvider, "paralelismoBusca", 4);
+        ReflectionTestUtils.setField(gmailEmailProvider, "preservarOrdem", false);
+        List<String> messageIds = configurarMensagensNumeradas(40, null);
+
+        try {
+            ResultadoBuscaMensagens resultado = gmailEmailProvider.obterMensagens(messageIds, "me");
+
+            assertEquals(40, resultado.getMensagens().size());
+            assertEquals(new HashSet<>(messageIds),
+                    resultado.getMensagens().stream().map(Message::getId).collect(Collectors.toSet()));
+            assertFalse(resultado.temFalhas());
+        } finally {
+            gmailEmailProvider.encerrar();
+        }
+    }
+
+    @Test
+    @DisplayName("Deve delegar ao cliente de lote quando a busca em lote HTTP está ativa")
+    void deveDelegarAoClienteDeLote() throws Exception {
+        ReflectionTestUtils.setField(gmailEmailProvider, "buscaEmLoteHttp", true);
+        List<String> messageIds = Arrays.asList("msg1", "msg2");
+        ResultadoBuscaMensagens esperado = new ResultadoBuscaMensagens(
+                List.of(new Message().setId("msg1")), Map.of("msg2", new IOException("404")), 5);
+
+        when(batchClient.obterMensagens(messageIds, "me", FormatoMensagem.FULL)).thenReturn(esperado);
+
+        ResultadoBuscaMensagens resultado = gmailEmailProvider.obterMensagens(messageIds, "me");
+
+        assertSame(esperado, resultado);
+        verifyNoInteractions(gmailService);
+    }
+
+    private List<String> configurarMensagensNumeradas(int quantidade, String idComFalha) throws IOException {
+        when(gmailService.users()).thenReturn(users);
+        when(users.messages()).thenReturn(messages);
+
+        List<String> messageIds = new ArrayList<>();
+        for (int i = 1; i <= quantidade; i++) {
+            String messageId = "msg" + i;
+            Gmail.Users.Messages.Get get = mock(Gmail.Users.Messages.Get.class);
+            if (messageId.equals(idComFalha)) {
+                when(get.execute()).thenThrow(new IOException("Erro na " + messageId));
+            } else {
+                when(get.execute()).thenReturn(new Message().setId(messageId));
+            }
+            when(messages.get("me", messageId)).thenReturn(get);
+            messageIds.add(messageId);
+        }
+        return messageIds;
+    }
+
     private void configurarMockParaObterMensagem(String messageId, Message message) throws IOException {
         when(gmailService.users()).thenReturn(users);
         when(users.messages()).thenReturn(messages);
@@ -0,0 +1,137 @@
+package com.gmailreader.service.provider;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DisplayName("ProviderHealthMonitor")
+class ProviderHealthMonitorTest {
+
+    private AtomicLong agora;
+    private AtomicInteger verificacoes;
+    private ProviderHealthMonitor monitor;
+
+    @BeforeEach
+    void setUp() {
+        agora = new AtomicLong(1_000);
+        verificacoes = new AtomicInteger();
+        monitor = new ProviderHealthMonitor(agora::get);
+        ReflectionTestUtils.setField(monitor, "ttlMs", 100L);
+        ReflectionTestUtils.setField(monitor, "falhasParaAbrir", 2);
+        ReflectionTestUtils.setField(monitor, "esperaAbertoMs", 500L);
+    }
+
+    private boolean verificar(boolean resultado) {
+        return monitor.estaDisponivel(() -> {
+            verificacoes.incrementAndGet();
+            return resultado;
+        });
+    }
+
+    @Test
+    @DisplayName("Deve verificar ativamente só quando o sucesso em cache expirou")
+    void deveVerificarSoQuandoCacheExpira() {
+        assertTrue(verificar(true));
+        agora.addAndGet(50);
+        assertTrue(verificar(true));
+        assertEquals(1, verificacoes.get());
+
+        agora.addAndGet(100);
+        assertTrue(verificar(true));
+        assertEquals(2, verificacoes.get());
+    }
+
+    @Test
+    @DisplayName("Deve dispensar a verificação ativa após sucesso de chamada real")
+    void deveDispensarVerificacaoAposSucessoReal() {
+        monitor.registrarSucesso();
+
+        assertTrue(verificar(false));
+        assertEquals(0, verificacoes.get());
+    }
+
+    @Test
+    @DisplayName("Deve abrir o circuito após falhas consecutivas e liberar uma chamada de teste depois da espera")
+    void deveAbrirCircuitoAposFalhas() {
+        monitor.registrarFalha(new IOException("503"));
+        monitor.registrarFalha(new IOException("503"));
+
+        assertFalse(verificar(true));
+        assertEquals(0, verificacoes.get());
+
+        agora.addAndGet(500);
+        assertTrue(verificar(true));
+        assertFalse(verificar(true));
+        assertEquals(0, verificacoes.get());
+
+        monitor.registrarSucesso();
+        assertTrue(verificar(false));
+    }
+
+    @Test
+    @DisplayName("Deve consultar o circuito aberto sem reservar a chamada de teste")
+    void deveConsultarSemReservarChamadaDeTeste() {
+        monitor.registrarFalha(new IOException("503"));
+        monitor.registrarFalha(new IOException("503"));
+        agora.addAndGet(500);
+
+        assertFalse(monitor.consultarDisponibilidade(() -> true));
+        assertFalse(monitor.consultarDisponibilidade(() -> true));
+
+        assertTrue(verificar(true));
+        assertEquals(0, verificacoes.get());
+    }
+
+    @Test
+    @DisplayName("Deve registrar falha lançada durante o consumo do fluxo")
+    void deveRegistrarFalhaDoFluxo() {
+        ReflectionTestUtils.setField(monitor, "falhasParaAbrir", 1);
+        Stream<String> fluxo = Stream.of("a", "b").map(id -> {
+            if (id.equals("b")) {
+                throw new UncheckedIOException(new IOException("Falha na comunicação com Gmail API"));
+            }
+            return id;
+        });
+
+        assertThrows(UncheckedIOException.class, () -> monitor.monitorar(fluxo).toList());
+
+        assertFalse(verificar(true));
+    }
+
+    @Test
+    @DisplayName("Deve repassar os elementos do fluxo e registrar sucesso")
+    void deveRepassarElementosDoFluxo() {
+        assertEquals(List.of("a", "b"), monitor.monitorar(Stream.of("a", "b")).toList());
+
+        assertTrue(verificar(false));
+        assertEquals(0, verificacoes.get());
+    }
+
+    @Test
+    @DisplayName("Deve voltar a registrar sucesso no fluxo só quando houver falhas pendentes")
+    void deveRegistrarSucessoDoFluxoSoComFalhasPendentes() {
+        ReflectionTestUtils.setField(monitor, "falhasParaAbrir", 3);
+        Iterator<String> fluxo = monitor.monitorar(Stream.of("a", "b", "c")).iterator();
+
+        assertEquals("a", fluxo.next());
+        monitor.registrarFalha(new IOException("503"));
+        assertEquals("b", fluxo.next());
+        assertEquals(0, ReflectionTestUtils.getField(monitor, "falhasConsecutivas"));
+
+        monitor.registrarFalha(new IOException("503"));
+        monitor.registrarFalha(new IOException("503"));
+        assertEquals("c", fluxo.next());
+        assertEquals(0, ReflectionTestUtils.getField(monitor, "falhasConsecutivas"));
+    }
+}